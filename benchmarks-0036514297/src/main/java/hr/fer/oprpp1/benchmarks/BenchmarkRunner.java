@@ -0,0 +1,38 @@
+package hr.fer.oprpp1.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks selected by the standard JMH command line options. Unless
+ * told otherwise with <code>-rf</code> and <code>-rff</code>, results are
+ * written as JSON to <code>jmh-result.json</code> so they can be compared
+ * between runs
+ */
+public class BenchmarkRunner {
+
+	/** File receiving the results when none is given */
+	private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	public static void main(String[] args) throws RunnerException {
+		CommandLineOptions commandLine;
+		try {
+			commandLine = new CommandLineOptions(args);
+		} catch (CommandLineOptionException ex) {
+			System.err.println("Invalid options: " + ex.getMessage());
+			System.exit(1);
+			return;
+		}
+
+		var options = new OptionsBuilder().parent(commandLine);
+		if (!commandLine.getResultFormat().hasValue())
+			options.resultFormat(ResultFormatType.JSON);
+		if (!commandLine.getResult().hasValue())
+			options.result(DEFAULT_RESULT_FILE);
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,82 @@
+package hr.fer.oprpp1.benchmarks;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+
+/**
+ * Lookups of keys which all share the same hash code. Treeified slots should
+ * keep them logarithmic
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollidingKeysBenchmark {
+
+	/** Number of precomputed random keys */
+	private static final int KEYS = 1024;
+
+	@Param({ "10", "1000", "100000" })
+	public int size;
+
+	private SimpleHashtable<CollidingKey, Integer> simpleHashtable;
+	private HashMap<CollidingKey, Integer> hashMap;
+	private CollidingKey[] presentKeys;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		simpleHashtable = new SimpleHashtable<>();
+		hashMap = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			simpleHashtable.put(new CollidingKey(i), i);
+			hashMap.put(new CollidingKey(i), i);
+		}
+
+		var random = new SplittableRandom(42);
+		presentKeys = new CollidingKey[KEYS];
+		for (int i = 0; i < KEYS; i++)
+			presentKeys[i] = new CollidingKey(random.nextInt(size));
+	}
+
+	@Benchmark
+	public Object simpleHashtableGet() {
+		return simpleHashtable.get(presentKeys[next++ & (KEYS - 1)]);
+	}
+
+	@Benchmark
+	public Object hashMapGet() {
+		return hashMap.get(presentKeys[next++ & (KEYS - 1)]);
+	}
+
+	/** Key whose every instance has the same hash code */
+	public record CollidingKey(int id) implements Comparable<CollidingKey> {
+		@Override
+		public int hashCode() {
+			return 0;
+		}
+
+		@Override
+		public int compareTo(CollidingKey other) {
+			return Integer.compare(id, other.id);
+		}
+	}
+}
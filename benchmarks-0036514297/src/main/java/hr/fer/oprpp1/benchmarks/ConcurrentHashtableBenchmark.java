@@ -0,0 +1,183 @@
+package hr.fer.oprpp1.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.oprpp1.custom.collections.ConcurrentSimpleHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+
+/**
+ * Measures throughput of a table shared by several threads. The mixed
+ * benchmarks do one put for every nine gets, on 1 to 8 threads, so the
+ * scaling of a table is read by comparing them. The grouped benchmark runs
+ * readers and a writer side by side. A <code>SimpleHashtable</code> behind a
+ * single lock is the baseline which doesn't scale
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ConcurrentHashtableBenchmark {
+
+	/** Number of precomputed random keys of every thread */
+	private static final int KEYS = 1024;
+	/** One of this many operations of the mixed benchmarks is a put */
+	private static final int PUT_PERIOD = 10;
+
+	@Param({ "1000", "1000000" })
+	public int size;
+
+	@Param({ "ConcurrentSimpleHashtable", "SynchronizedSimpleHashtable", "ConcurrentHashMap" })
+	public String implementation;
+
+	private SharedTable table;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		table = SharedTable.create(implementation);
+		for (int i = 0; i < size; i++)
+			table.put(i, i);
+	}
+
+	/** Keys used by one thread, so that threads don't share a counter */
+	@State(Scope.Thread)
+	public static class ThreadKeys {
+		private Integer[] keys;
+		private int next;
+
+		@Setup(Level.Trial)
+		public void setup(ConcurrentHashtableBenchmark benchmark) {
+			var random = new SplittableRandom(Thread.currentThread().getId());
+			keys = new Integer[KEYS];
+			for (int i = 0; i < KEYS; i++)
+				keys[i] = random.nextInt(benchmark.size);
+		}
+
+		Integer next() {
+			return keys[next++ & (KEYS - 1)];
+		}
+
+		boolean isPutTurn() {
+			return next % PUT_PERIOD == 0;
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Object mixed1(ThreadKeys keys) {
+		return mixed(keys);
+	}
+
+	@Benchmark
+	@Threads(2)
+	public Object mixed2(ThreadKeys keys) {
+		return mixed(keys);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Object mixed4(ThreadKeys keys) {
+		return mixed(keys);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Object mixed8(ThreadKeys keys) {
+		return mixed(keys);
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(3)
+	public Object reader(ThreadKeys keys) {
+		return table.get(keys.next());
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(1)
+	public Object writer(ThreadKeys keys) {
+		var key = keys.next();
+		return table.put(key, key);
+	}
+
+	/**
+	 * Does the next operation of the mixed workload. Puts only replace values of
+	 * present keys, so the size of the table stays the same
+	 *
+	 * @param keys of the current thread
+	 * @return result of the operation
+	 */
+	private Object mixed(ThreadKeys keys) {
+		boolean put = keys.isPutTurn();
+		var key = keys.next();
+		return put ? table.put(key, key) : table.get(key);
+	}
+
+	/** Common view of benchmarked tables */
+	interface SharedTable {
+		Object put(Integer key, Integer value);
+
+		Object get(Integer key);
+
+		static SharedTable create(String implementation) {
+			switch (implementation) {
+			case "ConcurrentSimpleHashtable": {
+				var table = new ConcurrentSimpleHashtable<Integer, Integer>();
+				return adapter(table::put, table::get);
+			}
+			case "SynchronizedSimpleHashtable": {
+				var table = new SimpleHashtable<Integer, Integer>();
+				return adapter((key, value) -> {
+					synchronized (table) {
+						return table.put(key, value);
+					}
+				}, (key) -> {
+					synchronized (table) {
+						return table.get(key);
+					}
+				});
+			}
+			case "ConcurrentHashMap": {
+				var table = new ConcurrentHashMap<Integer, Integer>();
+				return adapter(table::put, table::get);
+			}
+			default:
+				throw new IllegalArgumentException("Unknown implementation " + implementation);
+			}
+		}
+
+		private static SharedTable adapter(BiFunction<Integer, Integer, Object> put, Function<Integer, Object> get) {
+			return new SharedTable() {
+				public Object put(Integer key, Integer value) {
+					return put.apply(key, value);
+				}
+
+				public Object get(Integer key) {
+					return get.apply(key);
+				}
+			};
+		}
+	}
+}
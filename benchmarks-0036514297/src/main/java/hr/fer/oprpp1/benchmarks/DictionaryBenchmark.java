@@ -0,0 +1,78 @@
+package hr.fer.oprpp1.benchmarks;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.oprpp1.custom.collections.Dictionary;
+
+/** Compares <code>Dictionary</code> with <code>java.util.HashMap</code> */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class DictionaryBenchmark {
+
+	/** Number of precomputed random keys */
+	private static final int KEYS = 1024;
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	public int size;
+
+	private Dictionary<String, Integer> dictionary;
+	private HashMap<String, Integer> hashMap;
+	private String[] presentKeys;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		dictionary = new Dictionary<>();
+		hashMap = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			dictionary.put("key" + i, i);
+			hashMap.put("key" + i, i);
+		}
+
+		var random = new SplittableRandom(42);
+		presentKeys = new String[KEYS];
+		for (int i = 0; i < KEYS; i++)
+			presentKeys[i] = "key" + random.nextInt(size);
+	}
+
+	@Benchmark
+	public Object dictionaryGet() {
+		return dictionary.get(presentKeys[next++ & (KEYS - 1)]);
+	}
+
+	@Benchmark
+	public Object dictionaryPutExisting() {
+		var key = presentKeys[next++ & (KEYS - 1)];
+		return dictionary.put(key, 0);
+	}
+
+	@Benchmark
+	public Object hashMapGet() {
+		return hashMap.get(presentKeys[next++ & (KEYS - 1)]);
+	}
+
+	@Benchmark
+	public Object hashMapPutExisting() {
+		var key = presentKeys[next++ & (KEYS - 1)];
+		return hashMap.put(key, 0);
+	}
+}
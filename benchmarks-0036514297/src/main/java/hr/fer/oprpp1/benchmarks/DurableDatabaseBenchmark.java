@@ -0,0 +1,96 @@
+package hr.fer.oprpp1.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.oprpp1.hw04.db.DurableStudentDatabase;
+import hr.fer.oprpp1.hw04.db.Mutation;
+import hr.fer.oprpp1.hw04.db.StudentRecord;
+
+/**
+ * Measures durable single-record updates of a database kept in a temporary
+ * directory, so the result depends on how fast its disk forces writes. Writers
+ * committing at the same time share one force, which is read by comparing the
+ * benchmarks with one and with sixteen threads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DurableDatabaseBenchmark {
+
+	@Param({ "10000" })
+	public int records;
+
+	private Path directory;
+	private DurableStudentDatabase database;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("durable-benchmark");
+		database = DurableStudentDatabase.open(directory, null);
+		var inserts = new ArrayList<Mutation>(records);
+		for (int i = 0; i < records; i++)
+			inserts.add(Mutation.insert(new StudentRecord(jmbag(i), "Ivan", "Horvat", 1)));
+		database.apply(inserts);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		database.close();
+		try (var files = Files.walk(directory)) {
+			for (var file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+				Files.delete(file);
+		}
+	}
+
+	/** Random generator of one thread, so that threads don't share one */
+	@State(Scope.Thread)
+	public static class ThreadRandom {
+		private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+	}
+
+	@Benchmark
+	@Threads(1)
+	public boolean update1(ThreadRandom random) throws IOException {
+		return update(random);
+	}
+
+	@Benchmark
+	@Threads(16)
+	public boolean update16(ThreadRandom random) throws IOException {
+		return update(random);
+	}
+
+	/** Durably changes the grade of a random record */
+	private boolean update(ThreadRandom random) throws IOException {
+		int i = random.random.nextInt(records);
+		return database.update(new StudentRecord(jmbag(i), "Ivan", "Horvat", random.random.nextInt(5) + 1));
+	}
+
+	private static String jmbag(int i) {
+		return String.format("%010d", i);
+	}
+}
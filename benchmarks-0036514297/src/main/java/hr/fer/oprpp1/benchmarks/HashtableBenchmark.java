@@ -0,0 +1,154 @@
+package hr.fer.oprpp1.benchmarks;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hr.fer.oprpp1.custom.collections.ConcurrentSimpleHashtable;
+import hr.fer.oprpp1.custom.collections.OpenAddressingHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+
+/**
+ * Compares hash tables with <code>java.util.HashMap</code>. Keys
+ * <code>0..size-1</code> are present, negative keys are always missing
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class HashtableBenchmark {
+
+	/** Number of precomputed random keys */
+	private static final int KEYS = 1024;
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	public int size;
+
+	@Param({ "SimpleHashtable", "SimpleHashtableIncremental", "OpenAddressingHashtable", "ConcurrentSimpleHashtable",
+			"HashMap" })
+	public String implementation;
+
+	private TableAdapter table;
+	private Integer[] presentKeys;
+	private Integer[] missingKeys;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		table = TableAdapter.create(implementation);
+		for (int i = 0; i < size; i++)
+			table.put(i, i);
+
+		var random = new SplittableRandom(42);
+		presentKeys = new Integer[KEYS];
+		missingKeys = new Integer[KEYS];
+		for (int i = 0; i < KEYS; i++) {
+			presentKeys[i] = random.nextInt(size);
+			missingKeys[i] = -1 - random.nextInt(size);
+		}
+	}
+
+	@Benchmark
+	public Object getPresent() {
+		return table.get(presentKeys[next++ & (KEYS - 1)]);
+	}
+
+	@Benchmark
+	public Object getMissing() {
+		return table.get(missingKeys[next++ & (KEYS - 1)]);
+	}
+
+	@Benchmark
+	public Object putAndRemove() {
+		var key = missingKeys[next++ & (KEYS - 1)];
+		table.put(key, key);
+		return table.remove(key);
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		table.forEachKey(blackhole::consume);
+	}
+
+	/** Common view of benchmarked tables */
+	interface TableAdapter {
+		Object put(Integer key, Integer value);
+
+		Object get(Integer key);
+
+		Object remove(Integer key);
+
+		void forEachKey(Consumer<Object> action);
+
+		static TableAdapter create(String implementation) {
+			switch (implementation) {
+			case "SimpleHashtable": {
+				var table = new SimpleHashtable<Integer, Integer>();
+				return adapter(table::put, table::get, table::remove,
+						(action) -> table.forEach((e) -> action.accept(e.getKey())));
+			}
+			case "SimpleHashtableIncremental": {
+				var table = new SimpleHashtable<Integer, Integer>(16, true);
+				return adapter(table::put, table::get, table::remove,
+						(action) -> table.forEach((e) -> action.accept(e.getKey())));
+			}
+			case "OpenAddressingHashtable": {
+				var table = new OpenAddressingHashtable<Integer, Integer>();
+				return adapter(table::put, table::get, table::remove,
+						(action) -> table.forEach((e) -> action.accept(e.getKey())));
+			}
+			case "ConcurrentSimpleHashtable": {
+				var table = new ConcurrentSimpleHashtable<Integer, Integer>();
+				return adapter(table::put, table::get, table::remove,
+						(action) -> table.forEach((e) -> action.accept(e.getKey())));
+			}
+			case "HashMap": {
+				var table = new HashMap<Integer, Integer>();
+				return adapter(table::put, table::get, table::remove,
+						(action) -> table.keySet().forEach(action));
+			}
+			default:
+				throw new IllegalArgumentException("Unknown implementation " + implementation);
+			}
+		}
+
+		private static TableAdapter adapter(java.util.function.BiFunction<Integer, Integer, Object> put,
+				java.util.function.Function<Integer, Object> get, java.util.function.Function<Integer, Object> remove,
+				Consumer<Consumer<Object>> forEachKey) {
+			return new TableAdapter() {
+				public Object put(Integer key, Integer value) {
+					return put.apply(key, value);
+				}
+
+				public Object get(Integer key) {
+					return get.apply(key);
+				}
+
+				public Object remove(Integer key) {
+					return remove.apply(key);
+				}
+
+				public void forEachKey(Consumer<Object> action) {
+					forEachKey.accept(action);
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package hr.fer.oprpp1.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hr.fer.oprpp1.custom.collections.ArrayIndexedCollection;
+import hr.fer.oprpp1.custom.collections.LinkedListIndexedCollection;
+
+/**
+ * Compares indexed collections with their <code>java.util</code> counterparts.
+ * Every modifying benchmark undoes its change, so the size stays fixed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ListBenchmark {
+
+	/** Number of precomputed random indexes */
+	private static final int INDEXES = 1024;
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	public int size;
+
+	@Param({ "ArrayIndexedCollection", "LinkedListIndexedCollection", "ArrayList", "LinkedList" })
+	public String implementation;
+
+	private ListAdapter list;
+	private int[] randomIndexes;
+	private int next;
+	private Integer middleValue;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		list = ListAdapter.create(implementation);
+		for (int i = 0; i < size; i++)
+			list.add(i);
+		middleValue = size / 2;
+
+		var random = new SplittableRandom(42);
+		randomIndexes = new int[INDEXES];
+		for (int i = 0; i < INDEXES; i++)
+			randomIndexes[i] = random.nextInt(size);
+	}
+
+	@Benchmark
+	public void addAndRemoveLast() {
+		list.add(-1);
+		list.remove(size);
+	}
+
+	@Benchmark
+	public void insertAndRemoveMiddle() {
+		list.insert(-1, size / 2);
+		list.remove(size / 2);
+	}
+
+	@Benchmark
+	public void insertAndRemoveFirst() {
+		list.insert(-1, 0);
+		list.remove(0);
+	}
+
+	@Benchmark
+	public Object getRandom() {
+		return list.get(randomIndexes[next++ & (INDEXES - 1)]);
+	}
+
+	@Benchmark
+	public int indexOfMiddle() {
+		return list.indexOf(middleValue);
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		list.forEach(blackhole::consume);
+	}
+
+	/**
+	 * Common view of custom and <code>java.util</code> lists, one implementation
+	 * per benchmarked class. Every fork uses just one of them, so calls stay
+	 * monomorphic
+	 */
+	interface ListAdapter {
+		void add(Integer value);
+
+		void insert(Integer value, int position);
+
+		Object get(int index);
+
+		void remove(int index);
+
+		int indexOf(Object value);
+
+		void forEach(java.util.function.Consumer<Object> action);
+
+		static ListAdapter create(String implementation) {
+			switch (implementation) {
+			case "ArrayIndexedCollection":
+				return new CustomListAdapter(new ArrayIndexedCollection<>());
+			case "LinkedListIndexedCollection":
+				return new CustomListAdapter(new LinkedListIndexedCollection<>());
+			case "ArrayList":
+				return new JavaListAdapter(new ArrayList<>());
+			case "LinkedList":
+				return new JavaListAdapter(new LinkedList<>());
+			default:
+				throw new IllegalArgumentException("Unknown implementation " + implementation);
+			}
+		}
+	}
+
+	private static class CustomListAdapter implements ListAdapter {
+		private final hr.fer.oprpp1.custom.collections.List<Integer> list;
+
+		public CustomListAdapter(hr.fer.oprpp1.custom.collections.List<Integer> list) {
+			this.list = list;
+		}
+
+		public void add(Integer value) {
+			list.add(value);
+		}
+
+		public void insert(Integer value, int position) {
+			list.insert(value, position);
+		}
+
+		public Object get(int index) {
+			return list.get(index);
+		}
+
+		public void remove(int index) {
+			list.remove(index);
+		}
+
+		public int indexOf(Object value) {
+			return list.indexOf(value);
+		}
+
+		public void forEach(java.util.function.Consumer<Object> action) {
+			list.forEach(action::accept);
+		}
+	}
+
+	private static class JavaListAdapter implements ListAdapter {
+		private final java.util.List<Integer> list;
+
+		public JavaListAdapter(java.util.List<Integer> list) {
+			this.list = list;
+		}
+
+		public void add(Integer value) {
+			list.add(value);
+		}
+
+		public void insert(Integer value, int position) {
+			list.add(position, value);
+		}
+
+		public Object get(int index) {
+			return list.get(index);
+		}
+
+		public void remove(int index) {
+			list.remove(index);
+		}
+
+		public int indexOf(Object value) {
+			return list.indexOf(value);
+		}
+
+		public void forEach(java.util.function.Consumer<Object> action) {
+			list.forEach(action);
+		}
+	}
+}
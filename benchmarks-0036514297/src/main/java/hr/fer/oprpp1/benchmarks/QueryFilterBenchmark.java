@@ -0,0 +1,98 @@
+package hr.fer.oprpp1.benchmarks;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.oprpp1.hw04.db.IFilter;
+import hr.fer.oprpp1.hw04.db.QueryCompiler;
+import hr.fer.oprpp1.hw04.db.QueryFilter;
+import hr.fer.oprpp1.hw04.db.QueryParser;
+import hr.fer.oprpp1.hw04.db.StudentRecord;
+
+/**
+ * Tests the same records with a query interpreted by <code>QueryFilter</code>
+ * and compiled by <code>QueryCompiler</code>. Before measuring, every query
+ * is run through both filters once, so the getters and operators called by
+ * the interpreted filter are as polymorphic as they are in the database
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryFilterBenchmark {
+
+	/** Queries of the benchmark, from a single comparison to several fields */
+	private static final String[] QUERIES = {
+			"lastName = \"Kovač\"",
+			"lastName >= \"K\" and firstName != \"Ana\"",
+			"lastName LIKE \"K*ić\" and firstName > \"H\" and finalGrade >= 3",
+			"jmbag < \"0000080000\" and lastName > \"B\" and firstName LIKE \"I*\" and finalGrade != 1" };
+
+	@Param({ "0", "1", "2", "3" })
+	public int query;
+
+	@Param({ "100000" })
+	public int records;
+
+	private StudentRecord[] data;
+	private IFilter interpreted;
+	private IFilter compiled;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		var random = new SplittableRandom(42);
+		String[] lastNames = { "Kovač", "Kovačić", "Horvat", "Babić", "Knez", "Jurić", "Novak", "Marić" };
+		String[] firstNames = { "Ana", "Ivan", "Marko", "Ivana", "Luka", "Petra", "Josip" };
+		data = new StudentRecord[records];
+		for (int i = 0; i < records; i++)
+			data[i] = new StudentRecord(String.format("%010d", i), firstNames[random.nextInt(firstNames.length)],
+					lastNames[random.nextInt(lastNames.length)], random.nextInt(5) + 1);
+
+		var filters = new ArrayList<IFilter>();
+		for (var text : QUERIES) {
+			var expressions = new QueryParser("query " + text).getQuery();
+			filters.add(new QueryFilter(expressions));
+			filters.add(QueryCompiler.compile(expressions));
+		}
+		for (var filter : filters)
+			count(filter);
+		var expressions = new QueryParser("query " + QUERIES[query]).getQuery();
+		interpreted = new QueryFilter(expressions);
+		compiled = QueryCompiler.compile(expressions);
+	}
+
+	@Benchmark
+	public int interpreted() {
+		return count(interpreted);
+	}
+
+	@Benchmark
+	public int compiled() {
+		return count(compiled);
+	}
+
+	/** Counts the records accepted by the filter */
+	private int count(IFilter filter) {
+		int accepted = 0;
+		for (var record : data)
+			if (filter.accepts(record))
+				accepted++;
+		return accepted;
+	}
+}
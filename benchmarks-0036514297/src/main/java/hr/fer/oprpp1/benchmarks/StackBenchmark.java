@@ -0,0 +1,70 @@
+package hr.fer.oprpp1.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.oprpp1.custom.collections.IntStack;
+import hr.fer.oprpp1.custom.collections.ObjectStack;
+
+/**
+ * Evaluates the same postfix sums on <code>ObjectStack</code> and
+ * <code>IntStack</code>. Run with <code>-prof gc</code> to see the allocation
+ * rate, which drops to zero bytes per operation for <code>IntStack</code>
+ * since its array is reused
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackBenchmark {
+
+	@Param({ "16", "1024" })
+	public int depth;
+
+	private int[] operands;
+	private ObjectStack objectStack;
+	private IntStack intStack;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		var random = new SplittableRandom(42);
+		operands = new int[depth];
+		for (int i = 0; i < depth; i++)
+			operands[i] = random.nextInt(100_000);
+		objectStack = new ObjectStack();
+		intStack = new IntStack();
+	}
+
+	@Benchmark
+	public int objectStack() {
+		for (int operand : operands)
+			objectStack.push(operand);
+		while (objectStack.size() > 1)
+			objectStack.push((Integer) objectStack.pop() + (Integer) objectStack.pop());
+		return (Integer) objectStack.pop();
+	}
+
+	@Benchmark
+	public int intStack() {
+		for (int operand : operands)
+			intStack.push(operand);
+		while (intStack.size() > 1)
+			intStack.push(intStack.pop() + intStack.pop());
+		return intStack.pop();
+	}
+}
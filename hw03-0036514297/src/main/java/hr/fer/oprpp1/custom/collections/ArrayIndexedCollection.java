@@ -3,7 +3,10 @@ package hr.fer.oprpp1.custom.collections;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
+import static java.util.Objects.checkFromToIndex;
 import static java.util.Objects.checkIndex;
 import static java.util.Objects.requireNonNull;
 
@@ -144,10 +147,80 @@ public class ArrayIndexedCollection<T> implements List<T> {
 		return new Getter<T>(this);
 	}
 
-	/** Duplicates backing array if it's full */
-	private void checkSize() {
-		if (size == elements.length) {
-			elements = Arrays.copyOf(elements, elements.length * 2);
+	/**
+	 * Adds all elements of the other collection at the end of this one, growing
+	 * the backing array at most once
+	 * 
+	 * @throws NullPointerException if <code>other</code> or any of its elements is
+	 *                              <code>null</code>
+	 */
+	@Override
+	public void addAll(Collection<? extends T> other) {
+		insertAll(other, size);
+	}
+
+	/**
+	 * Inserts all elements of the other collection, in their order, starting at
+	 * the given position. Elements previously at <code>position</code> and after
+	 * it are moved behind the inserted ones. The legal positions are 0 to
+	 * <code>size</code> (both are included)
+	 * 
+	 * @param other    <code>Collection</code> of elements to be inserted
+	 * @param position of the first inserted element
+	 * @throws NullPointerException      if <code>other</code> or any of its
+	 *                                   elements is <code>null</code>
+	 * @throws IndexOutOfBoundsException if position is misused
+	 */
+	public void insertAll(Collection<? extends T> other, int position) {
+		requireNonNull(other, NULL_REF_COLLECTION_MSG);
+		checkIndex(position, size + 1);
+		Object[] inserted = other.toArray();
+		for (var value : inserted)
+			requireNonNull(value, NULL_REF_VAL_MSG);
+
+		ensureCapacity(size + inserted.length);
+		System.arraycopy(elements, position, elements, position + inserted.length, size - position);
+		System.arraycopy(inserted, 0, elements, position, inserted.length);
+		size += inserted.length;
+		modificationCount++;
+	}
+
+	/**
+	 * Removes elements from index <code>fromIndex</code>, inclusive, to index
+	 * <code>toIndex</code>, exclusive. Elements after the range are moved to its
+	 * start
+	 * 
+	 * @param fromIndex index of the first removed element
+	 * @param toIndex   index after the last removed element
+	 * @throws IndexOutOfBoundsException if the range is misused
+	 */
+	public void removeRange(int fromIndex, int toIndex) {
+		checkFromToIndex(fromIndex, toIndex, size);
+		System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+		int newSize = size - (toIndex - fromIndex);
+		Arrays.fill(elements, newSize, size, null);
+		size = newSize;
+		modificationCount++;
+	}
+
+	/**
+	 * Grows the backing array, if needed, so it can hold at least the given number
+	 * of elements without further allocation
+	 * 
+	 * @param minCapacity required capacity
+	 */
+	public void ensureCapacity(int minCapacity) {
+		if (minCapacity > elements.length) {
+			elements = Arrays.copyOf(elements, Math.max(minCapacity, elements.length * 2));
+			modificationCount++;
+		}
+	}
+
+	/** Shrinks the backing array to the current size of the collection */
+	public void trimToSize() {
+		int capacity = Math.max(size, MIN_SIZE);
+		if (capacity < elements.length) {
+			elements = Arrays.copyOf(elements, capacity);
 			modificationCount++;
 		}
 	}
@@ -158,9 +231,8 @@ public class ArrayIndexedCollection<T> implements List<T> {
 	 * @param position starting position
 	 */
 	private void shiftRightFrom(int position) {
-		checkSize();
-		for (int i = size; i > position; i--)
-			elements[i] = elements[i - 1];
+		ensureCapacity(size + 1);
+		System.arraycopy(elements, position, elements, position + 1, size - position);
 		modificationCount++;
 	}
 
@@ -170,12 +242,20 @@ public class ArrayIndexedCollection<T> implements List<T> {
 	 * @param position starting position
 	 */
 	private void shiftLeftFrom(int position) {
-		for (int i = position + 1; i < size; i++)
-			elements[i - 1] = elements[i];
+		System.arraycopy(elements, position + 1, elements, position, size - position - 1);
 		elements[size - 1] = null;
 		modificationCount++;
 	}
 
+	/**
+	 * Creates <code>Spliterator</code> which splits the collection by halving its
+	 * index range, so no elements are copied while splitting
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		return new IndexRangeSpliterator<>(this, 0, size, modificationCount);
+	}
+
 	/**
 	 * Implementation of <code>ElementsGetter</code> for
 	 * <code>ArrayIndexedCollection</code>
@@ -217,4 +297,89 @@ public class ArrayIndexedCollection<T> implements List<T> {
 		}
 	}
 
+	/**
+	 * Implementation of <code>Spliterator</code> for
+	 * <code>ArrayIndexedCollection</code> covering range of indexes
+	 */
+	private static class IndexRangeSpliterator<T> implements Spliterator<T> {
+		private static final int SMALLEST_SPLIT = 2;
+
+		private final ArrayIndexedCollection<T> collection;
+		private final long savedModificationCount;
+		/** Index of the next element */
+		private int index;
+		/** Index behind the last element */
+		private final int fence;
+
+		/**
+		 * Constructor of the spliterator covering indexes from <code>index</code>,
+		 * inclusive, to <code>fence</code>, exclusive
+		 * 
+		 * @param collection             which is traversed
+		 * @param index                  starting index
+		 * @param fence                  ending index
+		 * @param savedModificationCount modification count at creation
+		 */
+		public IndexRangeSpliterator(ArrayIndexedCollection<T> collection, int index, int fence,
+				long savedModificationCount) {
+			this.collection = collection;
+			this.index = index;
+			this.fence = fence;
+			this.savedModificationCount = savedModificationCount;
+		}
+
+		/** @throws ConcurrentModificationException if modification occurred */
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			requireNonNull(action);
+			checkModificationCount();
+			if (index >= fence)
+				return false;
+			action.accept(collection.elements[index++]);
+			return true;
+		}
+
+		/** @throws ConcurrentModificationException if modification occurred */
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			requireNonNull(action);
+			final T[] elements = collection.elements;
+			for (; index < fence; index++) {
+				checkModificationCount();
+				action.accept(elements[index]);
+			}
+			checkModificationCount();
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			int middle = (index + fence) >>> 1;
+			if (fence - index < SMALLEST_SPLIT)
+				return null;
+			var prefix = new IndexRangeSpliterator<>(collection, index, middle, savedModificationCount);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return fence - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL;
+		}
+
+		/**
+		 * Checks whether modification counts match
+		 * 
+		 * @throws ConcurrentModificationException if modification occurred
+		 */
+		private void checkModificationCount() {
+			if (savedModificationCount != collection.modificationCount)
+				throw new ConcurrentModificationException("Unexpected modification while iterating");
+		}
+	}
+
 }
@@ -1,5 +1,10 @@
 package hr.fer.oprpp1.custom.collections;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /** General data structure for storing elements */
 public interface Collection<T> {
 
@@ -99,4 +104,34 @@ public interface Collection<T> {
 				add(value);
 		});
 	}
+
+	/**
+	 * Creates <code>Spliterator</code> over current collection. This default
+	 * implementation traverses an <code>ElementsGetter</code> and splits by
+	 * copying batches of elements into arrays, collections which can be split
+	 * without copying should override it
+	 * 
+	 * @return <code>Spliterator</code> instance
+	 */
+	default Spliterator<T> spliterator() {
+		return Spliterators.spliterator(createElementsGetter().asIterator(), size(), 0);
+	}
+
+	/**
+	 * Creates sequential <code>Stream</code> over current collection
+	 * 
+	 * @return <code>Stream</code> of elements
+	 */
+	default Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Creates possibly parallel <code>Stream</code> over current collection
+	 * 
+	 * @return <code>Stream</code> of elements
+	 */
+	default Stream<T> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
 }
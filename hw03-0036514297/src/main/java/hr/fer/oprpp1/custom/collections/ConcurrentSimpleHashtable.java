@@ -0,0 +1,457 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread safe data structure storing key-value pairs. The table is split into
+ * segments, each guarded by its own lock, so writers only contend when they
+ * touch the same segment. Chains are never modified in place, which lets
+ * readers proceed without any locking. Iterators are weakly consistent: they
+ * never throw <code>ConcurrentModificationException</code> and may or may not
+ * reflect modifications made after their creation
+ *
+ * @param <K> key data type
+ * @param <V> value data type
+ */
+public class ConcurrentSimpleHashtable<K, V> implements Iterable<ConcurrentSimpleHashtable.Entry<K, V>> {
+
+	/** Word with every bit set to one */
+	private final static int ALL_BITS_ONE = -1;
+	/** Default capacity of the hash table */
+	private final static int DEFAULT_CAPACITY = 16;
+	/** Default number of independently locked segments */
+	private final static int DEFAULT_CONCURRENCY_LEVEL = 16;
+	/** Threshold for doubling a segment array */
+	private final static float FULLNESS_THRESHOLD = 0.75f;
+	/** Minimum capacity of the table and minimum concurrency level */
+	private static final int MIN_CAPACITY = 1;
+
+	private static final String INIT_CAP_TOO_SMALL_MSG = "Initial capacity can't be less than " + MIN_CAPACITY;
+	private static final String CONCURRENCY_TOO_SMALL_MSG = "Concurrency level can't be less than " + MIN_CAPACITY;
+	private static final String NULL_REF_KEY_MSG = "Key must not be null reference";
+	private static final String NULL_REF_VAL_MSG = "Value must not be null reference";
+
+	/** Independently locked parts of the table */
+	private final Segment<K, V>[] segments;
+	/** Shift which moves the segment selecting bits of the hash to the bottom */
+	private final int segmentShift;
+
+	/** Constructs the table with default capacity and concurrency level */
+	public ConcurrentSimpleHashtable() {
+		this(DEFAULT_CAPACITY, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Constructs the table with the given capacity and default concurrency level
+	 *
+	 * @param capacity of the table
+	 * @throws IllegalArgumentException if capacity is less then 1
+	 */
+	public ConcurrentSimpleHashtable(int capacity) {
+		this(capacity, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Constructs the table with the given capacity and concurrency level. The
+	 * concurrency level is the number of segments, rounded up to a power of two,
+	 * and should be about the number of threads modifying the table at once
+	 *
+	 * @param capacity         of the table
+	 * @param concurrencyLevel number of segments
+	 * @throws IllegalArgumentException if any argument is less then 1
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentSimpleHashtable(int capacity, int concurrencyLevel) {
+		if (capacity < MIN_CAPACITY)
+			throw new IllegalArgumentException(INIT_CAP_TOO_SMALL_MSG);
+		if (concurrencyLevel < MIN_CAPACITY)
+			throw new IllegalArgumentException(CONCURRENCY_TOO_SMALL_MSG);
+		int segmentCount = powerOfTwoFor(concurrencyLevel);
+		segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+		segments = (Segment<K, V>[]) new Segment[segmentCount];
+		int segmentCapacity = powerOfTwoFor(Math.max(MIN_CAPACITY, capacity / segmentCount));
+		for (int i = 0; i < segmentCount; i++)
+			segments[i] = new Segment<>(segmentCapacity);
+	}
+
+	/**
+	 * Puts a key-value pair into the table. If key already exists it overwrites
+	 * the old value with the new one and returns the old one
+	 *
+	 * @param key   of the pair
+	 * @param value of the pair
+	 * @return old value of the pair, otherwise <code>null</code>
+	 * @throws NullPointerException if the key or the value is <code>null</code>
+	 */
+	public V put(K key, V value) {
+		Objects.requireNonNull(key, NULL_REF_KEY_MSG);
+		Objects.requireNonNull(value, NULL_REF_VAL_MSG);
+		int hash = hash(key);
+		return segmentFor(hash).put(key, hash, value);
+	}
+
+	/**
+	 * Finds the value of a pair with the given key, if it exists. Never blocks
+	 *
+	 * @param key of a pair
+	 * @return value if the key exists, <code>null</code> otherwise
+	 */
+	public V get(Object key) {
+		if (key == null)
+			return null;
+		int hash = hash(key);
+		return segmentFor(hash).get(key, hash);
+	}
+
+	/**
+	 * Queries if the given key is present in the table
+	 *
+	 * @param key to be queried
+	 * @return true if key is present
+	 */
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Queries if the given value is present in the table
+	 *
+	 * @param value to be queried
+	 * @return true if value is present
+	 */
+	public boolean containsValue(Object value) {
+		if (value != null)
+			for (var entry : this)
+				if (entry.value.equals(value))
+					return true;
+		return false;
+	}
+
+	/**
+	 * Removes the pair with the given key, if it exists
+	 *
+	 * @param key of the pair
+	 * @return value of removed pair, <code>null</code> otherwise
+	 */
+	public V remove(Object key) {
+		if (key == null)
+			return null;
+		int hash = hash(key);
+		return segmentFor(hash).remove(key, hash);
+	}
+
+	/**
+	 * Queries the number of stored pairs. Under concurrent modification the result
+	 * is only an estimate
+	 *
+	 * @return the number of stored pairs
+	 */
+	public int size() {
+		int size = 0;
+		for (var segment : segments)
+			size += segment.count;
+		return size;
+	}
+
+	/**
+	 * Queries whether the table is empty
+	 *
+	 * @return <code>true</code> if it is empty
+	 */
+	public boolean isEmpty() {
+		for (var segment : segments)
+			if (segment.count != 0)
+				return false;
+		return true;
+	}
+
+	/** Removes all present pairs in the table, one segment at a time */
+	public void clear() {
+		for (var segment : segments)
+			segment.clear();
+	}
+
+	@Override
+	public Iterator<Entry<K, V>> iterator() {
+		return new WeaklyConsistentIterator();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder().append("[");
+		final var iterator = iterator();
+		if (iterator.hasNext())
+			builder.append(iterator.next());
+		iterator.forEachRemaining((e) -> builder.append(", ").append(e));
+		return builder.append("]").toString();
+	}
+
+	/**
+	 * Rounds the given number up to a power of two
+	 *
+	 * @param number to be rounded
+	 * @return the smallest power of two not less than number
+	 */
+	private static int powerOfTwoFor(int number) {
+		int twoExponent = ALL_BITS_ONE >>> Integer.numberOfLeadingZeros(number - 1);
+		return (twoExponent < 0) ? 1 : twoExponent + 1;
+	}
+
+	/**
+	 * Mixes the bits of the hash code, since both its highest bits (segment) and
+	 * lowest bits (slot) are used
+	 *
+	 * @param key to be hashed
+	 * @return hash of the key
+	 */
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	/**
+	 * Selects the segment responsible for the hash
+	 *
+	 * @param hash of the key
+	 * @return segment holding the key
+	 */
+	private Segment<K, V> segmentFor(int hash) {
+		return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+	}
+
+	/**
+	 * Part of the table guarded by a single lock. Chains are immutable except for
+	 * the values, so a reader which fetched a chain head always sees a consistent
+	 * chain, even if a writer publishes a new one in the meantime
+	 */
+	@SuppressWarnings("serial")
+	private static class Segment<K, V> extends ReentrantLock {
+		/** Array of chain heads, replaced as a whole when resizing */
+		private volatile AtomicReferenceArray<Node<K, V>> table;
+		/** Counts the number of pairs in this segment */
+		private volatile int count;
+
+		public Segment(int capacity) {
+			table = new AtomicReferenceArray<>(capacity);
+		}
+
+		public V get(Object key, int hash) {
+			var tab = table;
+			for (var node = tab.get(hash & (tab.length() - 1)); node != null; node = node.next)
+				if (node.hash == hash && node.key.equals(key))
+					return node.value;
+			return null;
+		}
+
+		public V put(K key, int hash, V value) {
+			lock();
+			try {
+				var tab = table;
+				int slot = hash & (tab.length() - 1);
+				var head = tab.get(slot);
+				for (var node = head; node != null; node = node.next)
+					if (node.hash == hash && node.key.equals(key)) {
+						var oldValue = node.value;
+						node.value = value;
+						return oldValue;
+					}
+
+				if ((float) (count + 1) / tab.length() >= FULLNESS_THRESHOLD) {
+					tab = rehash(tab);
+					slot = hash & (tab.length() - 1);
+					head = tab.get(slot);
+				}
+				tab.set(slot, new Node<>(hash, key, value, head));
+				count++;
+				return null;
+			} finally {
+				unlock();
+			}
+		}
+
+		public V remove(Object key, int hash) {
+			lock();
+			try {
+				var tab = table;
+				int slot = hash & (tab.length() - 1);
+				var head = tab.get(slot);
+				var node = head;
+				while (node != null && !(node.hash == hash && node.key.equals(key)))
+					node = node.next;
+				if (node == null)
+					return null;
+
+				// nodes in front of the removed one are copied, the rest is shared
+				var newHead = node.next;
+				for (var copied = head; copied != node; copied = copied.next)
+					newHead = new Node<>(copied.hash, copied.key, copied.value, newHead);
+				tab.set(slot, newHead);
+				count--;
+				return node.value;
+			} finally {
+				unlock();
+			}
+		}
+
+		public void clear() {
+			lock();
+			try {
+				table = new AtomicReferenceArray<>(table.length());
+				count = 0;
+			} finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * Copies all chains into a doubled array and publishes it. Readers still
+		 * holding the old array keep seeing its unchanged content
+		 *
+		 * @param tab current array
+		 * @return the new array
+		 */
+		private AtomicReferenceArray<Node<K, V>> rehash(AtomicReferenceArray<Node<K, V>> tab) {
+			var newTab = new AtomicReferenceArray<Node<K, V>>(tab.length() << 1);
+			int mask = newTab.length() - 1;
+			for (int i = 0; i < tab.length(); i++)
+				for (var node = tab.get(i); node != null; node = node.next) {
+					int slot = node.hash & mask;
+					newTab.set(slot, new Node<>(node.hash, node.key, node.value, newTab.get(slot)));
+				}
+			table = newTab;
+			return newTab;
+		}
+	}
+
+	/** Element of an immutable chain */
+	private static class Node<K, V> {
+		private final int hash;
+		private final K key;
+		private volatile V value;
+		private final Node<K, V> next;
+
+		public Node(int hash, K key, V value, Node<K, V> next) {
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+	}
+
+	/**
+	 * Implementation of the iterator. Every segment array is read once, at the
+	 * moment the iterator reaches that segment
+	 */
+	private class WeaklyConsistentIterator implements Iterator<Entry<K, V>> {
+		private static final String ILLEGAL_REMOVE = "Illegal remove call while iterating";
+		/** Index of the currently iterated segment */
+		private int segmentIndex = -1;
+		/** Array of the currently iterated segment */
+		private AtomicReferenceArray<Node<K, V>> tab;
+		/** Current index of the segment array */
+		private int index;
+		/** Next node to be returned */
+		private Node<K, V> node;
+		/** Key of the last returned entry */
+		private K lastReturned;
+
+		/** Default constructor */
+		public WeaklyConsistentIterator() {
+			advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return node != null;
+		}
+
+		/** @throws NoSuchElementException if there is no next element */
+		@Override
+		public Entry<K, V> next() {
+			if (node == null)
+				throw new NoSuchElementException("No next element for iteration");
+			var entry = new Entry<>(ConcurrentSimpleHashtable.this, node.key, node.value);
+			lastReturned = node.key;
+			node = node.next;
+			if (node == null)
+				advance();
+			return entry;
+		}
+
+		/** @throws IllegalStateException if remove was inappropriately called */
+		@Override
+		public void remove() {
+			if (lastReturned == null)
+				throw new IllegalStateException(ILLEGAL_REMOVE);
+			ConcurrentSimpleHashtable.this.remove(lastReturned);
+			lastReturned = null;
+		}
+
+		/** Sets the node field to the next chain head, moving across segments */
+		private void advance() {
+			while (true) {
+				if (tab != null)
+					while (++index < tab.length())
+						if ((node = tab.get(index)) != null)
+							return;
+				if (++segmentIndex == segments.length) {
+					node = null;
+					return;
+				}
+				tab = segments[segmentIndex].table;
+				index = -1;
+			}
+		}
+	}
+
+	/**
+	 * Snapshot of a stored key-value pair. Setting its value writes through to the
+	 * table
+	 *
+	 * @param <K> key type
+	 * @param <V> value type
+	 */
+	public static class Entry<K, V> {
+		private final ConcurrentSimpleHashtable<K, V> table;
+		private final K key;
+		private V value;
+
+		private Entry(ConcurrentSimpleHashtable<K, V> table, K key, V value) {
+			this.table = table;
+			this.key = key;
+			this.value = value;
+		}
+
+		/** key getter */
+		public K getKey() {
+			return key;
+		}
+
+		/** value getter */
+		public V getValue() {
+			return value;
+		}
+
+		/**
+		 * value setter, also puts the new value into the table
+		 *
+		 * @throws NullPointerException if the value is <code>null</code>
+		 */
+		public void setValue(V value) {
+			table.put(key, value);
+			this.value = value;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s=%s", key, value);
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.function.DoubleConsumer;
+
+import static java.util.Objects.checkFromToIndex;
+import static java.util.Objects.checkIndex;
+
+/**
+ * Indexed collection of <code>double</code> values stored in a primitive array.
+ * Unlike <code>ArrayIndexedCollection&lt;Double&gt;</code> no object is
+ * allocated per element
+ */
+public class DoubleArrayIndexedCollection {
+	/** Default capacity of the collection */
+	private static final int DEFAULT_CAPACITY = 16;
+	/** Minimum size of array */
+	private static final int MIN_SIZE = 1;
+	private static final String INIT_CAP_TOO_SMALL_MSG = "Initial capacity can't be less than " + MIN_SIZE;
+
+	/** Current size of collection */
+	private int size;
+	/** An array storing elements */
+	private double[] elements;
+	/** Keeps track of modifications performed */
+	private long modificationCount;
+
+	/** Default constructor */
+	public DoubleArrayIndexedCollection() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor with initial capacity of the internal array
+	 * 
+	 * @param initialCapacity of the internal array
+	 * @throws IllegalArgumentException if <code>initialCapacity</code> is less than
+	 *                                  1
+	 */
+	public DoubleArrayIndexedCollection(int initialCapacity) {
+		if (initialCapacity < MIN_SIZE)
+			throw new IllegalArgumentException(INIT_CAP_TOO_SMALL_MSG);
+		elements = new double[initialCapacity];
+	}
+
+	/**
+	 * Returns true if collection contains no values and false otherwise
+	 * 
+	 * @return boolean state
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * The number of currently stored values in this collection
+	 * 
+	 * @return number of stored values
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds the given value at the end of the collection
+	 * 
+	 * @param value to be added
+	 */
+	public void add(double value) {
+		ensureCapacity(size + 1);
+		elements[size++] = value;
+		modificationCount++;
+	}
+
+	/**
+	 * Returns the value stored at given index
+	 * 
+	 * @param index of the value
+	 * @return value at the index
+	 * @throws IndexOutOfBoundsException if <code>index</code> is misused
+	 */
+	public double get(int index) {
+		return elements[checkIndex(index, size)];
+	}
+
+	/**
+	 * Replaces the value stored at given index
+	 * 
+	 * @param index of the value
+	 * @param value to be stored
+	 * @return previously stored value
+	 * @throws IndexOutOfBoundsException if <code>index</code> is misused
+	 */
+	public double set(int index, double value) {
+		var old = elements[checkIndex(index, size)];
+		elements[index] = value;
+		return old;
+	}
+
+	/**
+	 * Inserts the value at given position, shifting later values to the right
+	 * 
+	 * @param value    to be inserted
+	 * @param position to be inserted at
+	 * @throws IndexOutOfBoundsException if <code>position</code> is misused
+	 */
+	public void insert(double value, int position) {
+		checkIndex(position, size + 1);
+		ensureCapacity(size + 1);
+		System.arraycopy(elements, position, elements, position + 1, size - position);
+		elements[position] = value;
+		size++;
+		modificationCount++;
+	}
+
+	/**
+	 * Searches the collection for the first occurrence of the value. Values are
+	 * compared the way <code>Double.equals</code> compares them
+	 * 
+	 * @param value to be searched
+	 * @return its index, <code>List.VALUE_NOT_FOUND</code> if not present
+	 */
+	public int indexOf(double value) {
+		for (int i = 0; i < size; i++)
+			if (Double.doubleToLongBits(elements[i]) == Double.doubleToLongBits(value))
+				return i;
+		return List.VALUE_NOT_FOUND;
+	}
+
+	/**
+	 * Checks whether the collection contains the value
+	 * 
+	 * @param value to be searched
+	 * @return <code>boolean</code> indicating truth of the statement
+	 */
+	public boolean contains(double value) {
+		return indexOf(value) != List.VALUE_NOT_FOUND;
+	}
+
+	/**
+	 * Removes the value at given index, shifting later values to the left
+	 * 
+	 * @param index of the value
+	 * @return removed value
+	 * @throws IndexOutOfBoundsException if <code>index</code> is misused
+	 */
+	public double remove(int index) {
+		var removed = elements[checkIndex(index, size)];
+		System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+		size--;
+		modificationCount++;
+		return removed;
+	}
+
+	/**
+	 * Removes the first occurrence of the value
+	 * 
+	 * @param value to be removed
+	 * @return <code>true</code> if the value was present
+	 */
+	public boolean removeValue(double value) {
+		int index = indexOf(value);
+		if (index == List.VALUE_NOT_FOUND)
+			return false;
+		remove(index);
+		return true;
+	}
+
+	/**
+	 * Removes the last value of the collection
+	 * 
+	 * @return removed value
+	 * @throws IndexOutOfBoundsException if the collection is empty
+	 */
+	public double removeLast() {
+		var removed = elements[checkIndex(size - 1, size)];
+		size--;
+		modificationCount++;
+		return removed;
+	}
+
+	/**
+	 * Removes values from index <code>fromIndex</code>, inclusive, to index
+	 * <code>toIndex</code>, exclusive
+	 * 
+	 * @param fromIndex index of the first removed value
+	 * @param toIndex   index behind the last removed value
+	 * @throws IndexOutOfBoundsException if the range is misused
+	 */
+	public void removeRange(int fromIndex, int toIndex) {
+		checkFromToIndex(fromIndex, toIndex, size);
+		System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+		size -= toIndex - fromIndex;
+		modificationCount++;
+	}
+
+	/** Removes all values from the collection */
+	public void clear() {
+		size = 0;
+		modificationCount++;
+	}
+
+	/**
+	 * Copies stored values into a new array
+	 * 
+	 * @return array of values
+	 */
+	public double[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+
+	/**
+	 * Applies the action on every value in order of their indexes
+	 * 
+	 * @param action applied on values
+	 * @throws ConcurrentModificationException if the action modifies the
+	 *                                         collection
+	 */
+	public void forEach(DoubleConsumer action) {
+		final long savedModificationCount = modificationCount;
+		for (int i = 0; i < size; i++) {
+			action.accept(elements[i]);
+			if (savedModificationCount != modificationCount)
+				throw new ConcurrentModificationException("Unexpected modification while iterating");
+		}
+	}
+
+	/**
+	 * Makes sure the internal array can hold at least the given number of values
+	 * without further allocation
+	 * 
+	 * @param minCapacity required capacity
+	 */
+	public void ensureCapacity(int minCapacity) {
+		if (minCapacity > elements.length)
+			elements = Arrays.copyOf(elements, Math.max(minCapacity, elements.length * 2));
+	}
+
+	/** Shrinks the internal array to the current size */
+	public void trimToSize() {
+		int capacity = Math.max(size, MIN_SIZE);
+		if (capacity < elements.length)
+			elements = Arrays.copyOf(elements, capacity);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
@@ -1,5 +1,7 @@
 package hr.fer.oprpp1.custom.collections;
 
+import java.util.Iterator;
+
 /** Interface that defines behavior of iterating over elements of collection */
 public interface ElementsGetter<T> {
 	/**
@@ -28,4 +30,23 @@ public interface ElementsGetter<T> {
 		while (hasNextElement())
 			p.process(getNextElement());
 	}
+
+	/**
+	 * Method that adapts remaining elements to an <code>Iterator</code>
+	 * 
+	 * @return <code>Iterator</code> backed by this getter
+	 */
+	default Iterator<T> asIterator() {
+		return new Iterator<T>() {
+			@Override
+			public boolean hasNext() {
+				return hasNextElement();
+			}
+
+			@Override
+			public T next() {
+				return getNextElement();
+			}
+		};
+	}
 }
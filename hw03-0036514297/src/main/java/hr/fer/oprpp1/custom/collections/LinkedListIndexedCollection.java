@@ -19,6 +19,10 @@ public class LinkedListIndexedCollection<T> implements List<T> {
 	private ListNode<T> last;
 	/** Keeps track of modifications performed */
 	private long modificationCount;
+	/** Node which was accessed by index most recently, <code>null</code> if none */
+	private ListNode<T> finger;
+	/** Index of the <code>finger</code> node */
+	private int fingerIndex;
 
 	/** Default constructor */
 	public LinkedListIndexedCollection() {
@@ -54,6 +58,7 @@ public class LinkedListIndexedCollection<T> implements List<T> {
 	public void clear() {
 		first = null;
 		last = null;
+		finger = null;
 		size = 0;
 		modificationCount++;
 	}
@@ -85,7 +90,7 @@ public class LinkedListIndexedCollection<T> implements List<T> {
 
 	@Override
 	public void remove(int index) {
-		removeNode(getNode(checkIndex(index, size)));
+		removeNode(getNode(checkIndex(index, size)), index);
 	}
 
 	@Override
@@ -155,6 +160,8 @@ public class LinkedListIndexedCollection<T> implements List<T> {
 		else
 			first.previous = element;
 		first = element;
+		if (finger != null)
+			fingerIndex++;
 		size++;
 		modificationCount++;
 	}
@@ -171,41 +178,65 @@ public class LinkedListIndexedCollection<T> implements List<T> {
 		var inserted = new ListNode<T>(node.previous, node, value);
 		node.previous.next = inserted;
 		node.previous = inserted;
+		finger = inserted;
+		fingerIndex = position;
 		size++;
 		modificationCount++;
 	}
 
 	/**
-	 * Retrieve the node at given index
+	 * Retrieve the node at given index. The walk starts from whichever of the
+	 * first node, the last node and the <code>finger</code> is the closest, so
+	 * accessing neighbouring indexes one after another takes constant time
 	 * 
 	 * @param index at which node is found
 	 * @return node to be retrieved
 	 */
 	private ListNode<T> getNode(int index) {
-		ListNode<T> node;
-		if (index <= size / 2) {
-			node = first;
-			for (int i = 0; i < index; i++)
-				node = node.next;
-		} else {
+		ListNode<T> node = first;
+		int nodeIndex = 0;
+		if (size - 1 - index < index) {
 			node = last;
-			for (int i = size; i > index; i--)
-				node = node.previous;
+			nodeIndex = size - 1;
+		}
+		if (finger != null && Math.abs(fingerIndex - index) < Math.abs(nodeIndex - index)) {
+			node = finger;
+			nodeIndex = fingerIndex;
 		}
+
+		for (; nodeIndex < index; nodeIndex++)
+			node = node.next;
+		for (; nodeIndex > index; nodeIndex--)
+			node = node.previous;
+
+		finger = node;
+		fingerIndex = index;
 		return node;
 	}
 
 	/**
 	 * Remove node from linked list
 	 * 
-	 * @param node to be removed
+	 * @param node  to be removed
+	 * @param index of the node
 	 */
-	private void removeNode(ListNode<T> node) {
+	private void removeNode(ListNode<T> node, int index) {
 		if (size == 1) {
 			clear();
 			return;
 		}
 
+		if (finger == node) {
+			if (node.next != null) {
+				finger = node.next;
+			} else {
+				finger = node.previous;
+				fingerIndex--;
+			}
+		} else if (finger != null && fingerIndex > index) {
+			fingerIndex--;
+		}
+
 		if (node == first) {
 			node.next.previous = null;
 			first = node.next;
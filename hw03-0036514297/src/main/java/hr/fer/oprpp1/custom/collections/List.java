@@ -1,5 +1,8 @@
 package hr.fer.oprpp1.custom.collections;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+
 public interface List<T> extends Collection<T> {
 	/** Constant indicating no presence of value */
 	static final int VALUE_NOT_FOUND = -1;
@@ -43,4 +46,10 @@ public interface List<T> extends Collection<T> {
 	 * @throws IndexOutOfBoundsException if <code>index</code> is misused
 	 */
 	void remove(int index);
+
+	/** Elements of a list are reported in the order of their indexes */
+	@Override
+	default Spliterator<T> spliterator() {
+		return Spliterators.spliterator(createElementsGetter().asIterator(), size(), Spliterator.ORDERED);
+	}
 }
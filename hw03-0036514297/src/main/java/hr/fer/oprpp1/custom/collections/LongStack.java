@@ -0,0 +1,71 @@
+package hr.fer.oprpp1.custom.collections;
+
+/**
+ * Stack of <code>long</code> values which, unlike <code>ObjectStack</code>,
+ * doesn't box them
+ */
+public class LongStack {
+	/** Array adapted for internal storage of stack */
+	private LongArrayIndexedCollection internal;
+
+	/** Default constructor */
+	public LongStack() {
+		internal = new LongArrayIndexedCollection();
+	}
+
+	/**
+	 * Returns true if stack contains no values and false otherwise
+	 * 
+	 * @return boolean state
+	 */
+	public boolean isEmpty() {
+		return internal.isEmpty();
+	}
+
+	/**
+	 * The number of currently stored values on this stack
+	 * 
+	 * @return number of stored values
+	 */
+	public int size() {
+		return internal.size();
+	}
+
+	/**
+	 * Pushes given value on the stack
+	 * 
+	 * @param value to be pushed
+	 */
+	public void push(long value) {
+		internal.add(value);
+	}
+
+	/**
+	 * Removes last value pushed on stack from stack and returns it
+	 * 
+	 * @return value from the top of the stack
+	 * @throws EmptyStackException if used when stack is empty
+	 */
+	public long pop() {
+		if (isEmpty())
+			throw new EmptyStackException();
+		return internal.removeLast();
+	}
+
+	/**
+	 * Returns last value placed on stack but does not delete it from stack
+	 * 
+	 * @return value from the top of the stack
+	 * @throws EmptyStackException if used when stack is empty
+	 */
+	public long peek() {
+		if (isEmpty())
+			throw new EmptyStackException();
+		return internal.get(internal.size() - 1);
+	}
+
+	/** Removes all values from stack */
+	public void clear() {
+		internal.clear();
+	}
+}
@@ -0,0 +1,387 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Data structure storing key-value pairs in two parallel arrays. Collisions are
+ * resolved with linear probing and deletions use backward shifting, so no
+ * per-pair objects nor tombstones are ever allocated
+ *
+ * @param <K> key data type
+ * @param <V> value data type
+ */
+public class OpenAddressingHashtable<K, V> implements Iterable<OpenAddressingHashtable.Entry<K, V>> {
+
+	/** Word with every bit set to one */
+	private final static int ALL_BITS_ONE = -1;
+	/** Default capacity of the hash table */
+	private final static int DEFAULT_CAPACITY = 16;
+	/** Threshold for doubling the arrays */
+	private final static float FULLNESS_THRESHOLD = 0.75f;
+	/** Minimum capacity of the table */
+	private static final int MIN_CAPACITY = 1;
+
+	private static final String INIT_CAP_TOO_SMALL_MSG = "Initial capacity can't be less than " + MIN_CAPACITY;
+	private static final String NULL_REF_KEY_MSG = "Key must not be null reference";
+
+	/** Array storing keys, <code>null</code> marks an empty slot */
+	private Object[] keys;
+	/** Array storing values on the same index as their keys */
+	private Object[] values;
+	/** Counts the number of present pairs */
+	private int size;
+	/** Counts modifications done on hash table */
+	private long modificationCount = 0;
+
+	/** Constructs the table with default capacity */
+	public OpenAddressingHashtable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs the table with the given capacity
+	 *
+	 * @param capacity of the table
+	 * @throws IllegalArgumentException if capacity is less then 1
+	 */
+	public OpenAddressingHashtable(int capacity) {
+		if (capacity < MIN_CAPACITY)
+			throw new IllegalArgumentException(INIT_CAP_TOO_SMALL_MSG);
+		int twoExponent = ALL_BITS_ONE >>> Integer.numberOfLeadingZeros(capacity - 1);
+		twoExponent = (twoExponent < 0) ? 1 : twoExponent + 1;
+		keys = new Object[twoExponent];
+		values = new Object[twoExponent];
+	}
+
+	/**
+	 * Puts a key-value pair into the table. If key already exists it overwrites the
+	 * old value with the new one and returns the old one
+	 *
+	 * @param key   of the pair
+	 * @param value of the pair
+	 * @return old value of the pair, otherwise <code>null</code>
+	 * @throws NullPointerException if the key is <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(K key, V value) {
+		Objects.requireNonNull(key, NULL_REF_KEY_MSG);
+		int slot = slotFor(key);
+		if (keys[slot] != null) {
+			var oldValue = (V) values[slot];
+			values[slot] = value;
+			modificationCount++;
+			return oldValue;
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		modificationCount++;
+		if ((float) size / keys.length >= FULLNESS_THRESHOLD)
+			reallocateTable();
+		return null;
+	}
+
+	/**
+	 * Finds the value of a pair with the given key, if it exists
+	 *
+	 * @param key of a pair
+	 * @return value if the key exists, <code>null</code> otherwise
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		if (key == null)
+			return null;
+		int slot = slotFor(key);
+		return keys[slot] == null ? null : (V) values[slot];
+	}
+
+	/**
+	 * Queries the number of stored pairs
+	 *
+	 * @return the number of stored pairs
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Queries if the given key is present in the table
+	 *
+	 * @param key to be queried
+	 * @return true if key is present
+	 */
+	public boolean containsKey(Object key) {
+		return key != null && keys[slotFor(key)] != null;
+	}
+
+	/**
+	 * Queries if the given value is present in the table
+	 *
+	 * @param value to be queried
+	 * @return true if value is present
+	 */
+	public boolean containsValue(Object value) {
+		for (int i = 0; i < keys.length; i++)
+			if (keys[i] != null && Objects.equals(values[i], value))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Removes the pair with the given key, if it exists
+	 *
+	 * @param key of the pair
+	 * @return value of removed pair, <code>null</code> otherwise
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		if (key == null)
+			return null;
+		int slot = slotFor(key);
+		if (keys[slot] == null)
+			return null;
+		var oldValue = (V) values[slot];
+		deleteSlot(slot);
+		modificationCount++;
+		return oldValue;
+	}
+
+	/**
+	 * Queries whether the table is empty
+	 *
+	 * @return <code>true</code> if it is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Removes all present pairs in the table */
+	public void clear() {
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		size = 0;
+		modificationCount++;
+	}
+
+	@Override
+	public Iterator<Entry<K, V>> iterator() {
+		return new OpenAddressingIterator();
+	}
+
+	@Override
+	public String toString() {
+		if (isEmpty())
+			return "[]";
+		final StringBuilder builder = new StringBuilder().append("[");
+		final var iterator = iterator();
+		builder.append(iterator.next());
+		iterator.forEachRemaining((e) -> builder.append(", ").append(e));
+		return builder.append("]").toString();
+	}
+
+	/**
+	 * Spreads the higher bits of the hash code into the lower ones. Linear probing
+	 * is very sensitive to clustering, so only masking the hash code isn't enough
+	 *
+	 * @param key to be hashed
+	 * @return hash of the key
+	 */
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Probes the table starting from the home slot of the key until it finds the
+	 * key or an empty slot
+	 *
+	 * @param key to be searched
+	 * @return slot containing the key, or the empty slot where it would be placed
+	 */
+	private int slotFor(Object key) {
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		for (Object k = keys[slot]; k != null && !k.equals(key); k = keys[slot])
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	/**
+	 * Empties the given slot and shifts back all following pairs of the same
+	 * cluster which would become unreachable
+	 *
+	 * @param slot to be emptied
+	 */
+	private void deleteSlot(int slot) {
+		int mask = keys.length - 1;
+		int hole = slot;
+		for (int next = (hole + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+			int home = hash(keys[next]) & mask;
+			// pair can fill the hole only if its home slot isn't cyclically in (hole, next]
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+		}
+		keys[hole] = null;
+		values[hole] = null;
+		size--;
+	}
+
+	/** Reallocates the arrays, doubling their size */
+	private void reallocateTable() {
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new Object[oldKeys.length << 1];
+		values = new Object[oldKeys.length << 1];
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldKeys[i] != null) {
+				int slot = slotFor(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+	}
+
+	/**
+	 * Implementation of the iterator. Iteration starts right after an empty slot,
+	 * so no cluster wraps around its end. Backward shifting done by
+	 * <code>remove</code> then only moves pairs that weren't visited yet
+	 */
+	private class OpenAddressingIterator implements Iterator<Entry<K, V>> {
+		private static final String ILLEGAL_REMOVE = "Illegal remove call while iterating";
+		/** Modification count used to detect concurrent modification */
+		private long savedModificationCount;
+		/** Slot after which the iteration starts */
+		private final int start;
+		/** Number of slots which are already visited */
+		private int visited;
+		/** Slot of the next entry, <code>-1</code> if there is none */
+		private int nextSlot;
+		/** Slot of the last returned entry, <code>-1</code> if it can't be removed */
+		private int lastReturned = -1;
+		/** Number of slots visited before the last returned entry */
+		private int lastReturnedVisited;
+
+		/** Default constructor */
+		public OpenAddressingIterator() {
+			savedModificationCount = modificationCount;
+			int emptySlot = 0;
+			while (keys[emptySlot] != null)
+				emptySlot++;
+			start = emptySlot;
+			assignNextSlot();
+		}
+
+		/** @throws ConcurrentModificationException unexpected modification occurred */
+		@Override
+		public boolean hasNext() {
+			checkModificationCount();
+			return nextSlot != -1;
+		}
+
+		/**
+		 * @throws ConcurrentModificationException unexpected modification occurred
+		 * @throws NoSuchElementException          if there is no next element
+		 */
+		@Override
+		@SuppressWarnings("unchecked")
+		public Entry<K, V> next() {
+			if (!hasNext())
+				throw new NoSuchElementException("No next element for iteration");
+			lastReturned = nextSlot;
+			lastReturnedVisited = visited++;
+			assignNextSlot();
+			return new Entry<>(OpenAddressingHashtable.this, (K) keys[lastReturned], (V) values[lastReturned]);
+		}
+
+		/**
+		 * @throws IllegalStateException           if remove was inappropriately called
+		 * @throws ConcurrentModificationException if unexpected modification occurred
+		 */
+		@Override
+		public void remove() {
+			checkModificationCount();
+			if (lastReturned == -1)
+				throw new IllegalStateException(ILLEGAL_REMOVE);
+			deleteSlot(lastReturned);
+			modificationCount++;
+			savedModificationCount++;
+			// slot of the removed pair may now hold a pair that wasn't visited yet
+			visited = lastReturnedVisited;
+			lastReturned = -1;
+			assignNextSlot();
+		}
+
+		/**
+		 * Checks whether modification counts match
+		 *
+		 * @throws ConcurrentModificationException if unexpected modification occurred
+		 */
+		private void checkModificationCount() {
+			if (savedModificationCount != modificationCount)
+				throw new ConcurrentModificationException("Unexpected modification occured while iterating");
+		}
+
+		/** Sets the <code>nextSlot</code> field to the next occupied slot */
+		private void assignNextSlot() {
+			int mask = keys.length - 1;
+			for (; visited < keys.length; visited++) {
+				int slot = (start + 1 + visited) & mask;
+				if (keys[slot] != null) {
+					nextSlot = slot;
+					return;
+				}
+			}
+			nextSlot = -1;
+		}
+	}
+
+	/**
+	 * Stored key-value pair as it was when the iterator returned it. It doesn't
+	 * change when the table is modified afterwards, while setting its value also
+	 * writes through to the pair with its key, if the table still has one
+	 *
+	 * @param <K> key type
+	 * @param <V> value type
+	 */
+	public static class Entry<K, V> {
+		private final OpenAddressingHashtable<K, V> table;
+		private final K key;
+		private V value;
+
+		private Entry(OpenAddressingHashtable<K, V> table, K key, V value) {
+			this.table = table;
+			this.key = key;
+			this.value = value;
+		}
+
+		/** key getter */
+		public K getKey() {
+			return key;
+		}
+
+		/** value getter */
+		public V getValue() {
+			return value;
+		}
+
+		/** value setter */
+		public void setValue(V value) {
+			this.value = value;
+			int slot = table.slotFor(key);
+			if (table.keys[slot] != null)
+				table.values[slot] = value;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s=%s", key, value);
+		}
+	}
+}
@@ -5,9 +5,15 @@ import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * Data structure storing key-value pairs
+ * Data structure storing key-value pairs. Chains that grow too long are
+ * converted into balanced trees, so lookups stay logarithmic even when many
+ * keys share the same slot
  * 
  * @param <K> key data type
  * @param <V> value data type
@@ -22,16 +28,36 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	private final static float FULLNESS_THRESHOLD = 0.75f;
 	/** Minimum capacity of the table */
 	private static final int MIN_CAPACITY = 1;
+	/** Number of old table slots migrated by each modification while resizing */
+	private static final int MIGRATION_STEP = 4;
+	/** Chain length at which a chain is converted into a tree */
+	private static final int TREEIFY_THRESHOLD = 8;
+	/** Tree size at which a tree is used as a plain chain again */
+	private static final int UNTREEIFY_THRESHOLD = 6;
+	/** Smallest table in which chains are treeified, smaller ones are resized instead */
+	private static final int MIN_TREEIFY_CAPACITY = 64;
 
 	private static final String INIT_CAP_TOO_SMALL_MSG = "Initial capacity can't be less than " + MIN_CAPACITY;
 	private static final String NULL_REF_KEY_MSG = "Key must not be null reference";
 
 	/** Array storing <code>TableEntry</code> pairs */
 	private TableEntry<K, V>[] table;
+	/** Tree roots of treeified <code>table</code> slots, allocated on demand */
+	private TreeNode<K, V>[] roots;
+	/** Array which is being migrated into <code>table</code>, if there is one */
+	private TableEntry<K, V>[] oldTable;
+	/** Tree roots of treeified <code>oldTable</code> slots */
+	private TreeNode<K, V>[] oldRoots;
+	/** Number of leading <code>oldTable</code> slots already migrated */
+	private int migratedSlots;
+	/** Whether the table is resized incrementally */
+	private final boolean incrementalResize;
 	/** Counts the number of present pairs */
 	private int size;
 	/** Counts modifications done on hash table */
 	private long modificationCount = 0;
+	/** Source of tree node sequence numbers, used to order nodes with equal keys */
+	private long treeSequence = 0;
 
 	/** Constructs the table with default capacity */
 	public SimpleHashtable() {
@@ -44,8 +70,23 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	 * @param capacity of the table
 	 * @throws IllegalArgumentException if capacity is less then 1
 	 */
-	@SuppressWarnings("unchecked")
 	public SimpleHashtable(int capacity) {
+		this(capacity, false);
+	}
+
+	/**
+	 * Constructs the table with the given capacity and resize mode. When resizing
+	 * incrementally, the doubled array is allocated at once, but pairs are moved
+	 * into it a few slots at a time by each following <code>put</code> and
+	 * <code>remove</code>, so no single call has to rehash the whole table
+	 * 
+	 * @param capacity          of the table
+	 * @param incrementalResize <code>true</code> for incremental resizing
+	 * @throws IllegalArgumentException if capacity is less then 1
+	 */
+	@SuppressWarnings("unchecked")
+	public SimpleHashtable(int capacity, boolean incrementalResize) {
+		this.incrementalResize = incrementalResize;
 		if (capacity < MIN_CAPACITY)
 			throw new IllegalArgumentException(INIT_CAP_TOO_SMALL_MSG);
 		int twoExponent = ALL_BITS_ONE >>> Integer.numberOfLeadingZeros(capacity - 1);
@@ -64,12 +105,11 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	 */
 	public V put(K key, V value) {
 		Objects.requireNonNull(key, NULL_REF_KEY_MSG);
+		migrateStep();
+		int oldSize = size;
 		V oldValue = insert(key, value);
-		if (oldValue == null) {
-			size++;
-			if ((float) size / table.length >= FULLNESS_THRESHOLD)
-				reallocateTable();
-		}
+		if (size != oldSize && ((float) size / table.length >= FULLNESS_THRESHOLD || isTooSmallToTreeify(key)))
+			reallocateTable();
 		modificationCount++;
 		return oldValue;
 	}
@@ -126,24 +166,11 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	public V remove(Object key) {
 		if (key == null)
 			return null;
-
-		var entry = table[slotFor(key)];
-		var prevEntry = entry;
-		while (entry != null && !entry.key.equals(key)) {
-			prevEntry = entry;
-			entry = entry.next;
-		}
-
-		if (entry == null)
-			return null;
-
-		var oldValue = entry.value;
-		if (entry != prevEntry)
-			prevEntry.next = entry.next;
-		else
-			table[slotFor(key)] = entry.next;
-		size--;
-		modificationCount++;
+		int oldSize = size;
+		V oldValue = removeEntry(key);
+		// migrating relinks entries under live iterators, so only a removal may do it
+		if (size != oldSize)
+			migrateStep();
 		return oldValue;
 	}
 
@@ -173,6 +200,10 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	/** Removes all present pairs in the table */
 	public void clear() {
 		Arrays.fill(table, null);
+		roots = null;
+		oldTable = null;
+		oldRoots = null;
+		migratedSlots = 0;
 		size = 0;
 		modificationCount++;
 	}
@@ -182,6 +213,37 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		return new SimpleHashtableIterator();
 	}
 
+	/**
+	 * Creates <code>Spliterator</code> which splits the table by ranges of slots.
+	 * While resizing, slots of <code>oldTable</code> which aren't migrated yet
+	 * precede slots of <code>table</code>
+	 */
+	@Override
+	public Spliterator<TableEntry<K, V>> spliterator() {
+		if (oldTable == null)
+			return new SlotRangeSpliterator(null, table, 0, table.length, size, modificationCount);
+		return new SlotRangeSpliterator(oldTable, table, migratedSlots, oldTable.length + table.length, size,
+				modificationCount);
+	}
+
+	/**
+	 * Creates sequential <code>Stream</code> of pairs in the table
+	 * 
+	 * @return <code>Stream</code> of pairs
+	 */
+	public Stream<TableEntry<K, V>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Creates possibly parallel <code>Stream</code> of pairs in the table
+	 * 
+	 * @return <code>Stream</code> of pairs
+	 */
+	public Stream<TableEntry<K, V>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
 	@Override
 	public String toString() {
 		if (isEmpty())
@@ -193,16 +255,88 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		return builder.append("]").toString();
 	}
 
+	/**
+	 * Removes the pair with the given key without advancing the migration, so that
+	 * iterators can use it without having their position invalidated
+	 * 
+	 * @param key of the Pair
+	 * @return value of removed Pair, <code>null</code> otherwise
+	 */
+	private V removeEntry(Object key) {
+		var array = tableFor(key);
+		int hash = hash(key);
+		int slot = hash & (array.length - 1);
+		var trees = rootsOf(array);
+		if (trees != null && trees[slot] != null)
+			return removeFromTree(array, trees, slot, hash, key);
+
+		var entry = array[slot];
+		var prevEntry = entry;
+		while (entry != null && !entry.key.equals(key)) {
+			prevEntry = entry;
+			entry = entry.next;
+		}
+
+		if (entry == null)
+			return null;
+
+		var oldValue = entry.value;
+		if (entry != prevEntry)
+			prevEntry.next = entry.next;
+		else
+			array[slot] = entry.next;
+		size--;
+		modificationCount++;
+		return oldValue;
+	}
+
+	/**
+	 * Spreads the higher bits of the hash code into the lower ones. Only the lower
+	 * bits select the slot, so keys whose hash codes differ just in the higher
+	 * bits would otherwise all share the same chain
+	 * 
+	 * @param key to be hashed
+	 * @return hash of the key
+	 */
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
 	/**
 	 * Calculates the slot for a given key. Since the capacity is a power of two,
 	 * modulo operation can be significantly more efficiently implemented by reading
 	 * all the bits behind the one which is present in size
 	 * 
-	 * @param key witches slot is calculated
+	 * @param key   witches slot is calculated
+	 * @param array for which the slot is calculated
 	 * @return slot where it is stored
 	 */
-	private int slotFor(Object key) {
-		return key.hashCode() & (table.length - 1);
+	private static int slotFor(Object key, TableEntry<?, ?>[] array) {
+		return hash(key) & (array.length - 1);
+	}
+
+	/**
+	 * Finds the array holding the key. While resizing, keys whose slots in
+	 * <code>oldTable</code> aren't migrated yet are still kept there
+	 * 
+	 * @param key to be searched
+	 * @return array where the key is or would be stored
+	 */
+	private TableEntry<K, V>[] tableFor(Object key) {
+		if (oldTable != null && slotFor(key, oldTable) >= migratedSlots)
+			return oldTable;
+		return table;
+	}
+
+	/**
+	 * Finds the tree roots belonging to the array
+	 * 
+	 * @param array either <code>table</code> or <code>oldTable</code>
+	 * @return its tree roots, <code>null</code> if none of its slots is treeified
+	 */
+	private TreeNode<K, V>[] rootsOf(TableEntry<K, V>[] array) {
+		return array == table ? roots : oldRoots;
 	}
 
 	/**
@@ -212,31 +346,48 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	 * @return pair containing the key
 	 */
 	private TableEntry<K, V> queryKey(Object key) {
-		if (key != null)
-			for (var entry = table[slotFor(key)]; entry != null; entry = entry.next)
-				if (entry.key.equals(key))
-					return entry;
+		if (key == null)
+			return null;
+		var array = tableFor(key);
+		int hash = hash(key);
+		int slot = hash & (array.length - 1);
+		var trees = rootsOf(array);
+		if (trees != null && trees[slot] != null)
+			return findInTree(trees[slot], hash, key);
+		for (var entry = array[slot]; entry != null; entry = entry.next)
+			if (entry.key.equals(key))
+				return entry;
 		return null;
 	}
 
 	/**
 	 * Inserts the given key-value pair. If the key is present, it overwrites the
-	 * old value with the new one
+	 * old value with the new one, otherwise it increments the size
 	 * 
 	 * @param key   of the pair
 	 * @param value of the pair
 	 * @return old value if it was present, <code>null</code> otherwise
 	 */
 	private V insert(K key, V value) {
-		var entry = table[slotFor(key)];
+		var array = tableFor(key);
+		int hash = hash(key);
+		int slot = hash & (array.length - 1);
+		var trees = rootsOf(array);
+		if (trees != null && trees[slot] != null)
+			return insertIntoTree(array, trees, slot, hash, key, value);
+
+		var entry = array[slot];
 		if (entry == null) {
-			table[slotFor(key)] = new TableEntry<>(key, value, null);
+			array[slot] = new TableEntry<>(key, value, null);
+			size++;
 			return null;
 		}
 		var prevEntry = entry;
+		int chainLength = 0;
 		while (entry != null && !entry.key.equals(key)) {
 			prevEntry = entry;
 			entry = entry.next;
+			chainLength++;
 		}
 
 		if (entry != null) {
@@ -246,16 +397,342 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		}
 
 		prevEntry.next = new TableEntry<>(key, value, null);
+		size++;
+		if (chainLength + 1 >= TREEIFY_THRESHOLD && array == table)
+			treeifyIfLong(slot);
+		return null;
+	}
+
+	/**
+	 * Inserts the given key-value pair into a treeified slot. New nodes are put at
+	 * the head of the slot chain
+	 * 
+	 * @return old value if it was present, <code>null</code> otherwise
+	 */
+	private V insertIntoTree(TableEntry<K, V>[] array, TreeNode<K, V>[] trees, int slot, int hash, K key, V value) {
+		var found = findInTree(trees[slot], hash, key);
+		if (found != null) {
+			var oldValue = found.getValue();
+			found.setValue(value);
+			return oldValue;
+		}
+		var node = new TreeNode<>(hash, key, value, treeSequence++);
+		linkAtHead(array, slot, node);
+		trees[slot] = treeInsert(trees[slot], node);
+		size++;
+		return null;
+	}
+
+	/**
+	 * Removes the pair with the given key from a treeified slot. Slot is used as a
+	 * plain chain again once the tree becomes small
+	 * 
+	 * @return value of removed pair, <code>null</code> otherwise
+	 */
+	private V removeFromTree(TableEntry<K, V>[] array, TreeNode<K, V>[] trees, int slot, int hash, Object key) {
+		var node = findInTree(trees[slot], hash, key);
+		if (node == null)
+			return null;
+
+		TableEntry<K, V> entry = node;
+		if (node.prev == null)
+			array[slot] = entry.next;
+		else
+			((TableEntry<K, V>) node.prev).next = entry.next;
+		if (entry.next != null)
+			((TreeNode<K, V>) entry.next).prev = node.prev;
+		trees[slot] = treeDelete(trees[slot], node);
+
+		if (chainLength(array[slot], UNTREEIFY_THRESHOLD + 1) <= UNTREEIFY_THRESHOLD)
+			trees[slot] = null;
+		size--;
+		modificationCount++;
+		return entry.value;
+	}
+
+	/**
+	 * Checks whether the chain holding the key is long enough to be treeified, but
+	 * the table is too small for that, so it should be resized instead
+	 * 
+	 * @param key which was inserted
+	 * @return true if the table should be resized
+	 */
+	private boolean isTooSmallToTreeify(Object key) {
+		var array = tableFor(key);
+		return array.length < MIN_TREEIFY_CAPACITY
+				&& chainLength(array[slotFor(key, array)], TREEIFY_THRESHOLD) >= TREEIFY_THRESHOLD;
+	}
+
+	/**
+	 * Checks whether the slot holding the key is treeified. Used by tests
+	 * 
+	 * @param key whose slot is checked
+	 * @return true if the slot is a tree
+	 */
+	boolean isTreeified(Object key) {
+		var array = tableFor(key);
+		var trees = rootsOf(array);
+		return trees != null && trees[slotFor(key, array)] != null;
+	}
+
+	/**
+	 * Converts the chain in the given <code>table</code> slot into a tree if it
+	 * is long enough and the table isn't too small
+	 * 
+	 * @param slot to be checked
+	 */
+	@SuppressWarnings("unchecked")
+	private void treeifyIfLong(int slot) {
+		if (table.length < MIN_TREEIFY_CAPACITY || (roots != null && roots[slot] != null)
+				|| chainLength(table[slot], TREEIFY_THRESHOLD) < TREEIFY_THRESHOLD)
+			return;
+		if (roots == null)
+			roots = (TreeNode<K, V>[]) new TreeNode[table.length];
+
+		var entry = table[slot];
+		table[slot] = null;
+		TreeNode<K, V> root = null;
+		for (; entry != null; entry = entry.next) {
+			var node = new TreeNode<>(hash(entry.key), entry.key, entry.value, treeSequence++);
+			linkAtHead(table, slot, node);
+			root = treeInsert(root, node);
+		}
+		roots[slot] = root;
+	}
+
+	/**
+	 * Counts the entries of a chain, but stops counting at the given limit
+	 * 
+	 * @param entry head of the chain
+	 * @param limit of counting
+	 * @return length of the chain or limit, whichever is smaller
+	 */
+	private static int chainLength(TableEntry<?, ?> entry, int limit) {
+		int length = 0;
+		for (; entry != null && length < limit; entry = entry.next)
+			length++;
+		return length;
+	}
+
+	/** Puts the tree node at the head of the slot chain */
+	private static <K, V> void linkAtHead(TableEntry<K, V>[] array, int slot, TreeNode<K, V> node) {
+		TableEntry<K, V> entry = node;
+		entry.next = array[slot];
+		node.prev = null;
+		if (entry.next != null)
+			((TreeNode<K, V>) entry.next).prev = node;
+		array[slot] = node;
+	}
+
+	/**
+	 * Compares the key with the key of the node. Keys are ordered by hash, then by
+	 * class name and then, if they are <code>Comparable</code>, by their natural
+	 * ordering. Zero means that this ordering can't tell the keys apart
+	 * 
+	 * @param hash of the key
+	 * @param key  to be compared
+	 * @param node whose key is compared
+	 * @return negative, zero or positive number as key is before, tied or after
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int compareKeys(int hash, Object key, TreeNode<?, ?> node) {
+		if (hash != node.hash)
+			return hash < node.hash ? -1 : 1;
+		Class<?> keyClass = key.getClass();
+		Class<?> nodeClass = node.getKey().getClass();
+		if (keyClass != nodeClass)
+			return keyClass.getName().compareTo(nodeClass.getName());
+		if (key instanceof Comparable)
+			try {
+				return ((Comparable) key).compareTo(node.getKey());
+			} catch (ClassCastException e) {
+				// comparable to some other type only, so always tied
+			}
+		return 0;
+	}
+
+	/**
+	 * Total order of tree nodes. Nodes with tied keys are ordered by insertion
+	 * 
+	 * @return negative, zero or positive number as first is before, same or after
+	 */
+	private static int compareNodes(TreeNode<?, ?> first, TreeNode<?, ?> second) {
+		int cmp = compareKeys(first.hash, first.getKey(), second);
+		return cmp != 0 ? cmp : Long.compare(first.sequence, second.sequence);
+	}
+
+	/**
+	 * Searches the tree for a node containing the given key. Subtrees of nodes with
+	 * tied keys are both searched
+	 * 
+	 * @param node root of the tree
+	 * @param hash of the key
+	 * @param key  to be searched
+	 * @return node containing the key, <code>null</code> if there is none
+	 */
+	private static <K, V> TreeNode<K, V> findInTree(TreeNode<K, V> node, int hash, Object key) {
+		while (node != null) {
+			int cmp = compareKeys(hash, key, node);
+			if (cmp < 0)
+				node = node.left;
+			else if (cmp > 0)
+				node = node.right;
+			else if (node.getKey().equals(key))
+				return node;
+			else {
+				var found = findInTree(node.left, hash, key);
+				if (found != null)
+					return found;
+				node = node.right;
+			}
+		}
 		return null;
 	}
 
-	/** Reallocates the array, doubling the size */
+	/**
+	 * Inserts the node into the AVL tree
+	 * 
+	 * @return new root of the tree
+	 */
+	private static <K, V> TreeNode<K, V> treeInsert(TreeNode<K, V> root, TreeNode<K, V> node) {
+		if (root == null) {
+			node.left = node.right = null;
+			node.height = 1;
+			return node;
+		}
+		if (compareNodes(node, root) < 0)
+			root.left = treeInsert(root.left, node);
+		else
+			root.right = treeInsert(root.right, node);
+		return balance(root);
+	}
+
+	/**
+	 * Deletes the node from the AVL tree
+	 * 
+	 * @return new root of the tree
+	 */
+	private static <K, V> TreeNode<K, V> treeDelete(TreeNode<K, V> root, TreeNode<K, V> node) {
+		if (root == node) {
+			if (node.left == null)
+				return node.right;
+			if (node.right == null)
+				return node.left;
+			var successor = node.right;
+			while (successor.left != null)
+				successor = successor.left;
+			successor.right = deleteLeftmost(node.right);
+			successor.left = node.left;
+			return balance(successor);
+		}
+		if (compareNodes(node, root) < 0)
+			root.left = treeDelete(root.left, node);
+		else
+			root.right = treeDelete(root.right, node);
+		return balance(root);
+	}
+
+	/** @return root of the tree without its leftmost node */
+	private static <K, V> TreeNode<K, V> deleteLeftmost(TreeNode<K, V> root) {
+		if (root.left == null)
+			return root.right;
+		root.left = deleteLeftmost(root.left);
+		return balance(root);
+	}
+
+	/** @return height of the subtree, zero for empty one */
+	private static int height(TreeNode<?, ?> node) {
+		return node == null ? 0 : node.height;
+	}
+
+	/**
+	 * Restores the AVL property of the node by rotating it if needed
+	 * 
+	 * @return new root of the subtree
+	 */
+	private static <K, V> TreeNode<K, V> balance(TreeNode<K, V> node) {
+		int balance = height(node.left) - height(node.right);
+		if (balance > 1) {
+			if (height(node.left.left) < height(node.left.right))
+				node.left = rotateLeft(node.left);
+			return rotateRight(node);
+		}
+		if (balance < -1) {
+			if (height(node.right.right) < height(node.right.left))
+				node.right = rotateRight(node.right);
+			return rotateLeft(node);
+		}
+		node.height = Math.max(height(node.left), height(node.right)) + 1;
+		return node;
+	}
+
+	/** @return new root of the subtree, the former left child */
+	private static <K, V> TreeNode<K, V> rotateRight(TreeNode<K, V> node) {
+		var left = node.left;
+		node.left = left.right;
+		left.right = node;
+		node.height = Math.max(height(node.left), height(node.right)) + 1;
+		left.height = Math.max(height(left.left), height(left.right)) + 1;
+		return left;
+	}
+
+	/** @return new root of the subtree, the former right child */
+	private static <K, V> TreeNode<K, V> rotateLeft(TreeNode<K, V> node) {
+		var right = node.right;
+		node.right = right.left;
+		right.left = node;
+		node.height = Math.max(height(node.left), height(node.right)) + 1;
+		right.height = Math.max(height(right.left), height(right.right)) + 1;
+		return right;
+	}
+
+	/**
+	 * Reallocates the array, doubling the size. In incremental mode the pairs are
+	 * left in <code>oldTable</code> to be migrated later, otherwise they are all
+	 * migrated at once
+	 */
 	@SuppressWarnings("unchecked")
 	private void reallocateTable() {
-		TableEntry<K, V>[] content = toArray();
+		while (oldTable != null)
+			migrateStep();
+		oldTable = table;
+		oldRoots = roots;
+		migratedSlots = 0;
 		table = (TableEntry<K, V>[]) new TableEntry[table.length << 1];
-		for (var entry : content)
-			insert(entry.key, entry.value);
+		roots = null;
+		if (!incrementalResize)
+			while (oldTable != null)
+				migrateStep();
+	}
+
+	/**
+	 * Moves pairs of the next few <code>oldTable</code> slots into
+	 * <code>table</code>. Entries are relinked as plain chains, not copied. Each
+	 * old slot is split into exactly two new slots, which are treeified again if
+	 * they are still too long
+	 */
+	private void migrateStep() {
+		if (oldTable == null)
+			return;
+		for (int end = Math.min(migratedSlots + MIGRATION_STEP, oldTable.length); migratedSlots < end; migratedSlots++) {
+			var entry = oldTable[migratedSlots];
+			oldTable[migratedSlots] = null;
+			if (oldRoots != null)
+				oldRoots[migratedSlots] = null;
+			while (entry != null) {
+				var next = entry.next;
+				int slot = slotFor(entry.key, table);
+				entry.next = table[slot];
+				table[slot] = entry;
+				entry = next;
+			}
+			treeifyIfLong(migratedSlots);
+			treeifyIfLong(migratedSlots + oldTable.length);
+		}
+		if (migratedSlots == oldTable.length) {
+			oldTable = null;
+			oldRoots = null;
+		}
 	}
 
 	/** Implementation of the iterator */
@@ -263,7 +740,9 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		private static final String ILLEGAL_REMOVE = "Illegal remove call while iterating";
 		/** Modification count used to detect concurrent modification */
 		private long savedModificationCount;
-		/** Current index of the table array while iterating */
+		/** Array which is currently iterated */
+		private TableEntry<K, V>[] iterated;
+		/** Current index of the iterated array */
 		private int index;
 		/** Reference to the last returned <code>TableEntry</code> */
 		private TableEntry<K, V> lastReturned;
@@ -273,7 +752,13 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		/** Default constructor */
 		public SimpleHashtableIterator() {
 			savedModificationCount = modificationCount;
-			index = -1;
+			if (oldTable != null) {
+				iterated = oldTable;
+				index = migratedSlots - 1;
+			} else {
+				iterated = table;
+				index = -1;
+			}
 			assignNextOccupiedSlot();
 		}
 
@@ -306,7 +791,7 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 			checkModificationCount();
 			if (lastReturned == null || !containsKey(lastReturned.key))
 				throw new IllegalStateException(ILLEGAL_REMOVE);
-			SimpleHashtable.this.remove(lastReturned.key);
+			removeEntry(lastReturned.key);
 			savedModificationCount++;
 		}
 
@@ -328,18 +813,134 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 				assignNextOccupiedSlot();
 		}
 
-		/** Sets the entry field to the next head of occupied slot */
+		/**
+		 * Sets the entry field to the next head of occupied slot. Not yet migrated
+		 * slots of <code>oldTable</code> are iterated before <code>table</code>
+		 */
 		private void assignNextOccupiedSlot() {
 			do {
 				index++;
-			} while (index < table.length && table[index] == null);
-			if (index < table.length)
-				entry = table[index];
+				if (index == iterated.length && iterated != table) {
+					iterated = table;
+					index = 0;
+				}
+			} while (index < iterated.length && iterated[index] == null);
+			if (index < iterated.length)
+				entry = iterated[index];
 			else
 				entry = null;
 		}
 	}
 
+	/**
+	 * Implementation of the spliterator. Slots of <code>oldTable</code> and
+	 * <code>table</code> are seen as one sequence in which every spliterator owns
+	 * a range, while the pairs of a slot are walked through its chain
+	 */
+	private class SlotRangeSpliterator implements Spliterator<TableEntry<K, V>> {
+		/** Modification count used to detect concurrent modification */
+		private final long savedModificationCount;
+		/** Array preceding <code>current</code> in the sequence, may be null */
+		private final TableEntry<K, V>[] old;
+		/** Array following <code>old</code> in the sequence */
+		private final TableEntry<K, V>[] current;
+		/** Next slot of the sequence to be visited */
+		private int index;
+		/** Slot behind the last one owned */
+		private final int fence;
+		/** Estimated number of remaining pairs */
+		private long estimate;
+		/** Next pair of the chain being walked */
+		private TableEntry<K, V> entry;
+
+		/**
+		 * Constructor of the spliterator owning slots from <code>index</code>,
+		 * inclusive, to <code>fence</code>, exclusive
+		 */
+		public SlotRangeSpliterator(TableEntry<K, V>[] old, TableEntry<K, V>[] current, int index, int fence,
+				long estimate, long savedModificationCount) {
+			this.old = old;
+			this.current = current;
+			this.index = index;
+			this.fence = fence;
+			this.estimate = estimate;
+			this.savedModificationCount = savedModificationCount;
+		}
+
+		/** @throws ConcurrentModificationException unexpected modification occurred */
+		@Override
+		public boolean tryAdvance(Consumer<? super TableEntry<K, V>> action) {
+			Objects.requireNonNull(action);
+			checkModificationCount();
+			while (entry == null && index < fence)
+				entry = slot(index++);
+			if (entry == null)
+				return false;
+			var returned = entry;
+			entry = entry.next;
+			action.accept(returned);
+			return true;
+		}
+
+		/** @throws ConcurrentModificationException unexpected modification occurred */
+		@Override
+		public void forEachRemaining(Consumer<? super TableEntry<K, V>> action) {
+			Objects.requireNonNull(action);
+			do {
+				for (; entry != null; entry = entry.next)
+					action.accept(entry);
+				if (index < fence)
+					entry = slot(index++);
+			} while (entry != null || index < fence);
+			checkModificationCount();
+		}
+
+		@Override
+		public Spliterator<TableEntry<K, V>> trySplit() {
+			int middle = (index + fence) >>> 1;
+			if (entry != null || middle <= index)
+				return null;
+			estimate >>>= 1;
+			var prefix = new SlotRangeSpliterator(old, current, index, middle, estimate, savedModificationCount);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return estimate;
+		}
+
+		@Override
+		public int characteristics() {
+			return DISTINCT | NONNULL;
+		}
+
+		/**
+		 * Finds the head of the chain in the slot of the sequence
+		 * 
+		 * @param sequenceIndex index of the slot in the sequence
+		 * @return head of the chain, <code>null</code> if the slot is empty
+		 */
+		private TableEntry<K, V> slot(int sequenceIndex) {
+			if (old == null)
+				return current[sequenceIndex];
+			if (sequenceIndex < old.length)
+				return old[sequenceIndex];
+			return current[sequenceIndex - old.length];
+		}
+
+		/**
+		 * Checks whether modification counts match
+		 * 
+		 * @throws ConcurrentModificationException unexpected modification occurred
+		 */
+		private void checkModificationCount() {
+			if (savedModificationCount != modificationCount)
+				throw new ConcurrentModificationException("Unexpected modification occured while iterating");
+		}
+	}
+
 	/**
 	 * Model of the stored key-value pair
 	 *
@@ -377,4 +978,26 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 			return String.format("%s=%s", key, value);
 		}
 	}
+
+	/**
+	 * Entry of a treeified slot. Besides being a node of an AVL tree, it is still
+	 * linked in the slot chain, which is additionally linked backwards
+	 *
+	 * @param <K> key type
+	 * @param <V> value type
+	 */
+	private static class TreeNode<K, V> extends TableEntry<K, V> {
+		private final int hash;
+		private final long sequence;
+		private TreeNode<K, V> left;
+		private TreeNode<K, V> right;
+		private TreeNode<K, V> prev;
+		private int height;
+
+		public TreeNode(int hash, K key, V value, long sequence) {
+			super(key, value, null);
+			this.hash = hash;
+			this.sequence = sequence;
+		}
+	}
 }
@@ -0,0 +1,60 @@
+package hr.fer.oprpp1.custom.collections.demo;
+
+import java.util.function.IntFunction;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+
+/**
+ * Measures <code>SimpleHashtable</code> with keys that collide on purpose.
+ * Lookup times should grow logarithmically with the number of keys
+ */
+public class CollidingKeysDemo {
+
+	/** Sizes of tables which are measured */
+	private static final int[] SIZES = { 1_000, 10_000, 100_000 };
+	/** Number of repetitions of every measurement */
+	private static final int REPETITIONS = 5;
+
+	public static void main(String[] args) {
+		System.out.println("Keys differing only in high bits:");
+		measure((i) -> i << 12);
+		System.out.println("Keys with equal hash codes:");
+		measure(CollidingKey::new);
+	}
+
+	/**
+	 * Fills tables of every size and prints average time of a lookup
+	 *
+	 * @param keyFactory creating the key from its index
+	 */
+	private static <K> void measure(IntFunction<K> keyFactory) {
+		for (int size : SIZES) {
+			long best = Long.MAX_VALUE;
+			for (int r = 0; r < REPETITIONS; r++) {
+				var table = new SimpleHashtable<K, Integer>();
+				for (int i = 0; i < size; i++)
+					table.put(keyFactory.apply(i), i);
+
+				long start = System.nanoTime();
+				for (int i = 0; i < size; i++)
+					if (table.get(keyFactory.apply(i)) != i)
+						throw new IllegalStateException("Lookup failed");
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			System.out.printf("  %,9d keys: %8.1f ns per lookup%n", size, (double) best / size);
+		}
+	}
+
+	/** Key whose every instance has the same hash code */
+	private record CollidingKey(int id) implements Comparable<CollidingKey> {
+		@Override
+		public int hashCode() {
+			return 0;
+		}
+
+		@Override
+		public int compareTo(CollidingKey other) {
+			return Integer.compare(id, other.id);
+		}
+	}
+}
@@ -1,7 +1,7 @@
 package hr.fer.oprpp1.custom.collections.demo;
 
 import hr.fer.oprpp1.custom.collections.EmptyStackException;
-import hr.fer.oprpp1.custom.collections.ObjectStack;
+import hr.fer.oprpp1.custom.collections.IntStack;
 
 /**
  * Demo of stack usage
@@ -27,19 +27,19 @@ public class StackDemo {
 	 * @return result of the calculation
 	 */
 	private static int evaluatePostfix(String[] tokens) {
-		final ObjectStack stack = new ObjectStack();
+		final IntStack stack = new IntStack();
 		for (String token : tokens) {
 			if (isOperator(token)) {
-				final int op2 = Integer.parseInt((String) stack.pop());
-				final int op1 = Integer.parseInt((String) stack.pop());
-				stack.push(String.valueOf(preformOperation(op1, op2, token)));
+				final int op2 = stack.pop();
+				final int op1 = stack.pop();
+				stack.push(preformOperation(op1, op2, token));
 			} else
-				stack.push(token);
+				stack.push(Integer.parseInt(token));
 
 		}
 		if (stack.size() != 1)
 			throw new InvalidExpressionException();
-		return Integer.parseInt((String) stack.pop());
+		return stack.pop();
 	}
 
 	/**
@@ -5,6 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ConcurrentModificationException;
+import java.util.stream.Collectors;
+
 import org.junit.jupiter.api.Test;
 
 public class ArrayIndexedCollectionTest extends ListTestingUtil {
@@ -76,4 +79,110 @@ public class ArrayIndexedCollectionTest extends ListTestingUtil {
 		assertEquals(expected, list.get(3));
 	}
 
+	@Test
+	public void testAddAllFromLinkedList() {
+		var other = new LinkedListIndexedCollection<Object>();
+		for (int i = 0; i < 100; i++)
+			other.add(i);
+		var col = new ArrayIndexedCollection<Object>(1);
+		col.add("first");
+		col.addAll(other);
+		assertEquals(101, col.size());
+		assertEquals("first", col.get(0));
+		assertEquals(99, col.get(100));
+	}
+
+	@Test
+	public void testInsertAll() {
+		var col = new ArrayIndexedCollection<Object>(2);
+		col.add("A");
+		col.add("D");
+		var other = new ArrayIndexedCollection<Object>();
+		other.add("B");
+		other.add("C");
+		col.insertAll(other, 1);
+		assertArrayEquals(new Object[] { "A", "B", "C", "D" }, col.toArray());
+		col.insertAll(col, 4);
+		assertArrayEquals(new Object[] { "A", "B", "C", "D", "A", "B", "C", "D" }, col.toArray());
+		assertThrows(IndexOutOfBoundsException.class, () -> col.insertAll(other, 9));
+	}
+
+	@Test
+	public void testInsertAllWithNullLeavesCollectionUnchanged() {
+		var col = new ArrayIndexedCollection<Object>();
+		col.add("A");
+		Collection<Object> withNull = new ArrayIndexedCollection<>() {
+			@Override
+			public Object[] toArray() {
+				return new Object[] { "B", null };
+			}
+		};
+		assertThrows(NullPointerException.class, () -> col.insertAll(withNull, 0));
+		assertArrayEquals(new Object[] { "A" }, col.toArray());
+	}
+
+	@Test
+	public void testRemoveRange() {
+		var col = new ArrayIndexedCollection<Object>();
+		for (int i = 0; i < 10; i++)
+			col.add(i);
+		col.removeRange(2, 8);
+		assertArrayEquals(new Object[] { 0, 1, 8, 9 }, col.toArray());
+		col.removeRange(0, 0);
+		assertEquals(4, col.size());
+		assertThrows(IndexOutOfBoundsException.class, () -> col.removeRange(3, 5));
+		assertThrows(IndexOutOfBoundsException.class, () -> col.removeRange(2, 1));
+	}
+
+	@Test
+	public void testEnsureCapacityAndTrimToSize() {
+		var col = new ArrayIndexedCollection<Object>(1);
+		col.ensureCapacity(1000);
+		for (int i = 0; i < 1000; i++)
+			col.add(i);
+		col.removeRange(10, 1000);
+		col.trimToSize();
+		col.add("last");
+		assertEquals(11, col.size());
+		assertEquals("last", col.get(10));
+		col.clear();
+		col.trimToSize();
+		col.add("only");
+		assertEquals("only", col.get(0));
+	}
+
+	@Test
+	public void testParallelStreamKeepsOrder() {
+		var col = new ArrayIndexedCollection<Integer>();
+		for (int i = 0; i < 10_000; i++)
+			col.add(i);
+		assertEquals(49_995_000L, col.parallelStream().mapToLong(Integer::longValue).sum());
+		var copy = col.parallelStream().map(i -> i * 2).collect(Collectors.toList());
+		for (int i = 0; i < 10_000; i++)
+			assertEquals(i * 2, copy.get(i));
+	}
+
+	@Test
+	public void testSpliteratorSplitsWithoutOverlap() {
+		var col = new ArrayIndexedCollection<Object>();
+		for (int i = 0; i < 7; i++)
+			col.add(i);
+		var suffix = col.spliterator();
+		var prefix = suffix.trySplit();
+		assertEquals(3, prefix.estimateSize());
+		assertEquals(4, suffix.estimateSize());
+		var seen = new ArrayIndexedCollection<Object>();
+		prefix.forEachRemaining(seen::add);
+		suffix.forEachRemaining(seen::add);
+		assertArrayEquals(col.toArray(), seen.toArray());
+	}
+
+	@Test
+	public void testStreamDetectsModification() {
+		var col = new ArrayIndexedCollection<Object>();
+		col.add("first");
+		col.add("second");
+		assertThrows(ConcurrentModificationException.class, () -> col.stream().forEach(col::add));
+	}
+
 }
@@ -0,0 +1,124 @@
+package hr.fer.oprpp1.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentSimpleHashtableTest {
+
+	private ConcurrentSimpleHashtable<String, String> table;
+
+	@BeforeEach
+	public void setup() {
+		table = new ConcurrentSimpleHashtable<>();
+	}
+
+	@Test
+	public void testConstructorWrongArgs() {
+		assertThrows(IllegalArgumentException.class, () -> new ConcurrentSimpleHashtable<>(0));
+		assertThrows(IllegalArgumentException.class, () -> new ConcurrentSimpleHashtable<>(16, 0));
+	}
+
+	@Test
+	public void testPutNulls() {
+		assertThrows(NullPointerException.class, () -> table.put(null, "Value"));
+		assertThrows(NullPointerException.class, () -> table.put("Key", null));
+	}
+
+	@Test
+	public void testPuttingOver() {
+		table.put("Key", "Value");
+		assertEquals("Value", table.put("Key", "Val"));
+		assertEquals(1, table.size());
+		assertEquals("Val", table.get("Key"));
+	}
+
+	@Test
+	public void testRemove() {
+		fillTable();
+		assertEquals("Haso", table.remove("Mujo"));
+		assertEquals(2, table.size());
+		assertNull(table.get("Mujo"));
+		assertTrue(table.containsKey("Knuth"));
+		assertTrue(table.containsValue("Value"));
+	}
+
+	@Test
+	public void testSingleSegment() {
+		var numbers = new ConcurrentSimpleHashtable<Integer, Integer>(1, 1);
+		for (int i = 0; i < 1000; i++)
+			numbers.put(i, i);
+		for (int i = 0; i < 1000; i += 2)
+			assertEquals(i, numbers.remove(i));
+		assertEquals(500, numbers.size());
+		for (int i = 1; i < 1000; i += 2)
+			assertEquals(i, numbers.get(i));
+	}
+
+	@Test
+	public void testIteratorIsWeaklyConsistent() {
+		fillTable();
+		var it = table.iterator();
+		it.next();
+		table.clear();
+		assertTrue(table.isEmpty());
+		it.remove();
+		assertThrows(IllegalStateException.class, () -> it.remove());
+		it.forEachRemaining((e) -> {
+		});
+	}
+
+	@Test
+	public void testIteratorRemoveAndSetValue() {
+		fillTable();
+		for (var entry : table)
+			entry.setValue(entry.getKey());
+		assertEquals("Knuth", table.get("Knuth"));
+		var it = table.iterator();
+		while (it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+		assertTrue(table.isEmpty());
+		assertFalse(table.containsValue("Knuth"));
+	}
+
+	@Test
+	public void testConcurrentPutsAndRemoves() throws InterruptedException {
+		var numbers = new ConcurrentSimpleHashtable<Integer, Integer>();
+		var threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++) {
+			final int offset = t * 10_000;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 10_000; i++)
+					numbers.put(offset + i, i);
+				for (int i = 0; i < 10_000; i += 2)
+					numbers.remove(offset + i);
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (var thread : threads)
+			thread.join();
+
+		assertEquals(40_000, numbers.size());
+		int count = 0;
+		for (var entry : numbers) {
+			assertEquals(1, entry.getValue() % 2);
+			count++;
+		}
+		assertEquals(40_000, count);
+	}
+
+	private void fillTable() {
+		table.put("Key", "Value");
+		table.put("Mujo", "Haso");
+		table.put("Knuth", "Donald");
+	}
+}
@@ -60,4 +60,24 @@ public class DictionaryTest {
 		dictionary.put("Ivica", "Marica");
 		assertEquals(2, dictionary.size());
 	}
+
+	@Test
+	public void testNullValueOverwrite() {
+		dictionary.put("Key", null);
+		dictionary.put("Key", null);
+		assertEquals(1, dictionary.size());
+		assertEquals(null, dictionary.remove("Key"));
+		assertTrue(dictionary.isEmpty());
+	}
+
+	@Test
+	public void testManyKeys() {
+		for (int i = 0; i < 50_000; i++)
+			dictionary.put("key" + i, "value" + i);
+		assertEquals(50_000, dictionary.size());
+		for (int i = 0; i < 50_000; i++)
+			assertEquals("value" + i, dictionary.get("key" + i));
+		assertEquals("value7", dictionary.remove("key7"));
+		assertEquals(null, dictionary.get("key7"));
+	}
 }
@@ -0,0 +1,93 @@
+package hr.fer.oprpp1.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ConcurrentModificationException;
+
+import org.junit.jupiter.api.Test;
+
+public class DoubleArrayIndexedCollectionTest {
+
+	@Test
+	public void testCapacityConstructorShouldThrow() {
+		assertThrows(IllegalArgumentException.class, () -> new DoubleArrayIndexedCollection(0));
+	}
+
+	@Test
+	public void testAddGrowsArray() {
+		var col = new DoubleArrayIndexedCollection(1);
+		for (int i = 0; i < 100; i++)
+			col.add(i * 0.5);
+		assertEquals(100, col.size());
+		assertEquals(4.5, col.get(9));
+		assertThrows(IndexOutOfBoundsException.class, () -> col.get(100));
+	}
+
+	@Test
+	public void testInsertAndRemove() {
+		var col = new DoubleArrayIndexedCollection();
+		col.add(1);
+		col.add(3);
+		col.insert(2, 1);
+		col.insert(0, 0);
+		col.insert(4, 4);
+		assertArrayEquals(new double[] { 0, 1, 2, 3, 4 }, col.toArray());
+		assertEquals(2, col.remove(2));
+		assertTrue(col.removeValue(4));
+		assertFalse(col.removeValue(4));
+		assertEquals(3, col.removeLast());
+		assertArrayEquals(new double[] { 0, 1 }, col.toArray());
+		assertThrows(IndexOutOfBoundsException.class, () -> col.insert(5, 3));
+	}
+
+	@Test
+	public void testIndexOfAndSet() {
+		var col = new DoubleArrayIndexedCollection();
+		col.add(7);
+		col.add(8);
+		assertEquals(1, col.indexOf(8));
+		assertEquals(List.VALUE_NOT_FOUND, col.indexOf(9));
+		assertEquals(8, col.set(1, 9));
+		assertTrue(col.contains(9));
+	}
+
+	@Test
+	public void testIndexOfComparesLikeEquals() {
+		var col = new DoubleArrayIndexedCollection();
+		col.add(0.0);
+		col.add(Double.NaN);
+		col.add(-0.0);
+		assertEquals(1, col.indexOf(Double.NaN));
+		assertEquals(2, col.indexOf(-0.0));
+		assertTrue(col.removeValue(Double.NaN));
+		assertFalse(col.contains(Double.NaN));
+	}
+
+	@Test
+	public void testRemoveRangeAndClear() {
+		var col = new DoubleArrayIndexedCollection();
+		for (int i = 0; i < 10; i++)
+			col.add(i);
+		col.removeRange(2, 8);
+		assertArrayEquals(new double[] { 0, 1, 8, 9 }, col.toArray());
+		col.clear();
+		assertTrue(col.isEmpty());
+		assertThrows(IndexOutOfBoundsException.class, () -> col.removeLast());
+	}
+
+	@Test
+	public void testForEach() {
+		var col = new DoubleArrayIndexedCollection();
+		for (int i = 1; i <= 4; i++)
+			col.add(i);
+		var sum = new double[1];
+		col.forEach(value -> sum[0] += value);
+		assertEquals(10, sum[0]);
+		assertThrows(ConcurrentModificationException.class, () -> col.forEach(col::add));
+	}
+
+}
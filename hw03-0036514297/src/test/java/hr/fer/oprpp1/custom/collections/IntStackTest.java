@@ -0,0 +1,33 @@
+package hr.fer.oprpp1.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class IntStackTest {
+
+	@Test
+	public void testPushPopPeek() {
+		var stack = new IntStack();
+		for (int i = 0; i < 100; i++)
+			stack.push(i);
+		assertEquals(100, stack.size());
+		assertEquals(99, stack.peek());
+		for (int i = 99; i >= 0; i--)
+			assertEquals(i, stack.pop());
+		assertTrue(stack.isEmpty());
+	}
+
+	@Test
+	public void testEmptyStackThrows() {
+		var stack = new IntStack();
+		assertThrows(EmptyStackException.class, () -> stack.pop());
+		assertThrows(EmptyStackException.class, () -> stack.peek());
+		stack.push(1);
+		stack.clear();
+		assertThrows(EmptyStackException.class, () -> stack.pop());
+	}
+
+}
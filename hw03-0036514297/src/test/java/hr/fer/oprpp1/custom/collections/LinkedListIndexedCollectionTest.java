@@ -1,9 +1,13 @@
 package hr.fer.oprpp1.custom.collections;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Random;
+import java.util.stream.Collectors;
+
 import org.junit.jupiter.api.Test;
 
 public class LinkedListIndexedCollectionTest extends ListTestingUtil {
@@ -38,4 +42,66 @@ public class LinkedListIndexedCollectionTest extends ListTestingUtil {
 		});
 	}
 
+	@Test
+	public void testParallelStreamKeepsOrder() {
+		var col = new LinkedListIndexedCollection<Integer>();
+		for (int i = 0; i < 5_000; i++)
+			col.add(i);
+		var strings = col.parallelStream().map(String::valueOf).collect(Collectors.toList());
+		assertEquals(5_000, strings.size());
+		for (int i = 0; i < 5_000; i++)
+			assertEquals(String.valueOf(i), strings.get(i));
+	}
+
+	@Test
+	public void testGetFromBothEnds() {
+		var col = new LinkedListIndexedCollection<Integer>();
+		for (int i = 0; i < 5; i++)
+			col.add(i);
+		for (int i = 4; i >= 0; i--)
+			assertEquals(i, col.get(i));
+		col.remove(4);
+		assertEquals(3, col.get(3));
+	}
+
+	@Test
+	public void testIndexedAccessMatchesArrayCollection() {
+		var random = new Random(42);
+		var col = new LinkedListIndexedCollection<Integer>();
+		var expected = new ArrayIndexedCollection<Integer>();
+		for (int op = 0; op < 20_000; op++) {
+			int choice = random.nextInt(4);
+			if (choice == 0 || expected.isEmpty()) {
+				int position = random.nextInt(expected.size() + 1);
+				col.insert(op, position);
+				expected.insert(op, position);
+			} else if (choice == 1) {
+				int index = random.nextInt(expected.size());
+				col.remove(index);
+				expected.remove(index);
+			} else {
+				int index = random.nextInt(expected.size());
+				assertEquals(expected.get(index), col.get(index));
+			}
+		}
+		assertArrayEquals(expected.toArray(), col.toArray());
+	}
+
+	@Test
+	public void testSequentialAccessAfterModifications() {
+		var col = new LinkedListIndexedCollection<Integer>();
+		for (int i = 0; i < 100_000; i++)
+			col.add(i);
+		for (int i = 0; i < 100_000; i++)
+			assertEquals(i, col.get(i));
+		col.insert(-1, 0);
+		for (int i = 0; i < 100_000; i++)
+			assertEquals(i, col.get(i + 1));
+		for (int i = 0; i < 50_000; i++)
+			col.remove(50_000);
+		assertEquals(50_001, col.size());
+		assertEquals(49_998, col.get(49_999));
+		assertEquals(99_999, col.get(50_000));
+	}
+
 }
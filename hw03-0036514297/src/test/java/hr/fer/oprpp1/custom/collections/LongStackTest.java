@@ -0,0 +1,33 @@
+package hr.fer.oprpp1.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class LongStackTest {
+
+	@Test
+	public void testPushPopPeek() {
+		var stack = new LongStack();
+		for (int i = 0; i < 100; i++)
+			stack.push(i * 1_000_000_000L);
+		assertEquals(100, stack.size());
+		assertEquals(99_000_000_000L, stack.peek());
+		for (int i = 99; i >= 0; i--)
+			assertEquals(i * 1_000_000_000L, stack.pop());
+		assertTrue(stack.isEmpty());
+	}
+
+	@Test
+	public void testEmptyStackThrows() {
+		var stack = new LongStack();
+		assertThrows(EmptyStackException.class, () -> stack.pop());
+		assertThrows(EmptyStackException.class, () -> stack.peek());
+		stack.push(1);
+		stack.clear();
+		assertThrows(EmptyStackException.class, () -> stack.pop());
+	}
+
+}
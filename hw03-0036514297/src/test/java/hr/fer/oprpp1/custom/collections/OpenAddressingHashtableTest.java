@@ -0,0 +1,164 @@
+package hr.fer.oprpp1.custom.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class OpenAddressingHashtableTest {
+
+	private OpenAddressingHashtable<String, String> table;
+
+	@BeforeEach
+	public void setup() {
+		table = new OpenAddressingHashtable<>();
+	}
+
+	@Test
+	public void testConstructorWrongArg() {
+		assertThrows(IllegalArgumentException.class, () -> new OpenAddressingHashtable<>(0));
+	}
+
+	@Test
+	public void testPutNullKey() {
+		assertThrows(NullPointerException.class, () -> table.put(null, "Value"));
+	}
+
+	@Test
+	public void testPuttingOver() {
+		table.put("Key", "Value");
+		assertEquals("Value", table.put("Key", "Val"));
+		assertEquals(1, table.size());
+		assertEquals("Val", table.get("Key"));
+	}
+
+	@Test
+	public void testPuttingIntoSmallTable() {
+		table = new OpenAddressingHashtable<>(1);
+		fillTable();
+		assertEquals(3, table.size());
+		assertEquals("Donald", table.get("Knuth"));
+		assertTrue(table.containsKey("Mujo"));
+		assertTrue(table.containsValue("Value"));
+	}
+
+	@Test
+	public void testRemove() {
+		fillTable();
+		assertEquals("Haso", table.remove("Mujo"));
+		assertEquals(2, table.size());
+		assertNull(table.get("Mujo"));
+		assertNull(table.remove("Mujo"));
+		assertEquals("Donald", table.get("Knuth"));
+	}
+
+	@Test
+	public void testRemoveKeepsCollidingKeysReachable() {
+		var collisions = new OpenAddressingHashtable<Integer, Integer>(64);
+		for (int i = 0; i < 40; i++)
+			collisions.put(i * 64, i);
+		for (int i = 0; i < 40; i += 2)
+			assertEquals(i, collisions.remove(i * 64));
+		for (int i = 1; i < 40; i += 2)
+			assertEquals(i, collisions.get(i * 64));
+		assertEquals(20, collisions.size());
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals("[]", table.toString());
+		table.put("Key", "Value");
+		assertEquals("[Key=Value]", table.toString());
+	}
+
+	@Test
+	public void testIteratorRemovesEverything() {
+		var numbers = new OpenAddressingHashtable<Integer, Integer>(2);
+		for (int i = 0; i < 1000; i++)
+			numbers.put(i * 31, i);
+		var seen = new HashSet<Integer>();
+		var it = numbers.iterator();
+		while (it.hasNext()) {
+			assertTrue(seen.add(it.next().getKey()));
+			it.remove();
+		}
+		assertEquals(1000, seen.size());
+		assertTrue(numbers.isEmpty());
+	}
+
+	@Test
+	public void testEntrySetValue() {
+		fillTable();
+		for (var entry : table)
+			entry.setValue(entry.getKey());
+		assertEquals("Knuth", table.get("Knuth"));
+		assertFalse(table.containsValue("Donald"));
+	}
+
+	@Test
+	public void testEntriesStayStable() {
+		var collisions = new OpenAddressingHashtable<Integer, Integer>(64);
+		for (int i = 0; i < 40; i++)
+			collisions.put(i * 64, i);
+		var it = collisions.iterator();
+		var first = it.next();
+		var second = it.next();
+		it.remove();
+		int firstKey = first.getKey();
+		assertEquals(firstKey / 64, first.getValue());
+		assertEquals(second.getKey() / 64, second.getValue());
+		for (int i = 40; i < 100; i++)
+			collisions.put(i * 64, i);
+		assertEquals(firstKey, first.getKey());
+		assertEquals(firstKey / 64, first.getValue());
+
+		first.setValue(-1);
+		assertEquals(-1, collisions.get(firstKey));
+		second.setValue(-2);
+		assertFalse(collisions.containsKey(second.getKey()));
+		assertEquals(-2, second.getValue());
+	}
+
+	@Test
+	public void checkMultipleRemove() {
+		fillTable();
+		var it = table.iterator();
+		it.next();
+		it.remove();
+		assertThrows(IllegalStateException.class, () -> it.remove());
+	}
+
+	@Test
+	public void checkModificationCount() {
+		fillTable();
+		var it = table.iterator();
+		it.next();
+		table.clear();
+		assertThrows(ConcurrentModificationException.class, () -> it.next());
+		assertThrows(ConcurrentModificationException.class, () -> it.hasNext());
+		assertThrows(ConcurrentModificationException.class, () -> it.remove());
+	}
+
+	@Test
+	public void checkMultipleIteratorsModifying() {
+		fillTable();
+		var it1 = table.iterator();
+		var it2 = table.iterator();
+		it1.next();
+		it1.remove();
+		assertThrows(ConcurrentModificationException.class, () -> it2.next());
+	}
+
+	private void fillTable() {
+		table.put("Key", "Value");
+		table.put("Mujo", "Haso");
+		table.put("Knuth", "Donald");
+	}
+}
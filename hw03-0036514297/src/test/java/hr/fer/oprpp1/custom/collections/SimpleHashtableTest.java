@@ -1,10 +1,13 @@
 package hr.fer.oprpp1.custom.collections;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ConcurrentModificationException;
+import java.util.HashSet;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -127,6 +130,165 @@ public class SimpleHashtableTest {
 		assertThrows(ConcurrentModificationException.class, () -> it2.remove());
 	}
 
+	@Test
+	public void testIncrementalResize() {
+		var numbers = new SimpleHashtable<Integer, Integer>(1, true);
+		for (int i = 0; i < 1000; i++)
+			numbers.put(i, i);
+		assertEquals(1000, numbers.size());
+		for (int i = 0; i < 1000; i++)
+			assertEquals(i, numbers.get(i));
+		assertEquals(1000, numbers.toArray().length);
+	}
+
+	@Test
+	public void testIncrementalResizeRemovingWhileMigrating() {
+		var numbers = new SimpleHashtable<Integer, Integer>(64, true);
+		for (int i = 0; i < 48; i++)
+			numbers.put(i, i);
+		for (int i = 0; i < 48; i += 2)
+			assertEquals(i, numbers.remove(i));
+		assertEquals(24, numbers.size());
+		for (int i = 1; i < 48; i += 2)
+			assertTrue(numbers.containsKey(i));
+	}
+
+	@Test
+	public void testIncrementalResizeRemovingAbsentKeyWhileIterating() {
+		var numbers = new SimpleHashtable<Integer, Integer>(16, true);
+		for (int i = 0; i < 12; i++)
+			numbers.put(i, i);
+		var seen = new HashSet<Integer>();
+		var it = numbers.iterator();
+		for (int i = 0; i < 6; i++)
+			assertTrue(seen.add(it.next().getKey()));
+		for (int i = 0; i < 10; i++)
+			assertNull(numbers.remove(1000 + i));
+		while (it.hasNext())
+			assertTrue(seen.add(it.next().getKey()));
+		assertEquals(numbers.size(), seen.size());
+	}
+
+	@Test
+	public void testIncrementalResizeIteratorRemove() {
+		var numbers = new SimpleHashtable<Integer, Integer>(64, true);
+		for (int i = 0; i < 50; i++)
+			numbers.put(i, i);
+		var it = numbers.iterator();
+		int count = 0;
+		while (it.hasNext()) {
+			it.next();
+			it.remove();
+			count++;
+		}
+		assertEquals(50, count);
+		assertTrue(numbers.isEmpty());
+	}
+
+	@Test
+	public void testTreeifiedComparableCollisions() {
+		var collisions = new SimpleHashtable<CollidingKey, Integer>();
+		for (int i = 0; i < 7; i++)
+			collisions.put(new CollidingKey(i), i);
+		assertFalse(collisions.isTreeified(new CollidingKey(0)));
+		// a small table is resized instead, until it is large enough to be treeified
+		for (int i = 7; i < 12; i++)
+			collisions.put(new CollidingKey(i), i);
+		assertTrue(collisions.isTreeified(new CollidingKey(0)));
+		for (int i = 12; i < 500; i++)
+			collisions.put(new CollidingKey(i), i);
+		assertEquals(500, collisions.size());
+		assertTrue(collisions.isTreeified(new CollidingKey(0)));
+		for (int i = 0; i < 500; i++)
+			assertEquals(i, collisions.get(new CollidingKey(i)));
+		for (int i = 0; i < 500; i += 2)
+			assertEquals(i, collisions.remove(new CollidingKey(i)));
+		for (int i = 1; i < 500; i += 2)
+			assertTrue(collisions.containsKey(new CollidingKey(i)));
+		assertEquals(250, collisions.toArray().length);
+		for (int i = 1; i < 490; i += 2)
+			collisions.remove(new CollidingKey(i));
+		assertFalse(collisions.isTreeified(new CollidingKey(491)));
+	}
+
+	@Test
+	public void testTreeifiedNonComparableCollisions() {
+		var collisions = new SimpleHashtable<Object, Integer>(64, true);
+		for (int i = 0; i < 300; i++)
+			collisions.put(new NonComparableKey(i), i);
+		collisions.put(new CollidingKey(-1), -1);
+		assertTrue(collisions.isTreeified(new NonComparableKey(0)));
+		for (int i = 0; i < 300; i++)
+			assertEquals(i, collisions.get(new NonComparableKey(i)));
+		assertEquals(-1, collisions.get(new CollidingKey(-1)));
+
+		var it = collisions.iterator();
+		int count = 0;
+		while (it.hasNext()) {
+			it.next();
+			it.remove();
+			count++;
+		}
+		assertEquals(301, count);
+		assertTrue(collisions.isEmpty());
+	}
+
+	@Test
+	public void testKeysDifferingInHighBits() {
+		var numbers = new SimpleHashtable<Integer, Integer>();
+		for (int i = 0; i < 1000; i++)
+			numbers.put(i << 20, i);
+		for (int i = 0; i < 1000; i++)
+			assertEquals(i, numbers.get(i << 20));
+	}
+
+	@Test
+	public void testParallelStreamWhileMigrating() {
+		var numbers = new SimpleHashtable<Integer, Integer>(64, true);
+		for (int i = 0; i < 10_000; i++)
+			numbers.put(i, i);
+		numbers.put(-1, -1);
+		assertEquals(numbers.size(), numbers.parallelStream().count());
+		assertEquals(49_995_000L - 1, numbers.parallelStream().mapToLong(e -> e.getValue()).sum());
+		assertEquals(numbers.size(), numbers.stream().map(e -> e.getKey()).distinct().count());
+	}
+
+	@Test
+	public void testStreamOverTreeifiedSlots() {
+		var collisions = new SimpleHashtable<CollidingKey, Integer>();
+		for (int i = 0; i < 100; i++)
+			collisions.put(new CollidingKey(i), i);
+		assertEquals(4950, collisions.parallelStream().mapToInt(e -> e.getValue()).sum());
+	}
+
+	@Test
+	public void testStreamDetectsModification() {
+		table.put("Key", "Value");
+		assertThrows(ConcurrentModificationException.class,
+				() -> table.stream().forEach(e -> table.put(e.getValue(), e.getKey())));
+	}
+
+	/** Key whose every instance has the same hash code */
+	private record CollidingKey(int id) implements Comparable<CollidingKey> {
+		@Override
+		public int hashCode() {
+			return 42;
+		}
+
+		@Override
+		public int compareTo(CollidingKey other) {
+			return Integer.compare(id, other.id);
+		}
+	}
+
+	/** Key whose every instance has the same hash code, but can't be ordered */
+	private record NonComparableKey(int id) {
+		@Override
+		public int hashCode() {
+			return 42;
+		}
+	}
+
 	private void fillTable() {
 		table.put("Key", "Value");
 		table.put("Mujo", "Haso");
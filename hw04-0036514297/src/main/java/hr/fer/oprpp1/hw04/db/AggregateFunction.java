@@ -0,0 +1,47 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.Locale;
+
+/** Enumeration modeling aggregate functions of queries */
+public enum AggregateFunction {
+	COUNT, AVG, MIN, MAX;
+
+	/**
+	 * Name of the function in queries
+	 * 
+	 * @return lower case name
+	 */
+	public String keyword() {
+		return name().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Name of the column holding values of the function
+	 * 
+	 * @return label of the function
+	 */
+	public String label() {
+		return this == COUNT ? keyword() : keyword() + "(finalGrade)";
+	}
+
+	/**
+	 * Computes the function from the accumulated grades
+	 * 
+	 * @param grades accumulated grades of selected records
+	 * @return formatted value, <code>-</code> if it is undefined for no records
+	 */
+	public String valueOf(GradeAccumulator grades) {
+		if (this == COUNT)
+			return Long.toString(grades.getCount());
+		if (grades.getCount() == 0)
+			return "-";
+		switch (this) {
+		case AVG:
+			return String.format(Locale.ROOT, "%.2f", grades.getAverage());
+		case MIN:
+			return Integer.toString(grades.getMin());
+		default:
+			return Integer.toString(grades.getMax());
+		}
+	}
+}
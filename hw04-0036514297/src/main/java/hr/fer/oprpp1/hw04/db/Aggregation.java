@@ -0,0 +1,158 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregate part of a query. Functions of the final grade are computed over
+ * all selected records or, if the query is grouped, over each group of records
+ * sharing the value of a field. Records are accumulated one at a time, so they
+ * are never collected into a list
+ */
+public class Aggregation {
+
+	/** Functions computed for every group, in order of output */
+	private final List<AggregateFunction> functions;
+	/** Getter of the field records are grouped by, <code>null</code> if not grouped */
+	private final IFieldValueGetter groupBy;
+
+	/**
+	 * Constructs the aggregation
+	 * 
+	 * @param functions computed for every group
+	 * @param groupBy   getter of the field records are grouped by,
+	 *                  <code>null</code> to aggregate all of them together
+	 * @throws IllegalArgumentException if no function is given
+	 */
+	public Aggregation(List<AggregateFunction> functions, IFieldValueGetter groupBy) {
+		if (functions.isEmpty())
+			throw new IllegalArgumentException("No aggregate function given");
+		this.functions = List.copyOf(functions);
+		this.groupBy = groupBy;
+	}
+
+	public List<AggregateFunction> getFunctions() {
+		return functions;
+	}
+
+	public IFieldValueGetter getGroupBy() {
+		return groupBy;
+	}
+
+	/**
+	 * Checks whether records are aggregated in groups
+	 * 
+	 * @return true if they are
+	 */
+	public boolean isGrouped() {
+		return groupBy != null;
+	}
+
+	/**
+	 * Creates the empty result, to which records are added
+	 * 
+	 * @return new result
+	 */
+	public Result newResult() {
+		return new Result(groupBy);
+	}
+
+	/**
+	 * Collector accumulating records into results. Results of different parts of
+	 * the records are merged, so it can be used on parallel streams and scans
+	 * 
+	 * @return collector of results
+	 */
+	public Collector<StudentRecord, Result, Result> collector() {
+		return Collector.of(this::newResult, Result::add, Result::merge, Collector.Characteristics.IDENTITY_FINISH);
+	}
+
+	@Override
+	public String toString() {
+		var description = functions.stream().map(AggregateFunction::label).collect(Collectors.joining(", "));
+		return isGrouped() ? description + " by " + FieldValueGetters.nameOf(groupBy) : description;
+	}
+
+	/** Grades accumulated over all records or by the group they fall in */
+	public static class Result {
+		/** Getter of the grouping field, <code>null</code> if not grouped */
+		private final IFieldValueGetter groupBy;
+		/** Accumulator of all records */
+		private final GradeAccumulator total = new GradeAccumulator();
+		/** Accumulators of groups by the value of the grouping field */
+		private final Map<String, GradeAccumulator> groups = new HashMap<>();
+
+		private Result(IFieldValueGetter groupBy) {
+			this.groupBy = groupBy;
+		}
+
+		/**
+		 * Adds the record
+		 * 
+		 * @param record to be added
+		 */
+		public void add(StudentRecord record) {
+			add(groupBy == null ? null : groupBy.get(record), record.getFinalGrade());
+		}
+
+		/**
+		 * Adds the grade of a record to its group, which lets stores add records
+		 * without constructing them
+		 * 
+		 * @param key   value of the grouping field, ignored if not grouped
+		 * @param grade of the record
+		 */
+		public void add(String key, int grade) {
+			total.add(grade);
+			if (groupBy != null)
+				groups.computeIfAbsent(key, (k) -> new GradeAccumulator()).add(grade);
+		}
+
+		/**
+		 * Adds all records of the other result, which has to be of the same
+		 * aggregation
+		 * 
+		 * @param other result of other records
+		 * @return this result
+		 */
+		public Result merge(Result other) {
+			total.merge(other.total);
+			for (var group : other.groups.entrySet())
+				groups.computeIfAbsent(group.getKey(), (k) -> new GradeAccumulator()).merge(group.getValue());
+			return this;
+		}
+
+		/**
+		 * Accumulator of all added records
+		 * 
+		 * @return accumulated grades
+		 */
+		public GradeAccumulator total() {
+			return total;
+		}
+
+		/**
+		 * Accumulators of groups ordered by the value of the grouping field. Groups
+		 * without records don't appear
+		 * 
+		 * @return groups by their value
+		 */
+		public SortedMap<String, GradeAccumulator> groups() {
+			return new TreeMap<>(groups);
+		}
+
+		/**
+		 * Number of rows of the result
+		 * 
+		 * @return number of groups, or one if not grouped
+		 */
+		public int size() {
+			return groupBy == null ? 1 : groups.size();
+		}
+	}
+}
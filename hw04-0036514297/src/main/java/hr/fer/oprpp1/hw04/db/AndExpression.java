@@ -0,0 +1,71 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Conjunction of expressions. Operands are tested in their order until one of
+ * them rejects the record
+ * 
+ * @param operands expressions which all have to be satisfied
+ */
+public record AndExpression(List<IQueryExpression> operands) implements IQueryExpression {
+
+	/**
+	 * Joins the expressions, flattening nested conjunctions
+	 * 
+	 * @param expressions to be joined
+	 * @return their conjunction, or the expression itself if there is just one
+	 */
+	public static IQueryExpression of(List<IQueryExpression> expressions) {
+		var operands = new ArrayList<IQueryExpression>();
+		for (var expr : expressions)
+			if (expr instanceof AndExpression and)
+				operands.addAll(and.operands());
+			else
+				operands.add(expr);
+		return operands.size() == 1 ? operands.get(0) : new AndExpression(List.copyOf(operands));
+	}
+
+	/**
+	 * Lists the conditions of an expression which only joins conditions with
+	 * <code>and</code>, the kind of query planned as a list
+	 * 
+	 * @param expression to be listed
+	 * @return its conditions, <code>null</code> if it has any other operand
+	 */
+	public static List<ConditionalExpression> conditionsOf(IQueryExpression expression) {
+		if (expression instanceof ConditionalExpression expr)
+			return List.of(expr);
+		if (!(expression instanceof AndExpression and))
+			return null;
+		var conditions = new ArrayList<ConditionalExpression>(and.operands().size());
+		for (var operand : and.operands()) {
+			if (!(operand instanceof ConditionalExpression expr))
+				return null;
+			conditions.add(expr);
+		}
+		return conditions;
+	}
+
+	@Override
+	public boolean accepts(StudentRecord record) {
+		for (var operand : operands)
+			if (!operand.accepts(record))
+				return false;
+		return true;
+	}
+
+	@Override
+	public IQueryExpression negate() {
+		return OrExpression.of(operands.stream().map(IQueryExpression::negate).toList());
+	}
+
+	@Override
+	public String toString() {
+		return operands.stream()
+				.map((operand) -> operand instanceof OrExpression ? "(" + operand + ")" : operand.toString())
+				.collect(Collectors.joining(" and "));
+	}
+}
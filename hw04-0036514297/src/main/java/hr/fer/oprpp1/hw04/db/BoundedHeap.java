@@ -0,0 +1,80 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Heap keeping the smallest elements added to it, up to its capacity. The
+ * largest kept element is on top, so adding <code>n</code> elements costs
+ * <code>O(n log k)</code> for capacity <code>k</code>, and no more than
+ * <code>k</code> of them are held at once
+ * 
+ * @param <T> type of elements
+ */
+public class BoundedHeap<T> {
+
+	/** Order of elements, smallest first */
+	private final Comparator<T> comparator;
+	/** Largest number of kept elements */
+	private final int capacity;
+	/** Kept elements, largest on top */
+	private final PriorityQueue<T> heap;
+
+	/**
+	 * Constructs the empty heap
+	 * 
+	 * @param comparator order of elements, smallest first
+	 * @param capacity   largest number of kept elements
+	 * @throws IllegalArgumentException if <code>capacity</code> is negative
+	 */
+	public BoundedHeap(Comparator<T> comparator, int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("Capacity can't be negative");
+		this.comparator = comparator;
+		this.capacity = capacity;
+		heap = new PriorityQueue<>(Math.max(1, Math.min(capacity, 1024)), Collections.reverseOrder(comparator));
+	}
+
+	/**
+	 * Adds the element if it is among the smallest ones added so far
+	 * 
+	 * @param element to be added
+	 */
+	public void add(T element) {
+		if (heap.size() < capacity)
+			heap.add(element);
+		else if (capacity > 0 && comparator.compare(element, heap.peek()) < 0) {
+			heap.poll();
+			heap.add(element);
+		}
+	}
+
+	/**
+	 * Adds elements kept by the other heap
+	 * 
+	 * @param other heap of other elements
+	 * @return this heap
+	 */
+	public BoundedHeap<T> merge(BoundedHeap<T> other) {
+		other.heap.forEach(this::add);
+		return this;
+	}
+
+	public int size() {
+		return heap.size();
+	}
+
+	/**
+	 * Copies the kept elements in order
+	 * 
+	 * @return sorted list of the smallest elements
+	 */
+	public List<T> toSortedList() {
+		var list = new ArrayList<>(heap);
+		list.sort(comparator);
+		return list;
+	}
+}
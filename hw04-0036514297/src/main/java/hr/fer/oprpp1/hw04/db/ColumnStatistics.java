@@ -0,0 +1,61 @@
+package hr.fer.oprpp1.hw04.db;
+
+/**
+ * Statistics of one field collected while loading the database. They are used
+ * for estimating how many records a predicate selects when the field has no
+ * index giving exact counts
+ * 
+ * @param rows     number of records
+ * @param distinct number of distinct values
+ * @param min      smallest value, <code>null</code> if there are no records
+ * @param max      largest value, <code>null</code> if there are no records
+ */
+public record ColumnStatistics(int rows, int distinct, String min, String max) {
+
+	/**
+	 * Collects statistics from values sorted in ascending order
+	 * 
+	 * @param sortedValues of the field
+	 * @return statistics of the field
+	 */
+	public static ColumnStatistics ofSorted(String[] sortedValues) {
+		if (sortedValues.length == 0)
+			return new ColumnStatistics(0, 0, null, null);
+		int distinct = 1;
+		for (int i = 1; i < sortedValues.length; i++)
+			if (!sortedValues[i].equals(sortedValues[i - 1]))
+				distinct++;
+		return new ColumnStatistics(sortedValues.length, distinct, sortedValues[0],
+				sortedValues[sortedValues.length - 1]);
+	}
+
+	/**
+	 * Estimates the fraction of records satisfying the predicate. Values are
+	 * assumed to be spread evenly among the distinct ones, and a range predicate
+	 * is assumed to select a third of them
+	 * 
+	 * @param operator of the predicate
+	 * @param literal  of the predicate
+	 * @return estimated fraction of selected records
+	 */
+	public double selectivity(IComparisonOperator operator, String literal) {
+		if (rows == 0)
+			return 0;
+		if (operator == ComparisonOperators.EQUALS)
+			return inBounds(literal) ? 1.0 / distinct : 0;
+		if (operator == ComparisonOperators.NOT_EQUALS)
+			return inBounds(literal) ? 1 - 1.0 / distinct : 1;
+		if (operator == ComparisonOperators.LIKE)
+			return literal.indexOf('*') < 0 ? selectivity(ComparisonOperators.EQUALS, literal) : 0.1;
+		if (operator == ComparisonOperators.LESS || operator == ComparisonOperators.LESS_OR_EQUALS)
+			return literal.compareTo(min) < 0 ? 0 : literal.compareTo(max) > 0 ? 1 : 1 / 3.0;
+		if (operator == ComparisonOperators.GREATER || operator == ComparisonOperators.GREATER_OR_EQUALS)
+			return literal.compareTo(max) > 0 ? 0 : literal.compareTo(min) < 0 ? 1 : 1 / 3.0;
+		return 1;
+	}
+
+	/** Checks whether the value lies between the smallest and the largest one */
+	private boolean inBounds(String value) {
+		return value.compareTo(min) >= 0 && value.compareTo(max) <= 0;
+	}
+}
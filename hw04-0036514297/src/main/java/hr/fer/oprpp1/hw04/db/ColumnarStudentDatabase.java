@@ -0,0 +1,582 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Database storing every field of the records in its own column. Names are
+ * dictionary encoded, JMBAGs are kept as numbers and final grades as bytes.
+ * Queries are evaluated column by column into a selection bitmap, and records
+ * are only built for the selected rows
+ */
+public class ColumnarStudentDatabase {
+
+	private static final String SAME_JMBAG_MSG = "Student with same JMBAG already exists ";
+	/** Initial number of rows of columns which are being built */
+	private static final int INITIAL_ROWS = 16;
+
+	/** Number of stored records */
+	private final int size;
+	private final Column jmbags;
+	private final DictionaryColumn lastNames;
+	private final DictionaryColumn firstNames;
+	private final byte[] finalGrades;
+
+	/** Initializes the database with given entry strings */
+	public ColumnarStudentDatabase(List<String> databaseEntries) {
+		this(parseAll(databaseEntries));
+	}
+
+	/**
+	 * Initializes the database from the built columns
+	 * 
+	 * @param columns holding every appended record
+	 * @throws JmbagAlreadyExistsException if two records have the same JMBAG
+	 */
+	private ColumnarStudentDatabase(ColumnsBuilder columns) {
+		size = columns.size;
+		jmbags = columns.buildJmbags();
+		lastNames = columns.lastNames.build();
+		firstNames = columns.firstNames.build();
+		finalGrades = Arrays.copyOf(columns.finalGrades, size);
+	}
+
+	/**
+	 * Loads the database from the file of tab separated records, appending each
+	 * record to the columns as soon as it is read
+	 * 
+	 * @param file to load from
+	 * @return loaded database
+	 * @throws IOException                 if reading the file fails
+	 * @throws MalformedRecordException    if a line isn't a valid record
+	 * @throws JmbagAlreadyExistsException if two records have the same JMBAG
+	 */
+	public static ColumnarStudentDatabase load(Path file) throws IOException {
+		var columns = new ColumnsBuilder();
+		try (var reader = new StudentRecordReader(file)) {
+			for (var rec = reader.next(); rec != null; rec = reader.next())
+				columns.add(rec);
+		}
+		return new ColumnarStudentDatabase(columns);
+	}
+
+	private static ColumnsBuilder parseAll(List<String> databaseEntries) {
+		var columns = new ColumnsBuilder();
+		for (String line : databaseEntries)
+			columns.add(StudentDatabase.StudentRecordParser.parseStudentRecord(line));
+		return columns;
+	}
+
+	/**
+	 * Number of stored records
+	 * 
+	 * @return size of the database
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Builds the record stored in the row
+	 * 
+	 * @param row of the record
+	 * @return record
+	 * @throws IndexOutOfBoundsException if <code>row</code> is misused
+	 */
+	public StudentRecord get(int row) {
+		return new StudentRecord(jmbags.get(row), firstNames.get(row), lastNames.get(row), finalGrades[row]);
+	}
+
+	/**
+	 * Retrieves the record by scanning the JMBAG column
+	 * 
+	 * @param jmbag to search
+	 * @return record containing given jmbag, <code>null</code> if there is none
+	 */
+	public StudentRecord forJMBAG(String jmbag) {
+		var selection = select(
+				List.of(new ConditionalExpression(FieldValueGetters.JMBAG, jmbag, ComparisonOperators.EQUALS)));
+		int row = selection.nextSetBit(0);
+		return row < 0 ? null : get(row);
+	}
+
+	/**
+	 * Selects rows satisfying every expression
+	 * 
+	 * @param expressions which have to be satisfied
+	 * @return bitmap of selected rows
+	 */
+	public BitSet select(List<ConditionalExpression> expressions) {
+		var selection = new BitSet(size);
+		selection.set(0, size);
+		for (var expr : expressions) {
+			if (selection.isEmpty())
+				break;
+			var column = columnOf(expr.getFieldGetter());
+			if (column != null)
+				column.retain(expr, selection);
+			else if (expr.getFieldGetter() == FieldValueGetters.FINAL_GRADE)
+				retainGrades(GradeIndex.gradesSatisfying(List.of(expr)), selection);
+			else
+				for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1))
+					if (!expr.accepts(get(row)))
+						selection.clear(row);
+		}
+		return selection;
+	}
+
+	/**
+	 * Clears selected rows whose final grade isn't one of the grades
+	 * 
+	 * @param grades    mask of grades, as in <code>GradeIndex</code>
+	 * @param selection bitmap of selected rows
+	 */
+	private void retainGrades(int grades, BitSet selection) {
+		for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1))
+			if ((grades & 1 << finalGrades[row]) == 0)
+				selection.clear(row);
+	}
+
+	/**
+	 * Returns all records satisfying every expression, in database order
+	 * 
+	 * @param expressions which have to be satisfied
+	 * @return list of records
+	 */
+	public List<StudentRecord> query(List<ConditionalExpression> expressions) {
+		return recordsOf(select(expressions));
+	}
+
+	/**
+	 * Selects rows satisfying the expression tree. Every node is evaluated on
+	 * whole bitmaps, with conditions of a conjunction evaluated together
+	 * 
+	 * @param expression which has to be satisfied
+	 * @return bitmap of selected rows
+	 */
+	public BitSet select(IQueryExpression expression) {
+		var conditions = AndExpression.conditionsOf(expression);
+		if (conditions != null)
+			return select(conditions);
+		if (expression instanceof NotExpression not) {
+			var selection = select(not.operand());
+			selection.flip(0, size);
+			return selection;
+		}
+		if (expression instanceof OrExpression or) {
+			var selection = new BitSet(size);
+			for (var operand : or.operands())
+				selection.or(select(operand));
+			return selection;
+		}
+		var and = (AndExpression) expression;
+		var others = new ArrayList<IQueryExpression>();
+		conditions = new ArrayList<>();
+		for (var operand : and.operands())
+			if (operand instanceof ConditionalExpression expr)
+				conditions.add(expr);
+			else
+				others.add(operand);
+		var selection = select(conditions);
+		for (var operand : others) {
+			if (selection.isEmpty())
+				break;
+			selection.and(select(operand));
+		}
+		return selection;
+	}
+
+	/**
+	 * Returns all records satisfying the expression tree, in database order
+	 * 
+	 * @param expression which has to be satisfied
+	 * @return list of records
+	 */
+	public List<StudentRecord> query(IQueryExpression expression) {
+		return recordsOf(select(expression));
+	}
+
+	/**
+	 * Returns the page of records satisfying the expression tree in the given
+	 * order. Only the wanted records are kept, in a bounded heap
+	 * 
+	 * @param expression which has to be satisfied
+	 * @param ordering   of the records and the page of them to return
+	 * @return list of records
+	 */
+	public List<StudentRecord> query(IQueryExpression expression, Ordering ordering) {
+		return select(expression).stream().mapToObj(this::get).collect(ordering.collector());
+	}
+
+	/**
+	 * Aggregates rows satisfying the expression tree, reading only the grade and
+	 * grouping columns of selected rows
+	 * 
+	 * @param expression  which has to be satisfied
+	 * @param aggregation computed over the rows
+	 * @return result of the aggregation
+	 */
+	public Aggregation.Result aggregate(IQueryExpression expression, Aggregation aggregation) {
+		var selection = select(expression);
+		var result = aggregation.newResult();
+		var getter = aggregation.getGroupBy();
+		var column = getter == null ? null : columnOf(getter);
+		for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1)) {
+			String key = null;
+			if (column != null)
+				key = column.get(row);
+			else if (getter != null)
+				key = Integer.toString(finalGrades[row]);
+			result.add(key, finalGrades[row]);
+		}
+		return result;
+	}
+
+	/** Collects the selected records */
+	private List<StudentRecord> recordsOf(BitSet selection) {
+		var records = new ArrayList<StudentRecord>(selection.cardinality());
+		for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1))
+			records.add(get(row));
+		return records;
+	}
+
+	/**
+	 * Finds the column of the field
+	 * 
+	 * @param getter of the field
+	 * @return its column, <code>null</code> if the field isn't stored as one
+	 */
+	private Column columnOf(IFieldValueGetter getter) {
+		if (getter == FieldValueGetters.JMBAG)
+			return jmbags;
+		if (getter == FieldValueGetters.LAST_NAME)
+			return lastNames;
+		if (getter == FieldValueGetters.FIRST_NAME)
+			return firstNames;
+		return null;
+	}
+
+	/** Column of string values */
+	private interface Column {
+		/**
+		 * Value stored in the row
+		 * 
+		 * @param row of the value
+		 * @return value
+		 */
+		String get(int row);
+
+		/**
+		 * Clears selected rows whose values don't satisfy the expression
+		 * 
+		 * @param expr      on the field of the column
+		 * @param selection bitmap of selected rows
+		 */
+		void retain(ConditionalExpression expr, BitSet selection);
+	}
+
+	/**
+	 * Column storing a code per row, where codes index a sorted dictionary of
+	 * distinct values. Any expression is evaluated once per distinct value, after
+	 * which rows only look up their code
+	 */
+	private static class DictionaryColumn implements Column {
+		/** Distinct values in ascending order */
+		private final String[] dictionary;
+		/** Index of the value in <code>dictionary</code> for every row */
+		private final int[] codes;
+
+		public DictionaryColumn(String[] dictionary, int[] codes) {
+			this.dictionary = dictionary;
+			this.codes = codes;
+		}
+
+		@Override
+		public String get(int row) {
+			return dictionary[codes[row]];
+		}
+
+		@Override
+		public void retain(ConditionalExpression expr, BitSet selection) {
+			var accepted = new boolean[dictionary.length];
+			for (int code = 0; code < dictionary.length; code++)
+				accepted[code] = expr.matches(dictionary[code]);
+			for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1))
+				if (!accepted[codes[row]])
+					selection.clear(row);
+		}
+	}
+
+	/**
+	 * Column of JMBAGs made of exactly <code>DIGITS</code> decimal digits, stored
+	 * as numbers. Strings of equal length and only digits compare the same way as
+	 * their numbers, so every predicate becomes a numeric one
+	 */
+	private static class JmbagColumn implements Column {
+		/** Number of digits of every JMBAG */
+		private static final int DIGITS = 10;
+		/** Number of distinct JMBAGs */
+		private static final long LIMIT = pow10(DIGITS);
+
+		private final long[] values;
+
+		public JmbagColumn(long[] values) {
+			this.values = values;
+		}
+
+		/**
+		 * Checks whether the JMBAG can be stored in this column
+		 * 
+		 * @param jmbag to be stored
+		 * @return true if it is made of exactly <code>DIGITS</code> digits
+		 */
+		public static boolean fits(String jmbag) {
+			return jmbag.length() == DIGITS && isDigits(jmbag);
+		}
+
+		@Override
+		public String get(int row) {
+			return format(values[row]);
+		}
+
+		@Override
+		public void retain(ConditionalExpression expr, BitSet selection) {
+			var operator = expr.getComparisonOperator();
+			var literal = expr.getStringLiteral();
+			if (operator == ComparisonOperators.LESS)
+				retainBetween(selection, 0, lowerBound(literal), false);
+			else if (operator == ComparisonOperators.LESS_OR_EQUALS)
+				retainBetween(selection, 0, upperBound(literal), false);
+			else if (operator == ComparisonOperators.GREATER)
+				retainBetween(selection, upperBound(literal), LIMIT, false);
+			else if (operator == ComparisonOperators.GREATER_OR_EQUALS)
+				retainBetween(selection, lowerBound(literal), LIMIT, false);
+			else if (operator == ComparisonOperators.EQUALS)
+				retainBetween(selection, lowerBound(literal), upperBound(literal), false);
+			else if (operator == ComparisonOperators.NOT_EQUALS)
+				retainBetween(selection, lowerBound(literal), upperBound(literal), true);
+			else if (operator == ComparisonOperators.LIKE)
+				retainLike(selection, LikePattern.compile(literal));
+			else
+				for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1))
+					if (!expr.matches(get(row)))
+						selection.clear(row);
+		}
+
+		/**
+		 * Clears selected rows whose values are outside the interval, or inside it
+		 * when inverted
+		 * 
+		 * @param selection bitmap of selected rows
+		 * @param from      smallest value of the interval
+		 * @param to        value behind the largest one of the interval
+		 * @param inverted  whether rows inside the interval are cleared
+		 */
+		private void retainBetween(BitSet selection, long from, long to, boolean inverted) {
+			for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1)) {
+				long value = values[row];
+				if ((value >= from && value < to) == inverted)
+					selection.clear(row);
+			}
+		}
+
+		/**
+		 * Clears selected rows not matching the pattern. A wildcard matches any
+		 * digits, so a value matches if its leading digits equal the prefix and its
+		 * trailing digits equal the suffix
+		 * 
+		 * @param selection bitmap of selected rows
+		 * @param pattern   compiled <code>LIKE</code> pattern
+		 */
+		private void retainLike(BitSet selection, LikePattern pattern) {
+			var prefix = pattern.getPrefix();
+			if (!pattern.hasWildcard()) {
+				retainBetween(selection, lowerBound(prefix), upperBound(prefix), false);
+				return;
+			}
+			var suffix = pattern.getSuffix();
+			if (prefix.length() + suffix.length() > DIGITS || !isDigits(prefix) || !isDigits(suffix)) {
+				selection.clear();
+				return;
+			}
+			long prefixDivisor = pow10(DIGITS - prefix.length());
+			long prefixValue = prefix.isEmpty() ? 0 : Long.parseLong(prefix);
+			long suffixModulus = pow10(suffix.length());
+			long suffixValue = suffix.isEmpty() ? 0 : Long.parseLong(suffix);
+			for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1)) {
+				long value = values[row];
+				if (value / prefixDivisor != prefixValue || value % suffixModulus != suffixValue)
+					selection.clear(row);
+			}
+		}
+
+		/** Smallest number whose JMBAG isn't less than the literal */
+		private static long lowerBound(String literal) {
+			return firstNumber(literal, false);
+		}
+
+		/** Smallest number whose JMBAG is greater than the literal */
+		private static long upperBound(String literal) {
+			return firstNumber(literal, true);
+		}
+
+		/**
+		 * Binary search over all numbers for the first one whose JMBAG is greater
+		 * than, or if not strict equal to, the literal
+		 * 
+		 * @param literal to be compared with
+		 * @param strict  whether equal JMBAG is skipped
+		 * @return first such number, <code>LIMIT</code> if there is none
+		 */
+		private static long firstNumber(String literal, boolean strict) {
+			long low = 0;
+			long high = LIMIT;
+			while (low < high) {
+				long middle = (low + high) >>> 1;
+				int comparison = format(middle).compareTo(literal);
+				if (comparison < 0 || strict && comparison == 0)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			return low;
+		}
+
+		/** Writes the number as JMBAG, padded with leading zeros */
+		private static String format(long number) {
+			var digits = Long.toString(number);
+			return "0".repeat(DIGITS - digits.length()) + digits;
+		}
+
+		private static boolean isDigits(String value) {
+			for (int i = 0; i < value.length(); i++)
+				if (value.charAt(i) < '0' || value.charAt(i) > '9')
+					return false;
+			return true;
+		}
+
+		private static long pow10(int exponent) {
+			long power = 1;
+			for (int i = 0; i < exponent; i++)
+				power *= 10;
+			return power;
+		}
+	}
+
+	/**
+	 * Columns which are being built. Records are split into the columns as they
+	 * are appended, so none of them has to be kept. JMBAGs are kept as numbers
+	 * until the first one which doesn't fit, after which they are dictionary
+	 * encoded like names
+	 */
+	private static class ColumnsBuilder {
+		/** JMBAGs as numbers, <code>null</code> once they are dictionary encoded */
+		private long[] jmbags = new long[INITIAL_ROWS];
+		/** Dictionary encoded JMBAGs, <code>null</code> while they fit in numbers */
+		private DictionaryBuilder textJmbags;
+		private final DictionaryBuilder lastNames = new DictionaryBuilder();
+		private final DictionaryBuilder firstNames = new DictionaryBuilder();
+		private byte[] finalGrades = new byte[INITIAL_ROWS];
+		/** Number of appended records */
+		private int size;
+
+		/**
+		 * Appends the record to the columns
+		 * 
+		 * @param rec to be appended
+		 * @throws JmbagAlreadyExistsException if a dictionary encoded JMBAG repeats
+		 */
+		public void add(StudentRecord rec) {
+			var jmbag = rec.getJmbag();
+			if (textJmbags == null && !JmbagColumn.fits(jmbag)) {
+				textJmbags = new DictionaryBuilder();
+				for (int row = 0; row < size; row++)
+					addJmbag(JmbagColumn.format(jmbags[row]));
+				jmbags = null;
+			}
+			if (textJmbags != null)
+				addJmbag(jmbag);
+			else {
+				if (size == jmbags.length)
+					jmbags = Arrays.copyOf(jmbags, size << 1);
+				jmbags[size] = Long.parseLong(jmbag);
+			}
+			lastNames.add(rec.getLastName());
+			firstNames.add(rec.getFirstName());
+			if (size == finalGrades.length)
+				finalGrades = Arrays.copyOf(finalGrades, size << 1);
+			finalGrades[size++] = (byte) rec.getFinalGrade();
+		}
+
+		private void addJmbag(String jmbag) {
+			if (!textJmbags.add(jmbag))
+				throw new JmbagAlreadyExistsException(SAME_JMBAG_MSG, jmbag);
+		}
+
+		/**
+		 * Builds the JMBAG column, checking that no numeric JMBAG repeats
+		 * 
+		 * @return column of JMBAGs
+		 * @throws JmbagAlreadyExistsException if two records have the same JMBAG
+		 */
+		public Column buildJmbags() {
+			if (textJmbags != null)
+				return textJmbags.build();
+			var values = Arrays.copyOf(jmbags, size);
+			var sorted = values.clone();
+			Arrays.sort(sorted);
+			for (int i = 1; i < size; i++)
+				if (sorted[i] == sorted[i - 1])
+					throw new JmbagAlreadyExistsException(SAME_JMBAG_MSG, JmbagColumn.format(sorted[i]));
+			return new JmbagColumn(values);
+		}
+	}
+
+	/**
+	 * Dictionary column which is being built. Values are coded in order of their
+	 * first appearance, and codes are remapped to the sorted dictionary once all
+	 * rows are appended
+	 */
+	private static class DictionaryBuilder {
+		private final HashMap<String, Integer> codeOf = new HashMap<>();
+		private final ArrayList<String> values = new ArrayList<>();
+		private int[] codes = new int[INITIAL_ROWS];
+		private int size;
+
+		/**
+		 * Appends the value as the next row
+		 * 
+		 * @param value of the row
+		 * @return true if the value didn't appear before
+		 */
+		public boolean add(String value) {
+			var code = codeOf.get(value);
+			boolean first = code == null;
+			if (first) {
+				code = values.size();
+				codeOf.put(value, code);
+				values.add(value);
+			}
+			if (size == codes.length)
+				codes = Arrays.copyOf(codes, size << 1);
+			codes[size++] = code;
+			return first;
+		}
+
+		public DictionaryColumn build() {
+			var dictionary = values.toArray(new String[0]);
+			Arrays.sort(dictionary);
+			var sortedCode = new int[dictionary.length];
+			for (int code = 0; code < dictionary.length; code++)
+				sortedCode[codeOf.get(dictionary[code])] = code;
+			for (int row = 0; row < size; row++)
+				codes[row] = sortedCode[codes[row]];
+			return new DictionaryColumn(dictionary, Arrays.copyOf(codes, size));
+		}
+	}
+}
@@ -8,7 +8,80 @@ public class ComparisonOperators {
     public static final IComparisonOperator GREATER_OR_EQUALS = (l1, l2) -> !LESS.satisfied(l1, l2);
     public static final IComparisonOperator EQUALS = String::equals;
     public static final IComparisonOperator NOT_EQUALS = (l1, l2) -> !EQUALS.satisfied(l1, l2);
-    public static final IComparisonOperator LIKE = (l1, l2) -> l1
-            .matches(l2.replaceFirst("[*]", "[a-zA-Z0-9čćšđžČĆŠĐŽ]*"));
+    /**
+     * Compiles the pattern on every call, <code>ConditionalExpression</code>
+     * compiles it just once
+     */
+    public static final IComparisonOperator LIKE = (l1, l2) -> LikePattern.compile(l2).matches(l1);
 
+    /**
+     * Finds the symbol used for the operator in queries
+     *
+     * @param operator one of the constants
+     * @return its symbol, <code>null</code> for unknown operators
+     */
+    public static String symbolOf(IComparisonOperator operator) {
+        if (operator == LESS)
+            return "<";
+        if (operator == LESS_OR_EQUALS)
+            return "<=";
+        if (operator == GREATER)
+            return ">";
+        if (operator == GREATER_OR_EQUALS)
+            return ">=";
+        if (operator == EQUALS)
+            return "=";
+        if (operator == NOT_EQUALS)
+            return "!=";
+        if (operator == LIKE)
+            return "LIKE";
+        return null;
+    }
+
+    /**
+     * Finds the operator satisfied exactly when the given one isn't
+     *
+     * @param operator one of the constants
+     * @return complementary operator, <code>null</code> for <code>LIKE</code>
+     */
+    public static IComparisonOperator complementOf(IComparisonOperator operator) {
+        if (operator == LESS)
+            return GREATER_OR_EQUALS;
+        if (operator == LESS_OR_EQUALS)
+            return GREATER;
+        if (operator == GREATER)
+            return LESS_OR_EQUALS;
+        if (operator == GREATER_OR_EQUALS)
+            return LESS;
+        if (operator == EQUALS)
+            return NOT_EQUALS;
+        if (operator == NOT_EQUALS)
+            return EQUALS;
+        return null;
+    }
+
+    /**
+     * Checks whether the operator is satisfied by operands comparing as given,
+     * which lets it be applied on any ordered values, not just strings
+     *
+     * @param operator   one of the constants other than <code>LIKE</code>
+     * @param comparison result of comparing the first operand to the second one
+     * @return true if operator is satisfied
+     * @throws IllegalArgumentException if the operator doesn't compare by order
+     */
+    public static boolean holds(IComparisonOperator operator, int comparison) {
+        if (operator == LESS)
+            return comparison < 0;
+        if (operator == LESS_OR_EQUALS)
+            return comparison <= 0;
+        if (operator == GREATER)
+            return comparison > 0;
+        if (operator == GREATER_OR_EQUALS)
+            return comparison >= 0;
+        if (operator == EQUALS)
+            return comparison == 0;
+        if (operator == NOT_EQUALS)
+            return comparison != 0;
+        throw new IllegalArgumentException("Operator doesn't compare by order: " + symbolOf(operator));
+    }
 }
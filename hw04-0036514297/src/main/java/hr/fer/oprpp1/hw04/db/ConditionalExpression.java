@@ -1,15 +1,68 @@
 package hr.fer.oprpp1.hw04.db;
 
-public class ConditionalExpression {
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+public class ConditionalExpression implements IQueryExpression {
 	private final IFieldValueGetter fieldGetter;
 	private final String stringLiteral;
 	private final IComparisonOperator comparisonOperator;
+	/** Operator bound to the literal, with <code>LIKE</code> patterns compiled */
+	private final Predicate<String> matcher;
+	/** Getter of the field as a number, <code>null</code> for text fields */
+	private final ToIntFunction<StudentRecord> numericGetter;
+	/** Literal as a number, used with <code>numericGetter</code> */
+	private final int numericLiteral;
 
-	/** Constructs the expression */
+	/**
+	 * Constructs the expression. Numeric fields are compared as numbers, so their
+	 * literal has to be a number
+	 * 
+	 * @throws NumberFormatException    if a numeric field gets another literal
+	 * @throws IllegalArgumentException if a numeric field gets <code>LIKE</code>
+	 */
 	public ConditionalExpression(IFieldValueGetter getter, String literal, IComparisonOperator operator) {
 		this.fieldGetter = getter;
 		this.stringLiteral = literal;
 		this.comparisonOperator = operator;
+		numericGetter = FieldValueGetters.numericOf(getter);
+		if (numericGetter != null) {
+			if (operator == ComparisonOperators.LIKE)
+				throw new IllegalArgumentException("LIKE can't be used on numeric fields");
+			int number = Integer.parseInt(literal);
+			numericLiteral = number;
+			matcher = (value) -> ComparisonOperators.holds(operator, Integer.compare(Integer.parseInt(value), number));
+			return;
+		}
+		numericLiteral = 0;
+		if (operator == ComparisonOperators.LIKE)
+			matcher = LikePattern.compile(literal)::matches;
+		else
+			matcher = (value) -> operator.satisfied(value, literal);
+	}
+
+	/**
+	 * Tests if record satisfies the expression
+	 * 
+	 * @param record to test
+	 * @return true if it does
+	 */
+	@Override
+	public boolean accepts(StudentRecord record) {
+		if (numericGetter != null)
+			return ComparisonOperators.holds(comparisonOperator,
+					Integer.compare(numericGetter.applyAsInt(record), numericLiteral));
+		return matcher.test(fieldGetter.get(record));
+	}
+
+	/**
+	 * Tests if the value of the field satisfies the expression
+	 * 
+	 * @param value of the field
+	 * @return true if it does
+	 */
+	public boolean matches(String value) {
+		return matcher.test(value);
 	}
 
 	public IFieldValueGetter getFieldGetter() {
@@ -24,4 +77,34 @@ public class ConditionalExpression {
 		return comparisonOperator;
 	}
 
+	/**
+	 * Checks whether the field is compared as a number
+	 * 
+	 * @return true if it is
+	 */
+	public boolean isNumeric() {
+		return numericGetter != null;
+	}
+
+	/**
+	 * Negates the expression by the complementary operator. <code>LIKE</code>
+	 * has none, so it is wrapped in <code>NotExpression</code>
+	 * 
+	 * @return negated expression
+	 */
+	@Override
+	public IQueryExpression negate() {
+		var complement = ComparisonOperators.complementOf(comparisonOperator);
+		if (complement == null)
+			return new NotExpression(this);
+		return new ConditionalExpression(fieldGetter, stringLiteral, complement);
+	}
+
+	@Override
+	public String toString() {
+		var literal = isNumeric() ? stringLiteral : "\"" + stringLiteral + "\"";
+		return FieldValueGetters.nameOf(fieldGetter) + " " + ComparisonOperators.symbolOf(comparisonOperator) + " "
+				+ literal;
+	}
+
 }
@@ -0,0 +1,298 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Student database whose changes survive restarts. Every batch of mutations is
+ * checked and built as the next version of the database, appended to a
+ * write-ahead log, and shown to readers once the log is on disk, so readers
+ * never see a change which could be lost. Writers committing at the same time
+ * share one disk synchronization.
+ * <p>
+ * Once the log grows past the threshold, a background thread compacts it. The
+ * log is renamed to the old log and a new one is started, then the version
+ * covering the old log is written as the base snapshot and forced to disk, and
+ * only then the old log is deleted. Writers keep committing to the new log
+ * meanwhile.
+ * <p>
+ * On opening, the base snapshot is loaded, or the text file if there is no
+ * snapshot yet, and the old log and the log are replayed on top of it as one
+ * change. Replaying is idempotent, so a crash during compaction only replays
+ * changes the snapshot may already hold
+ */
+public class DurableStudentDatabase implements Closeable {
+
+	/** Name of the base snapshot in the directory */
+	public static final String SNAPSHOT_FILE = "base.snapshot";
+	/** Name of the write-ahead log in the directory */
+	public static final String LOG_FILE = "mutations.wal";
+	/** Name of the log being compacted into the snapshot */
+	public static final String OLD_LOG_FILE = "mutations.wal.old";
+	/** Default length of the log which triggers compaction */
+	public static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+
+	/** Database readers query directly */
+	private final StudentDatabase database;
+	private final Path directory;
+	/** Length of the log which triggers compaction */
+	private final long compactionThreshold;
+	/** Held by the one compaction running at a time */
+	private final Object compactionLock = new Object();
+
+	/** Log new batches are appended to, guarded by <code>this</code> */
+	private WriteAheadLog log;
+	/** Latest version appended to the log, possibly not on disk yet */
+	private StudentDatabase.State pending;
+	/** Thread of the last background compaction */
+	private Thread compactor;
+	/** Failure of a background compaction not reported yet */
+	private IOException compactionFailure;
+
+	private DurableStudentDatabase(StudentDatabase database, WriteAheadLog log, Path directory,
+			long compactionThreshold) {
+		this.database = database;
+		this.log = log;
+		this.directory = directory;
+		this.compactionThreshold = compactionThreshold;
+		database.makeReadOnly();
+		pending = database.getState();
+	}
+
+	/**
+	 * Opens the database kept in the directory
+	 * 
+	 * @param directory      holding the snapshot and the log
+	 * @param initialRecords text file loaded when there is no snapshot yet,
+	 *                       <code>null</code> to start empty
+	 * @return opened database
+	 * @throws IOException if reading fails
+	 */
+	public static DurableStudentDatabase open(Path directory, Path initialRecords) throws IOException {
+		return open(directory, initialRecords, DEFAULT_COMPACTION_THRESHOLD);
+	}
+
+	/**
+	 * Opens the database kept in the directory
+	 * 
+	 * @param directory           holding the snapshot and the log
+	 * @param initialRecords      text file loaded when there is no snapshot yet,
+	 *                            <code>null</code> to start empty
+	 * @param compactionThreshold length of the log which triggers compaction
+	 * @return opened database
+	 * @throws IOException              if reading fails
+	 * @throws InvalidSnapshotException if the base snapshot is invalid
+	 */
+	public static DurableStudentDatabase open(Path directory, Path initialRecords, long compactionThreshold)
+			throws IOException {
+		Files.createDirectories(directory);
+		var snapshotFile = directory.resolve(SNAPSHOT_FILE);
+		StudentDatabase database;
+		if (Files.exists(snapshotFile))
+			database = StudentDatabaseSnapshot.load(snapshotFile);
+		else if (initialRecords != null)
+			database = StudentDatabase.load(initialRecords);
+		else
+			database = new StudentDatabase(new ArrayList<>());
+		var replayed = new ArrayList<Mutation>();
+		var oldLogFile = directory.resolve(OLD_LOG_FILE);
+		if (Files.exists(oldLogFile))
+			WriteAheadLog.replay(oldLogFile, (batch) -> replayed.addAll(replayable(batch)));
+		var log = new WriteAheadLog(directory.resolve(LOG_FILE), (batch) -> replayed.addAll(replayable(batch)));
+		database.apply(replayed);
+		return new DurableStudentDatabase(database, log, directory, compactionThreshold);
+	}
+
+	/**
+	 * Database holding all committed changes, to be queried directly. It is
+	 * read-only, its mutating methods throw, since changes have to be logged by
+	 * this database before readers see them
+	 * 
+	 * @return read-only database
+	 */
+	public StudentDatabase getDatabase() {
+		return database;
+	}
+
+	/**
+	 * Durably adds the record
+	 * 
+	 * @param record to be added
+	 * @throws IOException                 if logging fails
+	 * @throws JmbagAlreadyExistsException if a record with the same JMBAG exists
+	 */
+	public void insert(StudentRecord record) throws IOException {
+		apply(List.of(Mutation.insert(record)));
+	}
+
+	/**
+	 * Durably replaces the record with the same JMBAG
+	 * 
+	 * @param record replacing the stored one
+	 * @return true if there was one to replace
+	 * @throws IOException if logging fails
+	 */
+	public boolean update(StudentRecord record) throws IOException {
+		return apply(List.of(Mutation.update(record))) == 1;
+	}
+
+	/**
+	 * Durably removes the record with the JMBAG
+	 * 
+	 * @param jmbag of the removed record
+	 * @return true if there was one to remove
+	 * @throws IOException if logging fails
+	 */
+	public boolean delete(String jmbag) throws IOException {
+		return apply(List.of(Mutation.delete(jmbag))) == 1;
+	}
+
+	/**
+	 * Applies the mutations as one change and waits until it is logged on disk.
+	 * Readers see the change only after that
+	 * 
+	 * @param mutations to be applied
+	 * @return number of applied mutations
+	 * @throws IOException                 if logging fails, in which case the
+	 *                                     change is never shown to readers
+	 * @throws JmbagAlreadyExistsException if an insert repeats a JMBAG, in which
+	 *                                     case nothing is applied or logged
+	 */
+	public int apply(List<Mutation> mutations) throws IOException {
+		var frame = WriteAheadLog.encode(mutations);
+		StudentDatabase.Change change;
+		WriteAheadLog current;
+		long sequence;
+		synchronized (this) {
+			change = StudentDatabase.prepare(pending, mutations);
+			current = log;
+			sequence = current.append(frame);
+			pending = change.state();
+		}
+		current.awaitDurable(sequence);
+		database.publish(change.state());
+		if (current.size() >= compactionThreshold)
+			compactInBackground();
+		return change.applied();
+	}
+
+	/**
+	 * Starts a compaction unless one is running or the log has shrunk since. The
+	 * compaction repeats while writers fill the new log past the threshold
+	 */
+	private synchronized void compactInBackground() {
+		if (compactor != null && compactor.isAlive() || log.size() < compactionThreshold)
+			return;
+		compactor = new Thread(() -> {
+			try {
+				do
+					compact();
+				while (getLogSize() >= compactionThreshold);
+			} catch (IOException ex) {
+				synchronized (this) {
+					compactionFailure = ex;
+				}
+			}
+		}, "wal-compactor");
+		compactor.setDaemon(true);
+		compactor.start();
+	}
+
+	/**
+	 * Writes all logged changes as the base snapshot and clears the log. Writers
+	 * are blocked only while the log is renamed, not while the snapshot is
+	 * written
+	 * 
+	 * @throws IOException if writing fails
+	 */
+	public void compact() throws IOException {
+		var oldLogFile = directory.resolve(OLD_LOG_FILE);
+		synchronized (compactionLock) {
+			StudentDatabase.State covered;
+			synchronized (this) {
+				if (Files.exists(oldLogFile)) {
+					// a failed compaction left the old log, which stays until a snapshot covers it
+					log.sync();
+				} else {
+					log.close();
+					Files.move(directory.resolve(LOG_FILE), oldLogFile, StandardCopyOption.ATOMIC_MOVE);
+					StudentDatabaseSnapshot.forceDirectory(directory);
+					log = new WriteAheadLog(directory.resolve(LOG_FILE), (batch) -> {
+					});
+				}
+				covered = pending;
+			}
+			StudentDatabaseSnapshot.write(covered, directory.resolve(SNAPSHOT_FILE));
+			Files.delete(oldLogFile);
+			StudentDatabaseSnapshot.forceDirectory(directory);
+		}
+	}
+
+	/**
+	 * Waits for the background compaction to finish
+	 * 
+	 * @throws IOException if the last background compaction failed
+	 */
+	void awaitCompaction() throws IOException {
+		Thread running;
+		synchronized (this) {
+			running = compactor;
+		}
+		if (running != null) {
+			try {
+				running.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+		synchronized (this) {
+			var failure = compactionFailure;
+			compactionFailure = null;
+			if (failure != null)
+				throw failure;
+		}
+	}
+
+	/**
+	 * Length of the log since the last compaction
+	 * 
+	 * @return number of bytes
+	 */
+	public synchronized long getLogSize() {
+		return log.size();
+	}
+
+	/** Waits for the background compaction and closes the log */
+	@Override
+	public void close() throws IOException {
+		try {
+			awaitCompaction();
+		} finally {
+			synchronized (this) {
+				log.close();
+			}
+		}
+	}
+
+	/**
+	 * Rewrites the logged batch so that applying it again is harmless. Inserts
+	 * remove any record with the same JMBAG first, which turns them into plain
+	 * writes like updates and deletes already are
+	 */
+	private static List<Mutation> replayable(List<Mutation> batch) {
+		var replayed = new ArrayList<Mutation>(batch.size());
+		for (var mutation : batch) {
+			if (mutation.type() == MutationType.INSERT)
+				replayed.add(Mutation.delete(mutation.jmbag()));
+			replayed.add(mutation);
+		}
+		return replayed;
+	}
+}
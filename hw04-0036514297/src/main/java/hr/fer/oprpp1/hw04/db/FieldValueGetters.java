@@ -1,9 +1,54 @@
 package hr.fer.oprpp1.hw04.db;
 
+import java.util.function.ToIntFunction;
+
 public class FieldValueGetters {
 
 	public static final IFieldValueGetter FIRST_NAME = StudentRecord::getFirstName;
 	public static final IFieldValueGetter LAST_NAME = StudentRecord::getLastName;
 	public static final IFieldValueGetter JMBAG = StudentRecord::getJmbag;
+	public static final IFieldValueGetter FINAL_GRADE = (record) -> Integer.toString(record.getFinalGrade());
+
+	/**
+	 * Finds the attribute name of the field in queries
+	 * 
+	 * @param getter one of the constants
+	 * @return name of the field, <code>null</code> for unknown getters
+	 */
+	public static String nameOf(IFieldValueGetter getter) {
+		if (getter == FIRST_NAME)
+			return "firstName";
+		if (getter == LAST_NAME)
+			return "lastName";
+		if (getter == JMBAG)
+			return "jmbag";
+		if (getter == FINAL_GRADE)
+			return "finalGrade";
+		return null;
+	}
+
+	/**
+	 * Finds the getter of the field by its attribute name, ignoring case
+	 * 
+	 * @param name of the field in queries
+	 * @return getter of the field, <code>null</code> for unknown names
+	 */
+	public static IFieldValueGetter forName(String name) {
+		for (var getter : new IFieldValueGetter[] { FIRST_NAME, LAST_NAME, JMBAG, FINAL_GRADE })
+			if (nameOf(getter).equalsIgnoreCase(name))
+				return getter;
+		return null;
+	}
 
+	/**
+	 * Finds the getter of the field as a number, for fields compared numerically
+	 * 
+	 * @param getter one of the constants
+	 * @return numeric getter, <code>null</code> if the field is compared as text
+	 */
+	public static ToIntFunction<StudentRecord> numericOf(IFieldValueGetter getter) {
+		if (getter == FINAL_GRADE)
+			return StudentRecord::getFinalGrade;
+		return null;
+	}
 }
@@ -0,0 +1,100 @@
+package hr.fer.oprpp1.hw04.db;
+
+/**
+ * Accumulator of final grades, from which every aggregate function is
+ * computed. Accumulators of disjoint parts of the records are merged into the
+ * accumulator of all of them, so parts can be accumulated in parallel
+ */
+public class GradeAccumulator {
+	/** Number of accumulated grades */
+	private long count;
+	/** Sum of accumulated grades */
+	private long sum;
+	private int min = Integer.MAX_VALUE;
+	private int max = Integer.MIN_VALUE;
+
+	/**
+	 * Adds the grade
+	 * 
+	 * @param grade to be added
+	 */
+	public void add(int grade) {
+		add(grade, 1);
+	}
+
+	/**
+	 * Adds the grade as many times as given, which lets counts of a bitmap index
+	 * be added at once
+	 * 
+	 * @param grade to be added
+	 * @param times number of records with the grade
+	 */
+	public void add(int grade, long times) {
+		if (times == 0)
+			return;
+		count += times;
+		sum += grade * times;
+		min = Math.min(min, grade);
+		max = Math.max(max, grade);
+	}
+
+	/**
+	 * Adds all grades of the other accumulator
+	 * 
+	 * @param other accumulator of other records
+	 * @return this accumulator
+	 */
+	public GradeAccumulator merge(GradeAccumulator other) {
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		return this;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	/**
+	 * Smallest accumulated grade
+	 * 
+	 * @return smallest grade
+	 * @throws IllegalStateException if no grade was added
+	 */
+	public int getMin() {
+		checkNotEmpty();
+		return min;
+	}
+
+	/**
+	 * Largest accumulated grade
+	 * 
+	 * @return largest grade
+	 * @throws IllegalStateException if no grade was added
+	 */
+	public int getMax() {
+		checkNotEmpty();
+		return max;
+	}
+
+	/**
+	 * Average of accumulated grades
+	 * 
+	 * @return average grade
+	 * @throws IllegalStateException if no grade was added
+	 */
+	public double getAverage() {
+		checkNotEmpty();
+		return (double) sum / count;
+	}
+
+	private void checkNotEmpty() {
+		if (count == 0)
+			throw new IllegalStateException("No grades were accumulated");
+	}
+}
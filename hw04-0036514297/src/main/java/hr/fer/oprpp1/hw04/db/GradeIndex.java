@@ -0,0 +1,151 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Bitmap index of final grades, holding for every grade the bitmap of
+ * positions of records with it. A conjunction of grade predicates selects a
+ * set of grades, which is encoded as a mask whose bit <code>g</code> stands
+ * for grade <code>g</code>, and its records are the union of their bitmaps
+ */
+public class GradeIndex {
+
+	/** Smallest final grade */
+	public static final int MIN_GRADE = 1;
+	/** Largest final grade */
+	public static final int MAX_GRADE = 5;
+	/** Mask selecting every grade */
+	public static final int ALL_GRADES = ((1 << (MAX_GRADE + 1)) - 1) & ~((1 << MIN_GRADE) - 1);
+
+	/** Positions of records by their grade */
+	private final BitSet[] bitmaps;
+	/** Number of records by their grade */
+	private final int[] counts;
+
+	/**
+	 * Builds the index over given records, using their indexes as positions
+	 * 
+	 * @param records to be indexed
+	 */
+	public GradeIndex(List<StudentRecord> records) {
+		bitmaps = new BitSet[MAX_GRADE + 1];
+		for (int grade = MIN_GRADE; grade <= MAX_GRADE; grade++)
+			bitmaps[grade] = new BitSet(records.size());
+		for (int position = 0; position < records.size(); position++)
+			bitmaps[records.get(position).getFinalGrade()].set(position);
+		counts = new int[MAX_GRADE + 1];
+		for (int grade = MIN_GRADE; grade <= MAX_GRADE; grade++)
+			counts[grade] = bitmaps[grade].cardinality();
+	}
+
+	private GradeIndex(BitSet[] bitmaps, int[] counts) {
+		this.bitmaps = bitmaps;
+		this.counts = counts;
+	}
+
+	/**
+	 * Creates the index with changed records moved between bitmaps, leaving this
+	 * one intact. Only bitmaps of changed grades are copied
+	 * 
+	 * @param changed positions whose records changed
+	 * @param before  records before the change by position, <code>null</code> if
+	 *                there was none
+	 * @param after   records after the change by position, <code>null</code> if
+	 *                there is none
+	 * @return changed index, or the same one if no grade changed
+	 */
+	GradeIndex withChanges(BitSet changed, IntFunction<StudentRecord> before, IntFunction<StudentRecord> after) {
+		BitSet[] changedBitmaps = null;
+		int[] changedCounts = null;
+		boolean[] copied = new boolean[MAX_GRADE + 1];
+		for (int position = changed.nextSetBit(0); position >= 0; position = changed.nextSetBit(position + 1)) {
+			var old = before.apply(position);
+			var current = after.apply(position);
+			int oldGrade = old == null ? 0 : old.getFinalGrade();
+			int newGrade = current == null ? 0 : current.getFinalGrade();
+			if (oldGrade == newGrade)
+				continue;
+			if (changedBitmaps == null) {
+				changedBitmaps = bitmaps.clone();
+				changedCounts = counts.clone();
+			}
+			for (int grade : new int[] { oldGrade, newGrade }) {
+				if (grade != 0 && !copied[grade]) {
+					changedBitmaps[grade] = (BitSet) bitmaps[grade].clone();
+					copied[grade] = true;
+				}
+			}
+			if (oldGrade != 0) {
+				changedBitmaps[oldGrade].clear(position);
+				changedCounts[oldGrade]--;
+			}
+			if (newGrade != 0) {
+				changedBitmaps[newGrade].set(position);
+				changedCounts[newGrade]++;
+			}
+		}
+		return changedBitmaps == null ? this : new GradeIndex(changedBitmaps, changedCounts);
+	}
+
+	/**
+	 * Finds the grades satisfying all given expressions on the final grade
+	 * 
+	 * @param expressions on the final grade
+	 * @return mask of grades
+	 */
+	public static int gradesSatisfying(List<ConditionalExpression> expressions) {
+		int mask = 0;
+		grades: for (int grade = MIN_GRADE; grade <= MAX_GRADE; grade++) {
+			var value = Integer.toString(grade);
+			for (var expr : expressions)
+				if (!expr.matches(value))
+					continue grades;
+			mask |= 1 << grade;
+		}
+		return mask;
+	}
+
+	/**
+	 * Number of records with one of the grades
+	 * 
+	 * @param mask of grades
+	 * @return number of records
+	 */
+	public int count(int mask) {
+		int count = 0;
+		for (int grade = MIN_GRADE; grade <= MAX_GRADE; grade++)
+			if ((mask & 1 << grade) != 0)
+				count += counts[grade];
+		return count;
+	}
+
+	/**
+	 * Builds the bitmap of records with one of the grades
+	 * 
+	 * @param mask of grades
+	 * @return new bitmap of positions
+	 */
+	public BitSet select(int mask) {
+		var selection = new BitSet();
+		for (int grade = MIN_GRADE; grade <= MAX_GRADE; grade++)
+			if ((mask & 1 << grade) != 0)
+				selection.or(bitmaps[grade]);
+		return selection;
+	}
+
+	/**
+	 * Describes the grades of the mask
+	 * 
+	 * @param mask of grades
+	 * @return grades separated by commas
+	 */
+	public static String describe(int mask) {
+		var sb = new StringBuilder();
+		for (int grade = MIN_GRADE; grade <= MAX_GRADE; grade++)
+			if ((mask & 1 << grade) != 0)
+				sb.append(sb.length() == 0 ? "" : ", ").append(grade);
+		return sb.toString();
+	}
+}
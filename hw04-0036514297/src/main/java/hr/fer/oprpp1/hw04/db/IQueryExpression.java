@@ -0,0 +1,17 @@
+package hr.fer.oprpp1.hw04.db;
+
+/**
+ * Node of a parsed query. Leaves are conditional expressions, joined by
+ * <code>AndExpression</code>, <code>OrExpression</code> and
+ * <code>NotExpression</code>
+ */
+public interface IQueryExpression extends IFilter {
+	/**
+	 * Builds the expression accepting exactly the records this one rejects.
+	 * Negations are pushed down to the leaves, so only <code>LIKE</code>, which
+	 * has no complementary operator, ends up in <code>NotExpression</code>
+	 * 
+	 * @return negated expression
+	 */
+	IQueryExpression negate();
+}
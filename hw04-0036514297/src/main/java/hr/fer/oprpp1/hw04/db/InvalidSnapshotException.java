@@ -0,0 +1,8 @@
+package hr.fer.oprpp1.hw04.db;
+
+public class InvalidSnapshotException extends RuntimeException {
+
+	public InvalidSnapshotException(String msg) {
+		super(msg);
+	}
+}
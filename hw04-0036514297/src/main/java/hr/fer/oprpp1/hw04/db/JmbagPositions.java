@@ -0,0 +1,146 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Immutable map of record positions by their JMBAG. JMBAGs are split by hash
+ * into segments, so that a new version copies only the segments it changes,
+ * the same way records are kept by <code>StudentDatabase</code>
+ */
+final class JmbagPositions {
+
+	/** Average number of JMBAGs in one segment */
+	private static final int SEGMENT_SIZE = 1024;
+
+	/** Segments of the map, their number is a power of two */
+	private final HashMap<String, Integer>[] segments;
+	/** Number of stored JMBAGs */
+	private final int size;
+
+	private JmbagPositions(HashMap<String, Integer>[] segments, int size) {
+		this.segments = segments;
+		this.size = size;
+	}
+
+	/**
+	 * Creates an empty map with enough segments for the expected number of
+	 * JMBAGs
+	 *
+	 * @param expectedSize number of JMBAGs which will be stored
+	 * @return empty map
+	 */
+	static JmbagPositions withCapacity(int expectedSize) {
+		return new JmbagPositions(newSegments(segmentsFor(expectedSize)), 0);
+	}
+
+	/**
+	 * Finds the position of the record with the JMBAG
+	 *
+	 * @param jmbag of the record
+	 * @return position, <code>null</code> if there is no such record
+	 */
+	Integer get(String jmbag) {
+		return segments[segmentOf(jmbag, segments.length)].get(jmbag);
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Number of segments holding the given number of JMBAGs, a power of two
+	 *
+	 * @param size number of JMBAGs
+	 * @return number of segments
+	 */
+	private static int segmentsFor(int size) {
+		return Integer.highestOneBit(Math.max(1, size / SEGMENT_SIZE));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static HashMap<String, Integer>[] newSegments(int count) {
+		var segments = (HashMap<String, Integer>[]) new HashMap[count];
+		for (int i = 0; i < count; i++)
+			segments[i] = new HashMap<>();
+		return segments;
+	}
+
+	/** Segment of the JMBAG, chosen by the high bits of its spread hash */
+	private static int segmentOf(String jmbag, int segments) {
+		int hash = jmbag.hashCode() * 0x9E3779B9;
+		return segments == 1 ? 0 : hash >>> Integer.numberOfLeadingZeros(segments - 1);
+	}
+
+	/**
+	 * Builds the next version of the map. Segments are copied the first time
+	 * they change, and once the map outgrows its segments they are all split
+	 * again, which happens rarely enough to cost a constant per insert
+	 */
+	static final class Builder {
+		private final JmbagPositions base;
+		private HashMap<String, Integer>[] segments;
+		/** Segments which were copied by this builder */
+		private final BitSet ownSegments = new BitSet();
+		private int size;
+
+		Builder(JmbagPositions base) {
+			this.base = base;
+			segments = base.segments.clone();
+			size = base.size;
+		}
+
+		Integer get(String jmbag) {
+			return segments[segmentOf(jmbag, segments.length)].get(jmbag);
+		}
+
+		/**
+		 * Stores the position of the JMBAG
+		 *
+		 * @param jmbag    of the record
+		 * @param position of the record
+		 * @return previous position, <code>null</code> if there was none
+		 */
+		Integer put(String jmbag, int position) {
+			var previous = writableSegment(jmbag).put(jmbag, position);
+			if (previous == null)
+				size++;
+			return previous;
+		}
+
+		/**
+		 * Removes the JMBAG
+		 *
+		 * @param jmbag of the record
+		 */
+		void remove(String jmbag) {
+			if (writableSegment(jmbag).remove(jmbag) != null)
+				size--;
+		}
+
+		/**
+		 * Builds the version with all changes
+		 *
+		 * @return next version, or the base one if nothing changed
+		 */
+		JmbagPositions build() {
+			if (ownSegments.isEmpty())
+				return base;
+			if (size <= 2 * SEGMENT_SIZE * segments.length)
+				return new JmbagPositions(segments, size);
+			var split = newSegments(segmentsFor(size));
+			for (var segment : segments)
+				segment.forEach((jmbag, position) -> split[segmentOf(jmbag, split.length)].put(jmbag, position));
+			return new JmbagPositions(split, size);
+		}
+
+		private HashMap<String, Integer> writableSegment(String jmbag) {
+			int segment = segmentOf(jmbag, segments.length);
+			if (!ownSegments.get(segment)) {
+				segments[segment] = new HashMap<>(segments[segment]);
+				ownSegments.set(segment);
+			}
+			return segments[segment];
+		}
+	}
+}
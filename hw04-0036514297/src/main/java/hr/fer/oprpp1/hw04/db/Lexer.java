@@ -72,6 +72,10 @@ public class Lexer {
             extractWord();
         else if (currentChar() == '"')
             extractQuoted();
+        else if (Character.isDigit(currentChar()))
+            extractNumber();
+        else if (currentChar() == '(' || currentChar() == ')')
+            extractParenthesis();
         else
             extractOperator();
     }
@@ -89,6 +93,21 @@ public class Lexer {
             throw new MultipleWildcardException("Multiple wildcard symbols are forbidden");
     }
 
+    /**
+     * Extracts unquoted decimal number into token
+     */
+    private void extractNumber() {
+        extractBlock(Character::isDigit, TokenType.NUMBER);
+    }
+
+    /**
+     * Extracts single parenthesis into token
+     */
+    private void extractParenthesis() {
+        var type = currentChar() == '(' ? TokenType.OPEN_PARENTHESIS : TokenType.CLOSED_PARENTHESIS;
+        token = new Token(type, String.valueOf(data[currentIndex++]));
+    }
+
     /**
      * Extracts operator into token
      */
@@ -0,0 +1,89 @@
+package hr.fer.oprpp1.hw04.db;
+
+/**
+ * Compiled pattern of the <code>LIKE</code> operator. A pattern holds at most
+ * one wildcard, so matching is a prefix and suffix check instead of a regular
+ * expression. The wildcard stands for any number of letters of the English and
+ * Croatian alphabet and digits
+ */
+public class LikePattern {
+
+	/** Symbol standing for any sequence of allowed characters */
+	private static final char WILDCARD = '*';
+	/** Letters allowed in a wildcard besides ASCII letters and digits */
+	private static final String CROATIAN_LETTERS = "čćšđžČĆŠĐŽ";
+
+	/** Part of the pattern before the wildcard, or the whole pattern */
+	private final String prefix;
+	/** Part of the pattern after the wildcard, <code>null</code> if none */
+	private final String suffix;
+
+	private LikePattern(String prefix, String suffix) {
+		this.prefix = prefix;
+		this.suffix = suffix;
+	}
+
+	/**
+	 * Compiles the pattern
+	 * 
+	 * @param pattern with at most one wildcard
+	 * @return compiled pattern
+	 */
+	public static LikePattern compile(String pattern) {
+		int wildcard = pattern.indexOf(WILDCARD);
+		if (wildcard < 0)
+			return new LikePattern(pattern, null);
+		return new LikePattern(pattern.substring(0, wildcard), pattern.substring(wildcard + 1));
+	}
+
+	/**
+	 * Checks whether the value matches the pattern
+	 * 
+	 * @param value to be checked
+	 * @return true if it matches
+	 */
+	public boolean matches(String value) {
+		if (suffix == null)
+			return value.equals(prefix);
+		int end = value.length() - suffix.length();
+		if (end < prefix.length() || !value.startsWith(prefix) || !value.endsWith(suffix))
+			return false;
+		for (int i = prefix.length(); i < end; i++)
+			if (!isWildcardChar(value.charAt(i)))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Part of the pattern every matching value starts with
+	 * 
+	 * @return prefix of the pattern
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * Part of the pattern every matching value ends with
+	 * 
+	 * @return suffix of the pattern, <code>null</code> if it has no wildcard
+	 */
+	public String getSuffix() {
+		return suffix;
+	}
+
+	/**
+	 * Checks whether the pattern has a wildcard
+	 * 
+	 * @return true if it does
+	 */
+	public boolean hasWildcard() {
+		return suffix != null;
+	}
+
+	/** Checks whether the character may be matched by the wildcard */
+	private static boolean isWildcardChar(char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+				|| CROATIAN_LETTERS.indexOf(c) >= 0;
+	}
+}
@@ -0,0 +1,11 @@
+package hr.fer.oprpp1.hw04.db;
+
+public class MalformedRecordException extends RuntimeException {
+
+	public final int line;
+
+	public MalformedRecordException(String message, int line) {
+		super(message);
+		this.line = line;
+	}
+}
@@ -0,0 +1,32 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.Objects;
+
+/**
+ * Models one change of stored records. Inserts and updates carry the new
+ * record, deletes only the JMBAG of the removed one
+ */
+public record Mutation(MutationType type, String jmbag, StudentRecord record) {
+
+	public Mutation {
+		Objects.requireNonNull(type);
+		Objects.requireNonNull(jmbag);
+		if (type != MutationType.DELETE && (record == null || !jmbag.equals(record.getJmbag())))
+			throw new IllegalArgumentException("Mutation needs a record with JMBAG " + jmbag);
+	}
+
+	/** Creates the mutation adding a new record */
+	public static Mutation insert(StudentRecord record) {
+		return new Mutation(MutationType.INSERT, record.getJmbag(), record);
+	}
+
+	/** Creates the mutation replacing the record with the same JMBAG */
+	public static Mutation update(StudentRecord record) {
+		return new Mutation(MutationType.UPDATE, record.getJmbag(), record);
+	}
+
+	/** Creates the mutation removing the record with the JMBAG */
+	public static Mutation delete(String jmbag) {
+		return new Mutation(MutationType.DELETE, jmbag, null);
+	}
+}
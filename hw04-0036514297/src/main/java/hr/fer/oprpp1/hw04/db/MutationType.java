@@ -0,0 +1,6 @@
+package hr.fer.oprpp1.hw04.db;
+
+/** Enumeration modeling possible changes of stored records */
+public enum MutationType {
+	INSERT, UPDATE, DELETE
+}
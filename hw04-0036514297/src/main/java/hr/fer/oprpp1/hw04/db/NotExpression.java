@@ -0,0 +1,24 @@
+package hr.fer.oprpp1.hw04.db;
+
+/**
+ * Negation of an expression
+ * 
+ * @param operand expression which mustn't be satisfied
+ */
+public record NotExpression(IQueryExpression operand) implements IQueryExpression {
+
+	@Override
+	public boolean accepts(StudentRecord record) {
+		return !operand.accepts(record);
+	}
+
+	@Override
+	public IQueryExpression negate() {
+		return operand;
+	}
+
+	@Override
+	public String toString() {
+		return operand instanceof ConditionalExpression ? "not " + operand : "not (" + operand + ")";
+	}
+}
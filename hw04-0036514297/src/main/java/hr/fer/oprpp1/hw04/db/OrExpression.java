@@ -0,0 +1,48 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Disjunction of expressions. Operands are tested in their order until one of
+ * them accepts the record
+ * 
+ * @param operands expressions of which at least one has to be satisfied
+ */
+public record OrExpression(List<IQueryExpression> operands) implements IQueryExpression {
+
+	/**
+	 * Joins the expressions, flattening nested disjunctions
+	 * 
+	 * @param expressions to be joined
+	 * @return their disjunction, or the expression itself if there is just one
+	 */
+	public static IQueryExpression of(List<IQueryExpression> expressions) {
+		var operands = new ArrayList<IQueryExpression>();
+		for (var expr : expressions)
+			if (expr instanceof OrExpression or)
+				operands.addAll(or.operands());
+			else
+				operands.add(expr);
+		return operands.size() == 1 ? operands.get(0) : new OrExpression(List.copyOf(operands));
+	}
+
+	@Override
+	public boolean accepts(StudentRecord record) {
+		for (var operand : operands)
+			if (operand.accepts(record))
+				return true;
+		return false;
+	}
+
+	@Override
+	public IQueryExpression negate() {
+		return AndExpression.of(operands.stream().map(IQueryExpression::negate).toList());
+	}
+
+	@Override
+	public String toString() {
+		return operands.stream().map(IQueryExpression::toString).collect(Collectors.joining(" or "));
+	}
+}
@@ -0,0 +1,156 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collector;
+
+/**
+ * Order of query results together with the page of them which is returned.
+ * Records are ordered by the field and records with equal values by their
+ * JMBAG, so the order is total and consecutive pages never overlap. Without a
+ * field records stay in database order
+ */
+public class Ordering {
+
+	/** Limit of an ordering returning all records */
+	public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+	/** Getter of the ordering field, <code>null</code> for database order */
+	private final IFieldValueGetter field;
+	private final boolean descending;
+	/** Largest number of returned records */
+	private final int limit;
+	/** Number of leading records which are skipped */
+	private final int offset;
+
+	/**
+	 * Constructs the ordering
+	 * 
+	 * @param field      getter of the ordering field, <code>null</code> to keep
+	 *                   database order
+	 * @param descending whether larger values come first
+	 * @param limit      largest number of returned records, or
+	 *                   <code>NO_LIMIT</code>
+	 * @param offset     number of leading records which are skipped
+	 * @throws IllegalArgumentException if <code>limit</code> or
+	 *                                  <code>offset</code> is negative
+	 */
+	public Ordering(IFieldValueGetter field, boolean descending, int limit, int offset) {
+		if (limit < 0 || offset < 0)
+			throw new IllegalArgumentException("Limit and offset can't be negative");
+		this.field = field;
+		this.descending = descending;
+		this.limit = limit;
+		this.offset = offset;
+	}
+
+	public IFieldValueGetter getField() {
+		return field;
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Checks whether records are ordered by a field
+	 * 
+	 * @return true if they are
+	 */
+	public boolean isOrdered() {
+		return field != null;
+	}
+
+	/**
+	 * Number of leading records needed for the page, skipped ones included
+	 * 
+	 * @return offset and limit together, at most <code>NO_LIMIT</code>
+	 */
+	public int wanted() {
+		return (int) Math.min(NO_LIMIT, (long) offset + limit);
+	}
+
+	/**
+	 * Order of records, by the field and then by JMBAG. Final grades are
+	 * compared as numbers, other fields like the operators compare them
+	 * 
+	 * @return comparator of records
+	 * @throws IllegalStateException if records aren't ordered by a field
+	 */
+	public Comparator<StudentRecord> comparator() {
+		if (field == null)
+			throw new IllegalStateException("Records aren't ordered by a field");
+		var numeric = FieldValueGetters.numericOf(field);
+		Comparator<StudentRecord> byField = numeric != null ? Comparator.comparingInt(numeric)
+				: Comparator.comparing(field::get);
+		if (descending)
+			byField = byField.reversed();
+		return byField.thenComparing(StudentRecord::getJmbag);
+	}
+
+	/**
+	 * Collector of the page of records passed in database order. Ordered pages
+	 * keep only the wanted records in a bounded heap, so <code>n</code> records
+	 * cost <code>O(n log k)</code> for <code>k</code> wanted ones. Partial results
+	 * are mergeable, so it can be used on parallel scans
+	 * 
+	 * @return collector of the page
+	 */
+	public Collector<StudentRecord, ?, List<StudentRecord>> collector() {
+		int wanted = wanted();
+		if (field == null)
+			return Collector.<StudentRecord, ArrayList<StudentRecord>, List<StudentRecord>>of(ArrayList::new,
+					(list, rec) -> {
+						if (list.size() < wanted)
+							list.add(rec);
+					}, (left, right) -> {
+						left.addAll(right.subList(0, Math.min(right.size(), wanted - left.size())));
+						return left;
+					}, this::page);
+		var comparator = comparator();
+		if (wanted == NO_LIMIT)
+			return Collector.<StudentRecord, ArrayList<StudentRecord>, List<StudentRecord>>of(ArrayList::new,
+					ArrayList::add, (left, right) -> {
+						left.addAll(right);
+						return left;
+					}, (list) -> {
+						list.sort(comparator);
+						return page(list);
+					});
+		return Collector.of(() -> new BoundedHeap<>(comparator, wanted), BoundedHeap::add, BoundedHeap::merge,
+				(heap) -> page(heap.toSortedList()));
+	}
+
+	/**
+	 * Cuts the page out of the leading records
+	 * 
+	 * @param records leading records in order
+	 * @return new list of records of the page
+	 */
+	public List<StudentRecord> page(List<StudentRecord> records) {
+		if (records.size() <= offset)
+			return new ArrayList<>();
+		return new ArrayList<>(records.subList(offset, Math.min(records.size(), wanted())));
+	}
+
+	@Override
+	public String toString() {
+		var sb = new StringBuilder();
+		if (field != null)
+			sb.append(FieldValueGetters.nameOf(field)).append(descending ? " desc" : " asc");
+		if (limit != NO_LIMIT)
+			sb.append(sb.length() == 0 ? "" : ", ").append("limit ").append(limit);
+		if (offset != 0)
+			sb.append(sb.length() == 0 ? "" : ", ").append("offset ").append(offset);
+		return sb.toString();
+	}
+}
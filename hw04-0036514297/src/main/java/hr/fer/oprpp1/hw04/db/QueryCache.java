@@ -0,0 +1,201 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Cache of parsed queries and their results, keyed by the query command with
+ * redundant whitespace removed. Entries are evicted in least recently used
+ * order once there are more than <code>capacity</code> of them or they hold
+ * more than <code>maxRecords</code> records, or groups of aggregates,
+ * together. Results computed for an older version of the database are
+ * computed again, reusing the parsed query
+ */
+public class QueryCache {
+
+	/** Default number of cached queries */
+	public static final int DEFAULT_CAPACITY = 256;
+	/** Default number of records held by all cached results together */
+	public static final int DEFAULT_MAX_RECORDS = 100_000;
+
+	private static final String CAPACITY_TOO_SMALL_MSG = "Capacity must be positive";
+
+	/** Database queries are executed on */
+	private final StudentDatabase database;
+	/** Largest number of cached queries */
+	private final int capacity;
+	/** Largest number of records held by all cached results together */
+	private final int maxRecords;
+	/** Entries by normalized query, in access order */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	/** Number of records held by all cached results together */
+	private long cachedRecords;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Constructs the cache of default size
+	 * 
+	 * @param database queries are executed on
+	 */
+	public QueryCache(StudentDatabase database) {
+		this(database, DEFAULT_CAPACITY, DEFAULT_MAX_RECORDS);
+	}
+
+	/**
+	 * Constructs the cache
+	 * 
+	 * @param database   queries are executed on
+	 * @param capacity   largest number of cached queries
+	 * @param maxRecords largest number of records held by all cached results
+	 * @throws IllegalArgumentException if <code>capacity</code> or
+	 *                                  <code>maxRecords</code> isn't positive
+	 */
+	public QueryCache(StudentDatabase database, int capacity, int maxRecords) {
+		if (capacity < 1 || maxRecords < 1)
+			throw new IllegalArgumentException(CAPACITY_TOO_SMALL_MSG);
+		this.database = database;
+		this.capacity = capacity;
+		this.maxRecords = maxRecords;
+	}
+
+	/**
+	 * Returns the parsed query and its result, from the cache if the database
+	 * hasn't changed since it was computed. The query is executed outside of the
+	 * lock, so concurrent callers never wait for each other's queries
+	 * 
+	 * @param command query command, as accepted by <code>QueryParser</code>
+	 * @return entry holding the parsed query and its unmodifiable result
+	 * @throws ParserException if the command isn't a valid query
+	 */
+	public Entry query(String command) {
+		var key = normalize(command);
+		long version = database.getVersion();
+		Entry cached;
+		synchronized (this) {
+			cached = entries.get(key);
+			if (cached != null && cached.version() == version) {
+				hits++;
+				return cached;
+			}
+			misses++;
+		}
+
+		var parser = cached != null ? cached.parser() : new QueryParser(command);
+		Entry entry;
+		if (parser.getAggregation() != null)
+			entry = new Entry(parser, List.of(), database.aggregate(parser.getExpression(), parser.getAggregation()),
+					version);
+		else
+			entry = new Entry(parser, Collections.unmodifiableList(execute(parser)), null, version);
+		synchronized (this) {
+			var replaced = entries.put(key, entry);
+			if (replaced != null)
+				cachedRecords -= replaced.size();
+			cachedRecords += entry.size();
+			evict();
+		}
+		return entry;
+	}
+
+	/** Removes all entries, keeping the counters */
+	public synchronized void clear() {
+		entries.clear();
+		cachedRecords = 0;
+	}
+
+	/**
+	 * Number of cached queries
+	 * 
+	 * @return size of the cache
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Number of queries answered from the cache
+	 * 
+	 * @return number of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Number of queries which had to be executed
+	 * 
+	 * @return number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Removes redundant whitespace from the command. Whitespace inside string
+	 * literals is kept, since it changes the query
+	 * 
+	 * @param command to be normalized
+	 * @return command with whitespace outside literals collapsed to single spaces
+	 */
+	static String normalize(String command) {
+		var sb = new StringBuilder(command.length());
+		boolean literal = false;
+		boolean pendingSpace = false;
+		for (int i = 0; i < command.length(); i++) {
+			char c = command.charAt(i);
+			if (!literal && Character.isWhitespace(c)) {
+				pendingSpace = sb.length() > 0;
+				continue;
+			}
+			if (pendingSpace) {
+				sb.append(' ');
+				pendingSpace = false;
+			}
+			if (c == '"')
+				literal = !literal;
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	private List<StudentRecord> execute(QueryParser parser) {
+		if (parser.getOrdering() != null)
+			return database.query(parser.getExpression(), parser.getOrdering());
+		if (!parser.isDirectQuery())
+			return database.query(parser.getExpression());
+		var rec = database.forJMBAG(parser.getQueriedJMBAG());
+		return rec == null ? List.of() : List.of(rec);
+	}
+
+	/** Evicts least recently used entries until the bounds are respected */
+	private void evict() {
+		var iterator = entries.values().iterator();
+		while (entries.size() > capacity || cachedRecords > maxRecords && entries.size() > 1) {
+			cachedRecords -= iterator.next().size();
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Cached query
+	 * 
+	 * @param parser    holding the parsed query
+	 * @param records   result of the query, empty for aggregate queries
+	 * @param aggregate result of the aggregate query, <code>null</code> for
+	 *                  others, which mustn't be modified
+	 * @param version   of the database the result was computed for
+	 */
+	public record Entry(QueryParser parser, List<StudentRecord> records, Aggregation.Result aggregate, long version) {
+		/**
+		 * Number of rows held by the entry, each group of an aggregate counting as
+		 * one record
+		 * 
+		 * @return number of rows
+		 */
+		public int size() {
+			return aggregate == null ? records.size() : aggregate.size();
+		}
+	}
+}
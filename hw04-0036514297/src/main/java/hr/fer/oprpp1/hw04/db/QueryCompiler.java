@@ -0,0 +1,213 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles conjunctions of expressions into filters specialized for their
+ * fields and operators. Every compiled predicate reads the field straight from
+ * the record and compares it with the literal bound at compile time, so a row
+ * costs one call per predicate instead of the getter and the operator called
+ * through interfaces by <code>QueryFilter</code>. Predicates on the final
+ * grade are merged into a single test of a mask of accepted grades, done
+ * first.
+ * <p>
+ * The lambdas joining predicates are shared by all compiled queries, so their
+ * calls become megamorphic once several queries have run and aren't inlined.
+ * The gain comes from the fewer indirections per row, not from inlining
+ */
+public class QueryCompiler {
+
+	private QueryCompiler() {
+	}
+
+	/**
+	 * Compiles the expressions into a filter accepting records which satisfy all
+	 * of them. Expressions are tested in the given order, after the final grade
+	 * 
+	 * @param expressions which have to be satisfied
+	 * @return compiled filter
+	 */
+	public static IFilter compile(List<ConditionalExpression> expressions) {
+		var filters = new ArrayList<IFilter>(expressions.size());
+		var gradeExpressions = new ArrayList<ConditionalExpression>();
+		for (var expr : expressions)
+			if (expr.getFieldGetter() == FieldValueGetters.FINAL_GRADE)
+				gradeExpressions.add(expr);
+			else
+				filters.add(compileCondition(expr));
+		if (!gradeExpressions.isEmpty()) {
+			int grades = GradeIndex.gradesSatisfying(gradeExpressions);
+			filters.add(0, (record) -> (grades & 1 << record.getFinalGrade()) != 0);
+		}
+		return and(filters.toArray(new IFilter[0]));
+	}
+
+	/**
+	 * Compiles the expression tree into a filter. Operands of <code>and</code>
+	 * and <code>or</code> are tested in their order, stopping as soon as the
+	 * result is known
+	 * 
+	 * @param expression to be compiled
+	 * @return compiled filter
+	 */
+	public static IFilter compile(IQueryExpression expression) {
+		if (expression instanceof ConditionalExpression expr)
+			return compile(List.of(expr));
+		if (expression instanceof NotExpression not) {
+			var operand = compile(not.operand());
+			return (record) -> !operand.accepts(record);
+		}
+		if (expression instanceof AndExpression and)
+			return and(compileAll(and.operands()));
+		if (expression instanceof OrExpression or)
+			return or(compileAll(or.operands()));
+		return expression;
+	}
+
+	private static IFilter[] compileAll(List<IQueryExpression> expressions) {
+		var filters = new IFilter[expressions.size()];
+		for (int i = 0; i < filters.length; i++)
+			filters[i] = compile(expressions.get(i));
+		return filters;
+	}
+
+	/**
+	 * Compiles one expression on a text field
+	 * 
+	 * @param expr to be compiled
+	 * @return filter of the expression
+	 */
+	private static IFilter compileCondition(ConditionalExpression expr) {
+		var getter = expr.getFieldGetter();
+		var operator = expr.getComparisonOperator();
+		var literal = expr.getStringLiteral();
+		if (getter == FieldValueGetters.JMBAG)
+			return jmbag(operator, literal);
+		if (getter == FieldValueGetters.LAST_NAME)
+			return lastName(operator, literal);
+		if (getter == FieldValueGetters.FIRST_NAME)
+			return firstName(operator, literal);
+		return expr;
+	}
+
+	private static IFilter jmbag(IComparisonOperator operator, String literal) {
+		if (operator == ComparisonOperators.EQUALS)
+			return (record) -> record.getJmbag().equals(literal);
+		if (operator == ComparisonOperators.NOT_EQUALS)
+			return (record) -> !record.getJmbag().equals(literal);
+		if (operator == ComparisonOperators.LESS)
+			return (record) -> record.getJmbag().compareTo(literal) < 0;
+		if (operator == ComparisonOperators.LESS_OR_EQUALS)
+			return (record) -> record.getJmbag().compareTo(literal) <= 0;
+		if (operator == ComparisonOperators.GREATER)
+			return (record) -> record.getJmbag().compareTo(literal) > 0;
+		if (operator == ComparisonOperators.GREATER_OR_EQUALS)
+			return (record) -> record.getJmbag().compareTo(literal) >= 0;
+		var pattern = LikePattern.compile(literal);
+		return (record) -> pattern.matches(record.getJmbag());
+	}
+
+	private static IFilter lastName(IComparisonOperator operator, String literal) {
+		if (operator == ComparisonOperators.EQUALS)
+			return (record) -> record.getLastName().equals(literal);
+		if (operator == ComparisonOperators.NOT_EQUALS)
+			return (record) -> !record.getLastName().equals(literal);
+		if (operator == ComparisonOperators.LESS)
+			return (record) -> record.getLastName().compareTo(literal) < 0;
+		if (operator == ComparisonOperators.LESS_OR_EQUALS)
+			return (record) -> record.getLastName().compareTo(literal) <= 0;
+		if (operator == ComparisonOperators.GREATER)
+			return (record) -> record.getLastName().compareTo(literal) > 0;
+		if (operator == ComparisonOperators.GREATER_OR_EQUALS)
+			return (record) -> record.getLastName().compareTo(literal) >= 0;
+		var pattern = LikePattern.compile(literal);
+		return (record) -> pattern.matches(record.getLastName());
+	}
+
+	private static IFilter firstName(IComparisonOperator operator, String literal) {
+		if (operator == ComparisonOperators.EQUALS)
+			return (record) -> record.getFirstName().equals(literal);
+		if (operator == ComparisonOperators.NOT_EQUALS)
+			return (record) -> !record.getFirstName().equals(literal);
+		if (operator == ComparisonOperators.LESS)
+			return (record) -> record.getFirstName().compareTo(literal) < 0;
+		if (operator == ComparisonOperators.LESS_OR_EQUALS)
+			return (record) -> record.getFirstName().compareTo(literal) <= 0;
+		if (operator == ComparisonOperators.GREATER)
+			return (record) -> record.getFirstName().compareTo(literal) > 0;
+		if (operator == ComparisonOperators.GREATER_OR_EQUALS)
+			return (record) -> record.getFirstName().compareTo(literal) >= 0;
+		var pattern = LikePattern.compile(literal);
+		return (record) -> pattern.matches(record.getFirstName());
+	}
+
+	/**
+	 * Joins the filters into one accepting records accepted by all of them.
+	 * Short conjunctions get their own lambdas, which saves the loop over the
+	 * array of filters
+	 * 
+	 * @param filters to be joined
+	 * @return joined filter
+	 */
+	private static IFilter and(IFilter[] filters) {
+		switch (filters.length) {
+		case 0:
+			return (record) -> true;
+		case 1:
+			return filters[0];
+		case 2: {
+			var first = filters[0];
+			var second = filters[1];
+			return (record) -> first.accepts(record) && second.accepts(record);
+		}
+		case 3: {
+			var first = filters[0];
+			var second = filters[1];
+			var third = filters[2];
+			return (record) -> first.accepts(record) && second.accepts(record) && third.accepts(record);
+		}
+		default:
+			return (record) -> {
+				for (var filter : filters)
+					if (!filter.accepts(record))
+						return false;
+				return true;
+			};
+		}
+	}
+
+	/**
+	 * Joins the filters into one accepting records accepted by any of them,
+	 * specialized for short disjunctions like <code>and</code>
+	 * 
+	 * @param filters to be joined
+	 * @return joined filter
+	 */
+	private static IFilter or(IFilter[] filters) {
+		switch (filters.length) {
+		case 0:
+			return (record) -> false;
+		case 1:
+			return filters[0];
+		case 2: {
+			var first = filters[0];
+			var second = filters[1];
+			return (record) -> first.accepts(record) || second.accepts(record);
+		}
+		case 3: {
+			var first = filters[0];
+			var second = filters[1];
+			var third = filters[2];
+			return (record) -> first.accepts(record) || second.accepts(record) || third.accepts(record);
+		}
+		default:
+			return (record) -> {
+				for (var filter : filters)
+					if (filter.accepts(record))
+						return true;
+				return false;
+			};
+		}
+	}
+}
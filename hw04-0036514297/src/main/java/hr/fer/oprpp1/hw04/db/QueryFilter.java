@@ -12,8 +12,10 @@ public record QueryFilter(List<ConditionalExpression> expressions) implements IF
 	 */
 	@Override
 	public boolean accepts(StudentRecord record) {
-		return expressions.stream().allMatch(expr -> expr.getComparisonOperator()
-				.satisfied(expr.getFieldGetter().get(record), expr.getStringLiteral()));
+		for (var expr : expressions)
+			if (!expr.accepts(record))
+				return false;
+		return true;
 	}
 
 }
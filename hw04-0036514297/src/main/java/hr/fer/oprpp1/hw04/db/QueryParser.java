@@ -8,10 +8,25 @@ import java.util.function.Function;
 
 public class QueryParser {
 
+    private static final String AND = "and";
+    private static final String OR = "or";
+    private static final String NOT = "not";
+    private static final String GROUP = "group";
+    private static final String BY = "by";
+    private static final String ORDER = "order";
+    private static final String ASC = "asc";
+    private static final String DESC = "desc";
+    private static final String LIMIT = "limit";
+    private static final String OFFSET = "offset";
+
     /**
      * Lookup table for attribute specific processing
      */
     private static final Map<String, Function<Lexer, ConditionalExpression>> ATTRIBUTES_LOOKUP;
+    /**
+     * Lookup table for aggregate functions by their keyword
+     */
+    private static final Map<String, AggregateFunction> AGGREGATES_LOOKUP;
     /**
      * Lookup table for operator specific IComparisonOperator
      */
@@ -22,6 +37,11 @@ public class QueryParser {
         ATTRIBUTES_LOOKUP.put("jmbag", QueryParser::processJmbag);
         ATTRIBUTES_LOOKUP.put("firstname", QueryParser::processFirstName);
         ATTRIBUTES_LOOKUP.put("lastname", QueryParser::processLastName);
+        ATTRIBUTES_LOOKUP.put("finalgrade", QueryParser::processFinalGrade);
+
+        AGGREGATES_LOOKUP = new HashMap<>();
+        for (var function : AggregateFunction.values())
+            AGGREGATES_LOOKUP.put(function.keyword(), function);
 
         OPERATORS_LOOKUP = new HashMap<>();
         OPERATORS_LOOKUP.put("<", ComparisonOperators.LESS);
@@ -34,12 +54,31 @@ public class QueryParser {
     }
 
     /**
-     * Stores the generated ConditionalExpression list
+     * Stores the parsed expression tree
+     */
+    private final IQueryExpression expression;
+    /**
+     * Stores the conditions of a conjunctive query, <code>null</code> for others
      */
     private final List<ConditionalExpression> queryExpression;
+    /**
+     * Stores the aggregate part of the query, <code>null</code> if there is none
+     */
+    private final Aggregation aggregation;
+    /**
+     * Stores the order and page of the result, <code>null</code> if there is none
+     */
+    private final Ordering ordering;
 
     /**
-     * Constructs and parses the query
+     * Constructs and parses the query. Conditions are joined by <code>and</code>,
+     * which may be left out, and <code>or</code>, which binds weaker. Both can be
+     * negated by <code>not</code> and grouped by parentheses. Conditions may be
+     * followed by aggregate functions and <code>group by</code> a field, in which
+     * case they may also be left out to aggregate all records. Otherwise they may
+     * be followed by <code>order by</code> a field, <code>asc</code> or
+     * <code>desc</code>, and <code>limit</code> with an optional
+     * <code>offset</code>
      *
      * @param query to parse
      * @throws ParserException if an error occurred
@@ -51,14 +90,19 @@ public class QueryParser {
             throw new ParserException("Only query command is supported");
 
         try {
-            queryExpression = parseQuery(lexer);
+            if (lexer.nextToken().type() == TokenType.EOF)
+                throw new ParserException("No query arguments provided");
+            expression = isClause(lexer.getToken()) ? new AndExpression(List.of()) : parseOr(lexer);
+            aggregation = parseAggregation(lexer);
+            ordering = parseOrdering(lexer);
+            if (aggregation != null && ordering != null)
+                throw new ParserException("Aggregates can't be ordered or limited");
+            if (lexer.getToken().type() != TokenType.EOF)
+                throw new ParserException("Unexpected " + lexer.getToken().value());
         } catch (LexerException e) {
             throw new ParserException(e.getMessage());
         }
-
-        if (queryExpression.size() == 0)
-            throw new ParserException("No query arguments provided");
-
+        queryExpression = AndExpression.conditionsOf(expression);
     }
 
     /**
@@ -67,7 +111,7 @@ public class QueryParser {
      * @return true if it is
      */
     public boolean isDirectQuery() {
-        if (queryExpression.size() == 1) {
+        if (aggregation == null && ordering == null && queryExpression != null && queryExpression.size() == 1) {
             var expr = queryExpression.get(0);
             return expr.getFieldGetter() == FieldValueGetters.JMBAG
                     && expr.getComparisonOperator() == ComparisonOperators.EQUALS;
@@ -87,30 +131,227 @@ public class QueryParser {
         return queryExpression.get(0).getStringLiteral();
     }
 
+    /**
+     * Checks whether the query only joins conditions with <code>and</code>
+     *
+     * @return true if it does
+     */
+    public boolean isConjunctive() {
+        return queryExpression != null;
+    }
+
+    /**
+     * Fetches the conditions of a conjunctive query
+     *
+     * @return list of ConditionalExpression elements
+     * @throws IllegalStateException if query isn't a conjunctive one
+     */
     public List<ConditionalExpression> getQuery() {
+        if (!isConjunctive())
+            throw new IllegalStateException("Query isn't a conjunction of conditions");
         return queryExpression;
     }
 
+    public IQueryExpression getExpression() {
+        return expression;
+    }
+
+    public Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    public Ordering getOrdering() {
+        return ordering;
+    }
+
     /**
-     * Parses the input and consumes tokens
+     * Parses operands joined by <code>or</code>, starting at the current token
      *
      * @param lexer to extract tokens
-     * @return list of ConditionalExpression elements
+     * @return parsed expression
+     * @throws ParserException if an error occurred
+     */
+    private static IQueryExpression parseOr(Lexer lexer) {
+        var operands = new ArrayList<IQueryExpression>();
+        operands.add(parseAnd(lexer));
+        while (isKeyword(lexer.getToken(), OR)) {
+            lexer.nextToken();
+            operands.add(parseAnd(lexer));
+        }
+        return OrExpression.of(operands);
+    }
+
+    /**
+     * Parses operands joined by <code>and</code>, or just following each other,
+     * up to the end of the group
+     *
+     * @param lexer to extract tokens
+     * @return parsed expression
+     * @throws ParserException if an error occurred
+     */
+    private static IQueryExpression parseAnd(Lexer lexer) {
+        var operands = new ArrayList<IQueryExpression>();
+        operands.add(parseUnary(lexer));
+        for (var token = lexer.getToken(); token.type() != TokenType.EOF && token.type() != TokenType.CLOSED_PARENTHESIS
+                && !isKeyword(token, OR) && !isClause(token); token = lexer.getToken()) {
+            if (isKeyword(token, AND))
+                lexer.nextToken();
+            operands.add(parseUnary(lexer));
+        }
+        return AndExpression.of(operands);
+    }
+
+    /**
+     * Parses a negation, a group in parentheses or a single condition
+     *
+     * @param lexer to extract tokens
+     * @return parsed expression
+     * @throws ParserException if an error occurred
+     */
+    private static IQueryExpression parseUnary(Lexer lexer) {
+        var token = lexer.getToken();
+        if (isKeyword(token, NOT)) {
+            lexer.nextToken();
+            return parseUnary(lexer).negate();
+        }
+        if (token.type() == TokenType.OPEN_PARENTHESIS) {
+            lexer.nextToken();
+            var expr = parseOr(lexer);
+            if (lexer.getToken().type() != TokenType.CLOSED_PARENTHESIS)
+                throw new ParserException("Expected )");
+            lexer.nextToken();
+            return expr;
+        }
+        if (token.type() == TokenType.EOF)
+            throw new ParserException("Expected a condition");
+        var word = token.value().toLowerCase();
+        if (token.type() != TokenType.WORD || !ATTRIBUTES_LOOKUP.containsKey(word))
+            throw new ParserException(token.value() + " is not a valid attribute");
+        var expr = ATTRIBUTES_LOOKUP.get(word).apply(lexer);
+        lexer.nextToken();
+        return expr;
+    }
+
+    /**
+     * Parses aggregate functions and the grouping field following the conditions.
+     * Functions other than <code>count</code> take <code>finalGrade</code>, and
+     * grouping without functions counts records of each group
+     *
+     * @param lexer to extract tokens
+     * @return parsed aggregation, <code>null</code> if there is none
      * @throws ParserException if an error occurred
      */
-    private static List<ConditionalExpression> parseQuery(Lexer lexer) {
-        var expression = new ArrayList<ConditionalExpression>();
-        for (var token = lexer.nextToken(); token.type() != TokenType.EOF; token = lexer.nextToken()) {
-            var word = token.value().toLowerCase();
-            if (!ATTRIBUTES_LOOKUP.containsKey(word)) {
-                if ("and".compareToIgnoreCase(word) == 0)
-                    continue;
-                else
-                    throw new ParserException(token.value() + " is not a valid attribute");
+    private static Aggregation parseAggregation(Lexer lexer) {
+        var functions = new ArrayList<AggregateFunction>();
+        IFieldValueGetter groupBy = null;
+        for (var token = lexer.getToken(); isAggregateClause(token); token = lexer.getToken()) {
+            if (isKeyword(token, GROUP)) {
+                if (groupBy != null)
+                    throw new ParserException("Records can be grouped by one field only");
+                if (!isKeyword(lexer.nextToken(), BY))
+                    throw new ParserException("Expected by");
+                var field = lexer.nextToken();
+                groupBy = field.type() == TokenType.WORD ? FieldValueGetters.forName(field.value()) : null;
+                if (groupBy == null)
+                    throw new ParserException(field.value() + " is not a valid attribute");
+            } else {
+                var function = AGGREGATES_LOOKUP.get(token.value().toLowerCase());
+                if (function != AggregateFunction.COUNT
+                        && FieldValueGetters.forName(lexer.nextToken().value()) != FieldValueGetters.FINAL_GRADE)
+                    throw new ParserException(function.keyword() + " can only be applied on finalGrade");
+                functions.add(function);
             }
-            expression.add(ATTRIBUTES_LOOKUP.get(word).apply(lexer));
+            lexer.nextToken();
         }
-        return expression;
+        if (functions.isEmpty() && groupBy == null)
+            return null;
+        if (functions.isEmpty())
+            functions.add(AggregateFunction.COUNT);
+        return new Aggregation(functions, groupBy);
+    }
+
+    /**
+     * Parses the ordering field and the page of the result
+     *
+     * @param lexer to extract tokens
+     * @return parsed ordering, <code>null</code> if there is none
+     * @throws ParserException if an error occurred
+     */
+    private static Ordering parseOrdering(Lexer lexer) {
+        IFieldValueGetter field = null;
+        boolean descending = false;
+        if (isKeyword(lexer.getToken(), ORDER)) {
+            if (!isKeyword(lexer.nextToken(), BY))
+                throw new ParserException("Expected by");
+            var token = lexer.nextToken();
+            field = token.type() == TokenType.WORD ? FieldValueGetters.forName(token.value()) : null;
+            if (field == null)
+                throw new ParserException(token.value() + " is not a valid attribute");
+            token = lexer.nextToken();
+            if (isKeyword(token, DESC) || isKeyword(token, ASC)) {
+                descending = isKeyword(token, DESC);
+                lexer.nextToken();
+            }
+        }
+        int limit = Ordering.NO_LIMIT;
+        int offset = 0;
+        if (isKeyword(lexer.getToken(), LIMIT)) {
+            limit = parseCount(lexer);
+            if (isKeyword(lexer.nextToken(), OFFSET)) {
+                offset = parseCount(lexer);
+                lexer.nextToken();
+            }
+        }
+        if (field == null && limit == Ordering.NO_LIMIT)
+            return null;
+        return new Ordering(field, descending, limit, offset);
+    }
+
+    /**
+     * Consumes the number of records given to <code>limit</code> or
+     * <code>offset</code>
+     *
+     * @param lexer to consume tokens from
+     * @return number of records
+     * @throws ParserException if the token isn't a number
+     */
+    private static int parseCount(Lexer lexer) {
+        var token = lexer.nextToken();
+        if (token.type() != TokenType.NUMBER || token.value().length() > 9)
+            throw new ParserException("Expected a number");
+        return Integer.parseInt(token.value());
+    }
+
+    /**
+     * Checks whether the token starts a clause following the conditions
+     *
+     * @param token to check
+     * @return true if it does
+     */
+    private static boolean isClause(Token token) {
+        return isAggregateClause(token) || isKeyword(token, ORDER) || isKeyword(token, LIMIT);
+    }
+
+    /**
+     * Checks whether the token starts an aggregate function or grouping
+     *
+     * @param token to check
+     * @return true if it does
+     */
+    private static boolean isAggregateClause(Token token) {
+        return token.type() == TokenType.WORD
+                && (isKeyword(token, GROUP) || AGGREGATES_LOOKUP.containsKey(token.value().toLowerCase()));
+    }
+
+    /**
+     * Checks whether the token is the keyword, ignoring case
+     *
+     * @param token   to check
+     * @param keyword expected
+     * @return true if it is
+     */
+    private static boolean isKeyword(Token token, String keyword) {
+        return token.type() == TokenType.WORD && keyword.equalsIgnoreCase(token.value());
     }
 
     private static ConditionalExpression processJmbag(Lexer lexer) {
@@ -125,6 +366,24 @@ public class QueryParser {
         return process(lexer, FieldValueGetters.LAST_NAME);
     }
 
+    /**
+     * Processes a numeric comparison of the final grade, whose literal is an
+     * unquoted number
+     *
+     * @param lexer to consume tokens from
+     * @return ConditionalExpression
+     * @throws ParserException if an error occurs
+     */
+    private static ConditionalExpression processFinalGrade(Lexer lexer) {
+        var operator = parseOperator(lexer);
+        if (operator == ComparisonOperators.LIKE)
+            throw new ParserException("LIKE can't be used on finalGrade");
+        var token = lexer.nextToken();
+        if (token.type() != TokenType.NUMBER || token.value().length() > 9)
+            throw new ParserException("Expected a number");
+        return new ConditionalExpression(FieldValueGetters.FINAL_GRADE, token.value(), operator);
+    }
+
     /**
      * Processes input tokens and constructs ConditionalExpression
      *
@@ -134,14 +393,26 @@ public class QueryParser {
      * @throws ParserException if an error occurs
      */
     private static ConditionalExpression process(Lexer lexer, IFieldValueGetter getter) {
+        var operator = parseOperator(lexer);
         var token = lexer.nextToken();
-        if (token.type() != TokenType.OPERATOR && !OPERATORS_LOOKUP.containsKey(token.value()))
-            throw new ParserException("Expected an operator: " + token.value());
-        var operator = OPERATORS_LOOKUP.get(token.value());
-        token = lexer.nextToken();
         if (token.type() != TokenType.QUOTED)
             throw new ParserException("Expected a literal");
         var literal = token.value().replace("\"", "");
         return new ConditionalExpression(getter, literal, operator);
     }
+
+    /**
+     * Consumes the operator token
+     *
+     * @param lexer to consume tokens from
+     * @return operator
+     * @throws ParserException if the token isn't an operator
+     */
+    private static IComparisonOperator parseOperator(Lexer lexer) {
+        var token = lexer.nextToken();
+        var operator = token.value() == null ? null : OPERATORS_LOOKUP.get(token.value());
+        if (operator == null)
+            throw new ParserException("Expected an operator: " + token.value());
+        return operator;
+    }
 }
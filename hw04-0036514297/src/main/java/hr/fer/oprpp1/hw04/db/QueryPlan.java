@@ -0,0 +1,289 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Way of executing a query. Records are either read from a run of a secondary
+ * index, from bitmaps of the final grades selected by the query, from both
+ * intersected, from a union of such reads, or, if no predicate can use
+ * either, by scanning the whole database. Either way they are tested with the
+ * remaining predicates, in the planned order, or, for queries which aren't
+ * plain conjunctions, with the whole reordered expression. A query whose
+ * predicates contradict each other reads no records at all
+ */
+public class QueryPlan {
+
+	/** Index used for reading candidates, <code>null</code> for full scan */
+	private final SortedIndex index;
+	/** Run of the index holding the candidates */
+	private final SortedIndex.Range range;
+	/** Bitmap index of grades used for reading candidates, <code>null</code> if unused */
+	private final GradeIndex gradeIndex;
+	/** Mask of grades satisfying the query, as in <code>GradeIndex</code> */
+	private final int grades;
+	/** Plans whose candidates are joined, empty if the plan isn't a union */
+	private final List<QueryPlan> branches;
+	/** Predicates tested on the candidates, in order of testing */
+	private final List<PlannedPredicate> predicates;
+	/** Expression tested on the candidates instead of predicates, <code>null</code> if unused */
+	private final IQueryExpression expression;
+	/** Whether the predicates can't be satisfied together */
+	private final boolean contradiction;
+	/** Number of records in the database */
+	private final int rows;
+	/** Compiled filter testing <code>expression</code>, or <code>predicates</code> in their order */
+	private final IFilter filter;
+
+	/**
+	 * Constructs the plan
+	 * 
+	 * @param index         used for reading candidates, <code>null</code> for full
+	 *                      scan
+	 * @param range         run of the index holding the candidates
+	 * @param gradeIndex    bitmap index of grades intersected with the
+	 *                      candidates, <code>null</code> if unused
+	 * @param grades        mask of grades satisfying the query
+	 * @param predicates    tested on the candidates, in order of testing
+	 * @param contradiction whether the predicates can't be satisfied together
+	 * @param rows          number of records in the database
+	 */
+	public QueryPlan(SortedIndex index, SortedIndex.Range range, GradeIndex gradeIndex, int grades,
+			List<PlannedPredicate> predicates, boolean contradiction, int rows) {
+		this(index, range, gradeIndex, grades, List.of(), predicates, null, contradiction, rows);
+	}
+
+	private QueryPlan(SortedIndex index, SortedIndex.Range range, GradeIndex gradeIndex, int grades,
+			List<QueryPlan> branches, List<PlannedPredicate> predicates, IQueryExpression expression,
+			boolean contradiction, int rows) {
+		this.index = index;
+		this.range = range;
+		this.gradeIndex = gradeIndex;
+		this.grades = grades;
+		this.branches = branches;
+		this.predicates = predicates;
+		this.expression = expression;
+		this.contradiction = contradiction;
+		this.rows = rows;
+		this.filter = expression != null ? QueryCompiler.compile(expression)
+				: QueryCompiler.compile(predicates.stream().map(PlannedPredicate::expression).toList());
+	}
+
+	/**
+	 * Creates the plan of a query whose predicates contradict each other
+	 * 
+	 * @param rows number of records in the database
+	 * @return plan reading no records
+	 */
+	public static QueryPlan contradiction(int rows) {
+		return new QueryPlan(null, null, null, 0, List.of(), true, rows);
+	}
+
+	/**
+	 * Creates the plan scanning all records and testing the expression on them
+	 * 
+	 * @param expression tested on every record
+	 * @param rows       number of records in the database
+	 * @return full scan plan
+	 */
+	public static QueryPlan fullScan(IQueryExpression expression, int rows) {
+		return new QueryPlan(null, null, null, GradeIndex.ALL_GRADES, List.of(), List.of(), expression, false, rows);
+	}
+
+	/**
+	 * Creates the plan reading candidates of all the branches, each of which
+	 * reads from an index
+	 * 
+	 * @param branches whose candidates are joined
+	 * @param rows     number of records in the database
+	 * @return plan of the union, without a filter
+	 */
+	public static QueryPlan union(List<QueryPlan> branches, int rows) {
+		return new QueryPlan(null, null, null, GradeIndex.ALL_GRADES, List.copyOf(branches), List.of(), null, false,
+				rows);
+	}
+
+	/**
+	 * Creates the plan reading the same candidates as this one and testing the
+	 * expression on them instead of its predicates
+	 * 
+	 * @param expression tested on the candidates
+	 * @return new plan
+	 */
+	public QueryPlan withFilter(IQueryExpression expression) {
+		return new QueryPlan(index, range, gradeIndex, grades, branches, List.of(), expression, contradiction, rows);
+	}
+
+	/**
+	 * Checks whether the plan reads candidates from an index
+	 * 
+	 * @return true if it does
+	 */
+	public boolean usesIndex() {
+		return index != null;
+	}
+
+	/**
+	 * Checks whether the plan reads candidates from bitmaps of grades
+	 * 
+	 * @return true if it does
+	 */
+	public boolean usesGradeIndex() {
+		return gradeIndex != null;
+	}
+
+	/**
+	 * Checks whether the plan joins candidates of its branches
+	 * 
+	 * @return true if it does
+	 */
+	public boolean isUnion() {
+		return !branches.isEmpty();
+	}
+
+	/**
+	 * Checks whether the query is known to select no records
+	 * 
+	 * @return true if it is
+	 */
+	public boolean isContradiction() {
+		return contradiction;
+	}
+
+	public SortedIndex index() {
+		return index;
+	}
+
+	public SortedIndex.Range range() {
+		return range;
+	}
+
+	public GradeIndex gradeIndex() {
+		return gradeIndex;
+	}
+
+	public int grades() {
+		return grades;
+	}
+
+	public List<QueryPlan> branches() {
+		return branches;
+	}
+
+	public IQueryExpression expression() {
+		return expression;
+	}
+
+	public List<PlannedPredicate> predicates() {
+		return predicates;
+	}
+
+	public IFilter filter() {
+		return filter;
+	}
+
+	/**
+	 * Estimates the number of candidates read by the plan. A union counts the
+	 * candidates of all branches, as if none were shared
+	 * 
+	 * @return upper bound of the number of candidates
+	 */
+	public int candidates() {
+		if (contradiction)
+			return 0;
+		if (isUnion())
+			return (int) Math.min(rows, branches.stream().mapToLong(QueryPlan::candidates).sum());
+		int candidates = rows;
+		if (usesIndex())
+			candidates = Math.min(candidates, range.size());
+		if (usesGradeIndex())
+			candidates = Math.min(candidates, gradeIndex.count(grades));
+		return candidates;
+	}
+
+	/**
+	 * Describes the plan in human readable form
+	 * 
+	 * @return lines of the description
+	 */
+	public List<String> explain() {
+		var output = new ArrayList<String>();
+		if (contradiction) {
+			output.add("Contradictory conditions, no records are read");
+			return output;
+		}
+		explainReads(output, "");
+		if (expression != null) {
+			output.add("Filter: " + expression);
+			return output;
+		}
+		if (predicates.isEmpty())
+			output.add("No filter");
+		else
+			output.add("Filter:");
+		for (int i = 0; i < predicates.size(); i++) {
+			var predicate = predicates.get(i);
+			output.add(String.format(Locale.ROOT, "  %d. %s (selectivity %.3f, cost %.0f)", i + 1,
+					predicate.expression(), predicate.selectivity(), predicate.cost()));
+		}
+		return output;
+	}
+
+	/**
+	 * Describes how candidates are read, with branches of a union indented
+	 * 
+	 * @param output receiving the lines
+	 * @param indent prefix of every line
+	 */
+	private void explainReads(List<String> output, String indent) {
+		if (isUnion()) {
+			output.add(String.format("%sUnion of %d index scans: at most %d of %d records", indent, branches.size(),
+					candidates(), rows));
+			for (var branch : branches)
+				branch.explainReads(output, indent + "  ");
+			return;
+		}
+		if (usesIndex())
+			output.add(String.format("%sIndex range scan on %s: %d of %d records", indent,
+					FieldValueGetters.nameOf(index.getFieldGetter()), range.size(), rows));
+		if (usesGradeIndex())
+			output.add(String.format("%s%s on finalGrade (%s %s): %d of %d records", indent,
+					usesIndex() ? "Intersected with bitmap index" : "Bitmap index scan",
+					Integer.bitCount(grades) == 1 ? "grade" : "grades", GradeIndex.describe(grades),
+					gradeIndex.count(grades), rows));
+		if (!usesIndex() && !usesGradeIndex())
+			output.add(String.format("%sFull scan: %d records", indent, rows));
+	}
+
+	/**
+	 * Rank of a test which stops evaluation when it fails. Tests are done in
+	 * ascending order of rank, so that cheap tests failing often come first
+	 * 
+	 * @param selectivity estimated fraction of records passing the test
+	 * @param cost        relative cost of the test on one record
+	 * @return rank of the test, infinite if it never fails
+	 */
+	static double rank(double selectivity, double cost) {
+		return selectivity >= 1 ? Double.POSITIVE_INFINITY : cost / (1 - selectivity);
+	}
+
+	/**
+	 * Predicate of the plan together with its estimates
+	 * 
+	 * @param expression  which is tested
+	 * @param selectivity estimated fraction of records satisfying it
+	 * @param cost        relative cost of testing it on one record
+	 */
+	public record PlannedPredicate(ConditionalExpression expression, double selectivity, double cost) {
+		/**
+		 * Predicates are tested in ascending order of rank, so that cheap predicates
+		 * rejecting many records come first
+		 * 
+		 * @return rank of the predicate
+		 */
+		public double rank() {
+			return QueryPlan.rank(selectivity, cost);
+		}
+	}
+}
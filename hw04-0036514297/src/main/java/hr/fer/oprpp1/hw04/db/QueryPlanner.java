@@ -0,0 +1,387 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chooses how a query is executed. Of all predicates of a conjunction on
+ * indexed fields the one selecting the shortest run of its index is used for
+ * reading candidates. The remaining ones are tested on each candidate, ordered
+ * by their estimated cost and selectivity. Disjunctions whose every operand can
+ * use an index read the union of their candidates
+ */
+public class QueryPlanner {
+
+	/** Relative cost of testing a comparison on one record */
+	private static final double COMPARISON_COST = 1;
+	/** Relative cost of matching a compiled <code>LIKE</code> pattern on one record */
+	private static final double LIKE_COST = 2;
+	/** Selectivity assumed for fields without statistics */
+	private static final double DEFAULT_SELECTIVITY = 0.5;
+
+	/** Number of records in the database */
+	private final int rows;
+	/** Secondary indexes by the getter of their field */
+	private final Map<IFieldValueGetter, SortedIndex> indexes = new HashMap<>();
+	/** Statistics of fields by their getter */
+	private final Map<IFieldValueGetter, ColumnStatistics> statistics = new HashMap<>();
+	/** Bitmap index of final grades */
+	private final GradeIndex gradeIndex;
+
+	/**
+	 * Constructs the planner over given records, indexing the given fields
+	 * 
+	 * @param records       of the database
+	 * @param indexedFields getters of fields to be indexed
+	 */
+	public QueryPlanner(List<StudentRecord> records, List<IFieldValueGetter> indexedFields) {
+		this(records.size(), indexedFields.stream().map((getter) -> new SortedIndex(records, getter)).toList(),
+				new GradeIndex(records));
+	}
+
+	/**
+	 * Constructs the planner using already built indexes
+	 * 
+	 * @param rows         number of records in the database
+	 * @param builtIndexes over the records of the database
+	 * @param gradeIndex   bitmap index of final grades of the records
+	 */
+	public QueryPlanner(int rows, List<SortedIndex> builtIndexes, GradeIndex gradeIndex) {
+		this.rows = rows;
+		this.gradeIndex = gradeIndex;
+		for (var index : builtIndexes) {
+			indexes.put(index.getFieldGetter(), index);
+			statistics.put(index.getFieldGetter(), index.getStatistics());
+		}
+	}
+
+	/**
+	 * Finds the index of the field
+	 * 
+	 * @param getter of the field
+	 * @return its index, <code>null</code> if the field isn't indexed
+	 */
+	public SortedIndex getIndex(IFieldValueGetter getter) {
+		return indexes.get(getter);
+	}
+
+	public GradeIndex getGradeIndex() {
+		return gradeIndex;
+	}
+
+	/**
+	 * Plans the query made of given expressions. Predicates on the final grade
+	 * are all answered by the bitmap index, which is used whenever it leaves out
+	 * some records
+	 * 
+	 * @param expressions which all have to be satisfied
+	 * @return plan of the query
+	 */
+	public QueryPlan plan(List<ConditionalExpression> expressions) {
+		var gradeExpressions = new ArrayList<ConditionalExpression>();
+		var textExpressions = new ArrayList<ConditionalExpression>();
+		for (var expr : expressions)
+			(expr.getFieldGetter() == FieldValueGetters.FINAL_GRADE ? gradeExpressions : textExpressions).add(expr);
+		int grades = GradeIndex.gradesSatisfying(gradeExpressions);
+		if (grades == 0 || isContradictory(textExpressions))
+			return QueryPlan.contradiction(rows);
+		var usedGradeIndex = gradeIndex.count(grades) < rows ? gradeIndex : null;
+
+		ConditionalExpression chosen = null;
+		SortedIndex chosenIndex = null;
+		SortedIndex.Range chosenRange = null;
+		for (var expr : textExpressions) {
+			var index = indexes.get(expr.getFieldGetter());
+			if (index == null)
+				continue;
+			var range = index.rangeFor(expr.getComparisonOperator(), expr.getStringLiteral());
+			if (range != null && (chosenRange == null || range.size() < chosenRange.size())) {
+				chosen = expr;
+				chosenIndex = index;
+				chosenRange = range;
+			}
+		}
+
+		var predicates = new ArrayList<QueryPlan.PlannedPredicate>();
+		for (var expr : textExpressions)
+			if (expr != chosen || expr.getComparisonOperator() == ComparisonOperators.LIKE)
+				predicates.add(new QueryPlan.PlannedPredicate(expr, selectivity(expr), cost(expr)));
+		predicates.sort(Comparator.comparingDouble(QueryPlan.PlannedPredicate::rank));
+		return new QueryPlan(chosenIndex, chosenRange, usedGradeIndex, grades, predicates, false, rows);
+	}
+
+	/**
+	 * Plans the query made of the expression tree. Plain conjunctions of
+	 * conditions are planned as lists. Other queries read candidates from the
+	 * index, or the union of indexes under <code>or</code>, expected to read the
+	 * fewest records, and test the whole expression on them. Operands of every
+	 * <code>and</code> and <code>or</code> are reordered so that cheap ones which
+	 * decide most records are tested first
+	 * 
+	 * @param expression which has to be satisfied
+	 * @return plan of the query
+	 */
+	public QueryPlan plan(IQueryExpression expression) {
+		var conditions = AndExpression.conditionsOf(expression);
+		if (conditions != null)
+			return plan(conditions);
+		var reads = readsFor(expression);
+		var ordered = order(expression).expression();
+		if (reads == null)
+			return QueryPlan.fullScan(ordered, rows);
+		return reads.isContradiction() ? reads : reads.withFilter(ordered);
+	}
+
+	/**
+	 * Checks whether records of the ordered query are better read by walking the
+	 * index of the ordering field, or the bitmaps of grades, in order. The walk
+	 * stops once enough records are found, which takes testing about
+	 * <code>k * rows / c</code> records for <code>k</code> wanted ones out of
+	 * <code>c</code> candidates of the plan, while the plan tests all of its
+	 * candidates
+	 * 
+	 * @param plan     of the query
+	 * @param ordering of its records
+	 * @return true if the index should be walked
+	 */
+	public boolean readsInOrder(QueryPlan plan, Ordering ordering) {
+		if (!ordering.isOrdered() || plan.isContradiction())
+			return false;
+		if (ordering.getField() != FieldValueGetters.FINAL_GRADE && !indexes.containsKey(ordering.getField()))
+			return false;
+		long wanted = Math.min(ordering.wanted(), rows);
+		long candidates = plan.candidates();
+		return wanted * rows <= candidates * candidates;
+	}
+
+	/**
+	 * Finds how to read candidates of the expression using indexes
+	 * 
+	 * @param expression of the query
+	 * @return plan reading a superset of records satisfying the expression, or
+	 *         <code>null</code> if that takes scanning all records
+	 */
+	private QueryPlan readsFor(IQueryExpression expression) {
+		if (expression instanceof ConditionalExpression expr)
+			return readsFewer(plan(List.of(expr)));
+		if (expression instanceof OrExpression or) {
+			var branches = new ArrayList<QueryPlan>();
+			for (var operand : or.operands()) {
+				var branch = readsFor(operand);
+				if (branch == null)
+					return null;
+				if (!branch.isContradiction())
+					branches.add(branch);
+			}
+			if (branches.isEmpty())
+				return QueryPlan.contradiction(rows);
+			var union = branches.size() == 1 ? branches.get(0) : QueryPlan.union(branches, rows);
+			return union.candidates() < rows ? union : null;
+		}
+		if (!(expression instanceof AndExpression and))
+			return null;
+		var conditions = new ArrayList<ConditionalExpression>();
+		QueryPlan best = null;
+		for (var operand : and.operands()) {
+			if (operand instanceof ConditionalExpression expr) {
+				conditions.add(expr);
+				continue;
+			}
+			var reads = readsFor(operand);
+			if (reads != null && (best == null || reads.candidates() < best.candidates()))
+				best = reads;
+		}
+		if (!conditions.isEmpty()) {
+			var reads = readsFewer(plan(conditions));
+			if (reads != null && (best == null || reads.candidates() < best.candidates()))
+				best = reads;
+		}
+		return best;
+	}
+
+	/**
+	 * Keeps the plan only if it doesn't scan all records
+	 * 
+	 * @param plan of a conjunction
+	 * @return the plan, <code>null</code> if it is a full scan
+	 */
+	private static QueryPlan readsFewer(QueryPlan plan) {
+		return plan.isContradiction() || plan.usesIndex() || plan.usesGradeIndex() ? plan : null;
+	}
+
+	/**
+	 * Reorders operands of the expression and estimates it. A conjunction tests
+	 * first the operands with the lowest cost per rejected record, and a
+	 * disjunction those with the lowest cost per accepted one, since either
+	 * decides the result alone
+	 * 
+	 * @param expression to be ordered
+	 * @return reordered expression with its estimates
+	 */
+	private Estimate order(IQueryExpression expression) {
+		if (expression instanceof ConditionalExpression expr)
+			return new Estimate(expr, selectivity(expr), cost(expr));
+		if (expression instanceof NotExpression not) {
+			var operand = order(not.operand());
+			return new Estimate(new NotExpression(operand.expression()), 1 - operand.selectivity(), operand.cost());
+		}
+		boolean and = expression instanceof AndExpression;
+		var operands = new ArrayList<Estimate>();
+		for (var operand : and ? ((AndExpression) expression).operands() : ((OrExpression) expression).operands())
+			operands.add(order(operand));
+		operands.sort(Comparator.comparingDouble(and ? Estimate::andRank : Estimate::orRank));
+		double undecided = 1;
+		double cost = 0;
+		for (var operand : operands) {
+			cost += undecided * operand.cost();
+			undecided *= and ? operand.selectivity() : 1 - operand.selectivity();
+		}
+		var ordered = operands.stream().map(Estimate::expression).toList();
+		if (and)
+			return new Estimate(new AndExpression(ordered), undecided, cost);
+		return new Estimate(new OrExpression(ordered), 1 - undecided, cost);
+	}
+
+	/**
+	 * Estimates the fraction of records satisfying the expression. Fields with an
+	 * index get exact counts, apart from <code>LIKE</code> whose run only matches
+	 * the prefix
+	 * 
+	 * @param expr to be estimated
+	 * @return fraction of selected records
+	 */
+	private double selectivity(ConditionalExpression expr) {
+		if (rows == 0)
+			return 0;
+		if (expr.getFieldGetter() == FieldValueGetters.FINAL_GRADE)
+			return (double) gradeIndex.count(GradeIndex.gradesSatisfying(List.of(expr))) / rows;
+		var operator = expr.getComparisonOperator();
+		var literal = expr.getStringLiteral();
+		var index = indexes.get(expr.getFieldGetter());
+		if (index != null) {
+			if (operator == ComparisonOperators.NOT_EQUALS)
+				return 1 - (double) index.rangeFor(ComparisonOperators.EQUALS, literal).size() / rows;
+			var range = index.rangeFor(operator, literal);
+			if (range != null)
+				return (double) range.size() / rows;
+		}
+		var columnStatistics = statistics.get(expr.getFieldGetter());
+		if (columnStatistics != null)
+			return columnStatistics.selectivity(operator, literal);
+		return DEFAULT_SELECTIVITY;
+	}
+
+	/**
+	 * Estimates the relative cost of testing the expression on one record
+	 * 
+	 * @param expr to be estimated
+	 * @return relative cost
+	 */
+	private static double cost(ConditionalExpression expr) {
+		return expr.getComparisonOperator() == ComparisonOperators.LIKE ? LIKE_COST : COMPARISON_COST;
+	}
+
+	/**
+	 * Checks whether the expressions can't be satisfied together, regardless of
+	 * the stored records
+	 * 
+	 * @param expressions of the query
+	 * @return true if they contradict each other
+	 */
+	private static boolean isContradictory(List<ConditionalExpression> expressions) {
+		var bounds = new HashMap<IFieldValueGetter, Bounds>();
+		for (var expr : expressions)
+			bounds.computeIfAbsent(expr.getFieldGetter(), (getter) -> new Bounds())
+					.add(expr.getComparisonOperator(), expr.getStringLiteral());
+		return bounds.values().stream().anyMatch(Bounds::isEmpty);
+	}
+
+	/**
+	 * Expression together with its estimates
+	 * 
+	 * @param expression  which is estimated
+	 * @param selectivity estimated fraction of records satisfying it
+	 * @param cost        expected relative cost of testing it on one record
+	 */
+	private record Estimate(IQueryExpression expression, double selectivity, double cost) {
+		/** Rank of the operand of a conjunction, tested in ascending order */
+		public double andRank() {
+			return QueryPlan.rank(selectivity, cost);
+		}
+
+		/**
+		 * Rank of the operand of a disjunction, tested in ascending order. A
+		 * disjunction stops when an operand passes, so the operand is ranked by the
+		 * fraction of records failing it
+		 */
+		public double orRank() {
+			return QueryPlan.rank(1 - selectivity, cost);
+		}
+	}
+
+	/** Interval of values of one field allowed by the predicates on it */
+	private static class Bounds {
+		private String lower;
+		private boolean lowerInclusive;
+		private String upper;
+		private boolean upperInclusive;
+		/** Values excluded by <code>NOT_EQUALS</code> */
+		private final Set<String> excluded = new HashSet<>();
+
+		/** Narrows the interval by the predicate */
+		public void add(IComparisonOperator operator, String literal) {
+			if (operator == ComparisonOperators.EQUALS
+					|| operator == ComparisonOperators.LIKE && literal.indexOf('*') < 0) {
+				raiseLower(literal, true);
+				dropUpper(literal, true);
+			} else if (operator == ComparisonOperators.LIKE) {
+				raiseLower(literal.substring(0, literal.indexOf('*')), true);
+			} else if (operator == ComparisonOperators.LESS) {
+				dropUpper(literal, false);
+			} else if (operator == ComparisonOperators.LESS_OR_EQUALS) {
+				dropUpper(literal, true);
+			} else if (operator == ComparisonOperators.GREATER) {
+				raiseLower(literal, false);
+			} else if (operator == ComparisonOperators.GREATER_OR_EQUALS) {
+				raiseLower(literal, true);
+			} else if (operator == ComparisonOperators.NOT_EQUALS) {
+				excluded.add(literal);
+			}
+		}
+
+		/** Checks whether no value is left in the interval */
+		public boolean isEmpty() {
+			if (lower == null || upper == null)
+				return false;
+			int comparison = lower.compareTo(upper);
+			if (comparison != 0)
+				return comparison > 0;
+			return !lowerInclusive || !upperInclusive || excluded.contains(lower);
+		}
+
+		private void raiseLower(String value, boolean inclusive) {
+			int comparison = lower == null ? 1 : value.compareTo(lower);
+			if (comparison > 0) {
+				lower = value;
+				lowerInclusive = inclusive;
+			} else if (comparison == 0) {
+				lowerInclusive &= inclusive;
+			}
+		}
+
+		private void dropUpper(String value, boolean inclusive) {
+			int comparison = upper == null ? -1 : value.compareTo(upper);
+			if (comparison < 0) {
+				upper = value;
+				upperInclusive = inclusive;
+			} else if (comparison == 0) {
+				upperInclusive &= inclusive;
+			}
+		}
+	}
+}
@@ -37,6 +37,60 @@ public class RecordFormatter {
 		return output;
 	}
 
+	/**
+	 * Produces the output of the aggregation, one row per group in order of the
+	 * grouping field
+	 * 
+	 * @param aggregation which was computed
+	 * @param result      of the aggregation
+	 * @return output list
+	 */
+	public static List<String> format(Aggregation aggregation, Aggregation.Result result) {
+		var header = new ArrayList<String>();
+		if (aggregation.isGrouped())
+			header.add(FieldValueGetters.nameOf(aggregation.getGroupBy()));
+		aggregation.getFunctions().forEach((function) -> header.add(function.label()));
+		var rows = new ArrayList<List<String>>();
+		if (aggregation.isGrouped()) {
+			for (var group : result.groups().entrySet()) {
+				var row = new ArrayList<String>();
+				row.add(group.getKey());
+				aggregation.getFunctions().forEach((function) -> row.add(function.valueOf(group.getValue())));
+				rows.add(row);
+			}
+		} else {
+			rows.add(aggregation.getFunctions().stream().map((function) -> function.valueOf(result.total())).toList());
+		}
+
+		var widths = new int[header.size()];
+		for (int i = 0; i < widths.length; i++) {
+			widths[i] = header.get(i).length();
+			for (var row : rows)
+				widths[i] = Math.max(widths[i], row.get(i).length());
+		}
+		var border = new StringBuilder("+");
+		for (int width : widths)
+			border.append("=".repeat(width + 2)).append('+');
+		var output = new ArrayList<String>();
+		output.add(border.toString());
+		output.add(formatRow(header, widths));
+		output.add(border.toString());
+		for (var row : rows)
+			output.add(formatRow(row, widths));
+		output.add(border.toString());
+		if (aggregation.isGrouped())
+			output.add("Groups: " + rows.size());
+		return output;
+	}
+
+	/** Pads the values to their column widths */
+	private static String formatRow(List<String> values, int[] widths) {
+		var sb = new StringBuilder("|");
+		for (int i = 0; i < widths.length; i++)
+			sb.append(String.format(" %-" + widths[i] + "s |", values.get(i)));
+		return sb.toString();
+	}
+
 	/** Structure used to extract longest names lengths */
 	private static class LongestNames {
 		public int firstName = 0;
@@ -0,0 +1,425 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Secondary index keeping positions of records sorted by the value of one
+ * field. Values are ordered by <code>String.compareTo</code>, the same order
+ * used by <code>ComparisonOperators</code>, so every range and prefix
+ * predicate selects one contiguous run of the index. Entries are kept in
+ * chunks of bounded size, so that a changed index copies only the chunks
+ * which changed, while unchanged ones are shared with the previous version
+ */
+public class SortedIndex {
+
+	/** Number of entries of a chunk made by splitting */
+	private static final int CHUNK_SIZE = 512;
+
+	/** Getter of the indexed field */
+	private final IFieldValueGetter getter;
+	/** Non-empty chunks of entries, in ascending order of field values */
+	private final Chunk[] chunks;
+	/** Index of the first entry of every chunk, followed by the number of entries */
+	private final int[] starts;
+	/** Statistics of the indexed field */
+	private final ColumnStatistics statistics;
+
+	/**
+	 * Builds the index over given records. Records with equal values keep their
+	 * database order
+	 * 
+	 * @param records to be indexed
+	 * @param getter  of the indexed field
+	 */
+	public SortedIndex(List<StudentRecord> records, IFieldValueGetter getter) {
+		this(records, getter, IntStream.range(0, records.size()).boxed()
+				.sorted(Comparator.comparing((Integer i) -> getter.get(records.get(i))))
+				.mapToInt(Integer::intValue)
+				.toArray());
+	}
+
+	/**
+	 * Restores the index from positions of an index previously built over the
+	 * same records, without sorting them again
+	 * 
+	 * @param records   which were indexed
+	 * @param getter    of the indexed field
+	 * @param positions of records in the order of field values
+	 */
+	SortedIndex(List<StudentRecord> records, IFieldValueGetter getter, int[] positions) {
+		this(getter, split(keysOf(records, getter, positions), positions));
+	}
+
+	/** Constructs the index from its chunks, collecting the statistics from them */
+	private SortedIndex(IFieldValueGetter getter, List<Chunk> chunks) {
+		this.getter = getter;
+		this.chunks = chunks.toArray(new Chunk[0]);
+		starts = new int[this.chunks.length + 1];
+		int distinct = 0;
+		for (int c = 0; c < this.chunks.length; c++) {
+			var chunk = this.chunks[c];
+			starts[c + 1] = starts[c] + chunk.keys().length;
+			distinct += chunk.distinct();
+			// a value may continue from the previous chunk
+			if (c > 0 && chunk.keys()[0].equals(this.chunks[c - 1].lastKey()))
+				distinct--;
+		}
+		statistics = this.chunks.length == 0 ? new ColumnStatistics(0, 0, null, null)
+				: new ColumnStatistics(size(), distinct, this.chunks[0].keys()[0],
+						this.chunks[this.chunks.length - 1].lastKey());
+	}
+
+	private static String[] keysOf(List<StudentRecord> records, IFieldValueGetter getter, int[] positions) {
+		var keys = new String[positions.length];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = getter.get(records.get(positions[i]));
+		return keys;
+	}
+
+	/**
+	 * Splits sorted entries into chunks of <code>CHUNK_SIZE</code> entries
+	 * 
+	 * @param keys      in ascending order
+	 * @param positions of records in the order of keys
+	 * @return chunks of the entries
+	 */
+	private static List<Chunk> split(String[] keys, int[] positions) {
+		var chunks = new ArrayList<Chunk>(keys.length / CHUNK_SIZE + 1);
+		for (int from = 0; from < keys.length; from += CHUNK_SIZE) {
+			int to = Math.min(keys.length, from + CHUNK_SIZE);
+			chunks.add(Chunk.of(Arrays.copyOfRange(keys, from, to), Arrays.copyOfRange(positions, from, to)));
+		}
+		return chunks;
+	}
+
+	/**
+	 * Creates the index with some entries removed and others added, leaving this
+	 * one intact. Changes are sorted and merged only into the chunks they fall
+	 * into, so the cost is linear in the number of changes and chunks, while the
+	 * entries of unchanged chunks aren't copied. Entries with equal values stay
+	 * in the order of their positions
+	 * 
+	 * @param removedPositions positions whose entries are dropped
+	 * @param removedRecords   records which were indexed at those positions
+	 * @param addedPositions   positions of added records
+	 * @param addedRecords     added records, in the order of their positions
+	 * @return changed index
+	 */
+	SortedIndex withChanges(int[] removedPositions, StudentRecord[] removedRecords, int[] addedPositions,
+			StudentRecord[] addedRecords) {
+		var removed = sortedEntries(removedPositions, removedRecords);
+		var added = sortedEntries(addedPositions, addedRecords);
+		var changed = new ArrayList<Chunk>(chunks.length + 1);
+		int r = 0;
+		int a = 0;
+		for (int c = 0; c < chunks.length; c++) {
+			var next = c + 1 < chunks.length ? chunks[c + 1] : null;
+			int removedEnd = r;
+			while (removedEnd < removed.length && (next == null || removed[removedEnd].compareTo(next.first()) < 0))
+				removedEnd++;
+			int addedEnd = a;
+			while (addedEnd < added.length && (next == null || added[addedEnd].compareTo(next.first()) < 0))
+				addedEnd++;
+			if (removedEnd == r && addedEnd == a)
+				changed.add(chunks[c]);
+			else
+				append(changed, chunks[c].merge(removed, r, removedEnd, added, a, addedEnd));
+			r = removedEnd;
+			a = addedEnd;
+		}
+		if (chunks.length == 0)
+			append(changed, new Chunk(new String[0], new int[0], 0).merge(removed, 0, 0, added, 0, added.length));
+		return new SortedIndex(getter, changed);
+	}
+
+	/**
+	 * Sorts entries of the records by their value, then by their position
+	 * 
+	 * @return sorted entries
+	 */
+	private Entry[] sortedEntries(int[] positions, StudentRecord[] records) {
+		var entries = new Entry[positions.length];
+		for (int i = 0; i < entries.length; i++)
+			entries[i] = new Entry(getter.get(records[i]), positions[i]);
+		Arrays.sort(entries);
+		return entries;
+	}
+
+	/**
+	 * Appends the changed chunk to the chunks of the new index. An empty chunk is
+	 * dropped, a small one is joined to the previous chunk and a large one is
+	 * split, so that chunk sizes stay bounded
+	 * 
+	 * @param chunks of the new index
+	 * @param chunk  which changed
+	 */
+	private static void append(List<Chunk> chunks, Chunk chunk) {
+		int length = chunk.keys().length;
+		if (length == 0)
+			return;
+		if (length < CHUNK_SIZE / 4 && !chunks.isEmpty()
+				&& chunks.get(chunks.size() - 1).keys().length + length <= 2 * CHUNK_SIZE) {
+			var previous = chunks.remove(chunks.size() - 1);
+			chunk = previous.concat(chunk);
+			length = chunk.keys().length;
+		}
+		if (length <= 2 * CHUNK_SIZE)
+			chunks.add(chunk);
+		else
+			chunks.addAll(split(chunk.keys(), chunk.positions()));
+	}
+
+	public IFieldValueGetter getFieldGetter() {
+		return getter;
+	}
+
+	public ColumnStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Number of indexed records
+	 * 
+	 * @return size of the index
+	 */
+	public int size() {
+		return starts[chunks.length];
+	}
+
+	/**
+	 * Finds the run of the index whose values can satisfy the operator. For
+	 * <code>LIKE</code> the run only narrows values down to the literal part
+	 * before the wildcard, so the predicate still has to be tested on them
+	 * 
+	 * @param operator of the predicate
+	 * @param literal  of the predicate
+	 * @return range of the index, <code>null</code> if the operator can't use it
+	 */
+	public Range rangeFor(IComparisonOperator operator, String literal) {
+		if (operator == ComparisonOperators.LESS)
+			return new Range(0, lowerBound(literal));
+		if (operator == ComparisonOperators.LESS_OR_EQUALS)
+			return new Range(0, upperBound(literal));
+		if (operator == ComparisonOperators.GREATER)
+			return new Range(upperBound(literal), size());
+		if (operator == ComparisonOperators.GREATER_OR_EQUALS)
+			return new Range(lowerBound(literal), size());
+		if (operator == ComparisonOperators.EQUALS)
+			return new Range(lowerBound(literal), upperBound(literal));
+		if (operator == ComparisonOperators.LIKE)
+			return prefixRange(literal);
+		return null;
+	}
+
+	/**
+	 * Copies positions of records in the range
+	 * 
+	 * @param range of the index
+	 * @return positions in the order of field values
+	 */
+	public int[] positions(Range range) {
+		var copied = new int[range.size()];
+		for (int i = 0; i < copied.length;) {
+			int c = chunkOf(range.from() + i);
+			int offset = range.from() + i - starts[c];
+			int length = Math.min(copied.length - i, starts[c + 1] - starts[c] - offset);
+			System.arraycopy(chunks[c].positions(), offset, copied, i, length);
+			i += length;
+		}
+		return copied;
+	}
+
+	/**
+	 * Value at the index, in ascending order of values
+	 * 
+	 * @param i index of the value
+	 * @return field value
+	 */
+	String keyAt(int i) {
+		int c = chunkOf(i);
+		return chunks[c].keys()[i - starts[c]];
+	}
+
+	/**
+	 * Position of the record whose value is at the index
+	 * 
+	 * @param i index of the value
+	 * @return position of the record
+	 */
+	int positionAt(int i) {
+		int c = chunkOf(i);
+		return chunks[c].positions()[i - starts[c]];
+	}
+
+	/**
+	 * Finds the chunk holding the entry
+	 * 
+	 * @param i index of the entry
+	 * @return index of the chunk
+	 */
+	private int chunkOf(int i) {
+		int c = Arrays.binarySearch(starts, 0, chunks.length, i);
+		return c >= 0 ? c : -c - 2;
+	}
+
+	/**
+	 * Finds the run of values starting with the part of the pattern before the
+	 * wildcard. A pattern without the wildcard matches only itself
+	 * 
+	 * @param pattern of the <code>LIKE</code> operator
+	 * @return range of the index
+	 */
+	private Range prefixRange(String pattern) {
+		var compiled = LikePattern.compile(pattern);
+		var prefix = compiled.getPrefix();
+		if (!compiled.hasWildcard())
+			return new Range(lowerBound(prefix), upperBound(prefix));
+		return new Range(lowerBound(prefix),
+				firstFailing((key) -> key.compareTo(prefix) < 0 || key.startsWith(prefix)));
+	}
+
+	/** Index of the first value not less than the literal */
+	private int lowerBound(String literal) {
+		return firstFailing((key) -> key.compareTo(literal) < 0);
+	}
+
+	/** Index of the first value greater than the literal */
+	private int upperBound(String literal) {
+		return firstFailing((key) -> key.compareTo(literal) <= 0);
+	}
+
+	/**
+	 * Binary search over the values for a condition which holds for a prefix of
+	 * them. The chunk is found by its last value first, then the value within it
+	 * 
+	 * @param condition holding for leading values only
+	 * @return index of the first value failing the condition
+	 */
+	private int firstFailing(Predicate<String> condition) {
+		int low = 0;
+		int high = chunks.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (condition.test(chunks[middle].lastKey()))
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		if (low == chunks.length)
+			return size();
+		int c = low;
+		var keys = chunks[c].keys();
+		low = 0;
+		high = keys.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (condition.test(keys[middle]))
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return starts[c] + low;
+	}
+
+	/**
+	 * Entry of the index, ordered by its value and then by its position
+	 * 
+	 * @param key      field value of the record
+	 * @param position of the record
+	 */
+	private record Entry(String key, int position) implements Comparable<Entry> {
+		@Override
+		public int compareTo(Entry other) {
+			int comparison = key.compareTo(other.key);
+			return comparison != 0 ? comparison : Integer.compare(position, other.position);
+		}
+	}
+
+	/**
+	 * Immutable run of consecutive entries of the index
+	 * 
+	 * @param keys      field values in ascending order
+	 * @param positions of records in the order of <code>keys</code>
+	 * @param distinct  number of distinct values in the chunk
+	 */
+	private record Chunk(String[] keys, int[] positions, int distinct) {
+
+		/** Creates the chunk, counting its distinct values */
+		static Chunk of(String[] keys, int[] positions) {
+			int distinct = keys.length == 0 ? 0 : 1;
+			for (int i = 1; i < keys.length; i++)
+				if (!keys[i].equals(keys[i - 1]))
+					distinct++;
+			return new Chunk(keys, positions, distinct);
+		}
+
+		Entry first() {
+			return new Entry(keys[0], positions[0]);
+		}
+
+		String lastKey() {
+			return keys[keys.length - 1];
+		}
+
+		/**
+		 * Creates the chunk without the removed entries and with the added ones
+		 * merged in
+		 * 
+		 * @return changed chunk
+		 */
+		Chunk merge(Entry[] removed, int removedFrom, int removedTo, Entry[] added, int addedFrom, int addedTo) {
+			int length = keys.length - (removedTo - removedFrom) + (addedTo - addedFrom);
+			var mergedKeys = new String[length];
+			var mergedPositions = new int[length];
+			int i = 0;
+			int r = removedFrom;
+			int a = addedFrom;
+			for (int k = 0; k < length; k++) {
+				// removed entries are present in the same order as they are kept here
+				while (i < keys.length && r < removedTo && positions[i] == removed[r].position()
+						&& keys[i].equals(removed[r].key())) {
+					i++;
+					r++;
+				}
+				boolean takeOld = a == addedTo;
+				if (!takeOld && i < keys.length) {
+					int comparison = keys[i].compareTo(added[a].key());
+					takeOld = comparison < 0 || comparison == 0 && positions[i] < added[a].position();
+				}
+				if (takeOld) {
+					mergedKeys[k] = keys[i];
+					mergedPositions[k] = positions[i++];
+				} else {
+					mergedKeys[k] = added[a].key();
+					mergedPositions[k] = added[a++].position();
+				}
+			}
+			return of(mergedKeys, mergedPositions);
+		}
+
+		/** Creates the chunk of entries of this one followed by the entries of the other */
+		Chunk concat(Chunk other) {
+			var joinedKeys = Arrays.copyOf(keys, keys.length + other.keys.length);
+			System.arraycopy(other.keys, 0, joinedKeys, keys.length, other.keys.length);
+			var joinedPositions = Arrays.copyOf(positions, positions.length + other.positions.length);
+			System.arraycopy(other.positions, 0, joinedPositions, positions.length, other.positions.length);
+			return of(joinedKeys, joinedPositions);
+		}
+	}
+
+	/**
+	 * Run of the index from <code>from</code>, inclusive, to <code>to</code>,
+	 * exclusive
+	 */
+	public record Range(int from, int to) {
+		/** Number of records in the range */
+		public int size() {
+			return Math.max(0, to - from);
+		}
+	}
+}
@@ -1,8 +1,8 @@
 package hr.fer.oprpp1.hw04.db;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
@@ -10,15 +10,59 @@ import java.util.Scanner;
 /** Entering program */
 public class StudentDB {
 
+	/** Command prefix printing the plan of a query instead of its result */
+	private static final String EXPLAIN = "explain";
+	/** Command printing statistics of the query cache */
+	private static final String CACHE = "cache";
+	/** Command writing the snapshot of the database */
+	private static final String SNAPSHOT = "snapshot";
+	/** File records are loaded from */
+	private static final Path DATABASE_FILE = Paths.get("./database.txt");
+	/** Binary snapshot loaded instead of the database file while it is newer */
+	private static final Path SNAPSHOT_FILE = Paths.get("./database.snapshot");
+	/** Option setting the number of threads scanning the table */
+	private static final String THREADS_OPTION = "--threads=";
+	/** Option storing the records in columns */
+	private static final String COLUMNAR_OPTION = "--columnar";
+
 	/** Reference to database instance */
 	private static StudentDatabase database;
+	/** Cache of queries executed on <code>database</code> */
+	private static QueryCache cache;
+	/** Reference to columnar database instance, used instead if not null */
+	private static ColumnarStudentDatabase columnarDatabase;
+	/** Number of threads given on the command line */
+	private static int threads = StudentDatabase.AUTOMATIC_PARALLELISM;
+	/** Whether records are stored in columns */
+	private static boolean columnar;
 
 	public static void main(String[] args) {
-		loadDatabase(loadFileLines());
+		parseOptions(args);
+		loadDatabase(DATABASE_FILE);
 		var sc = new Scanner(System.in);
 		for (var line = readFromConsole(sc); !"exit".equalsIgnoreCase(line); line = readFromConsole(sc)) {
-			QueryParser parser = parse(line);
-			if (parser != null)
+			line = line.strip();
+			if (SNAPSHOT.equalsIgnoreCase(line)) {
+				writeSnapshot();
+				continue;
+			}
+			if (CACHE.equalsIgnoreCase(line)) {
+				printCacheStatistics();
+				continue;
+			}
+			boolean explain = line.regionMatches(true, 0, EXPLAIN, 0, EXPLAIN.length());
+			if (!explain && !columnar) {
+				cachedQueryAndOutput(line);
+				continue;
+			}
+			QueryParser parser = parse(explain ? line.substring(EXPLAIN.length()) : line);
+			if (parser == null)
+				continue;
+			if (explain && columnar)
+				System.out.println("Plans are only available for row storage");
+			else if (explain)
+				explainAndOutput(parser);
+			else
 				queryAndOutput(parser);
 		}
 		sc.close();
@@ -42,49 +86,177 @@ public class StudentDB {
 	}
 
 	/**
-	 * Queries the database and outputs result to console
+	 * Queries the columnar database and outputs result to console
 	 * 
 	 * @param parser to extract query from
 	 */
 	private static void queryAndOutput(QueryParser parser) {
+		if (parser.getAggregation() != null) {
+			var result = columnarDatabase.aggregate(parser.getExpression(), parser.getAggregation());
+			RecordFormatter.format(parser.getAggregation(), result).forEach(System.out::println);
+			return;
+		}
 		List<StudentRecord> records;
 		if (parser.isDirectQuery()) {
-			System.out.println("Using index for record retrieval.");
-			records = List.of(database.forJMBAG(parser.getQueriedJMBAG()));
-		} else
-			records = database.filter(new QueryFilter(parser.getQuery()));
+			// columns have no index, the JMBAG column is scanned
+			var rec = columnarDatabase.forJMBAG(parser.getQueriedJMBAG());
+			records = rec == null ? List.of() : List.of(rec);
+		} else if (parser.getOrdering() != null)
+			records = columnarDatabase.query(parser.getExpression(), parser.getOrdering());
+		else
+			records = columnarDatabase.query(parser.getExpression());
 		RecordFormatter.format(records).forEach(System.out::println);
 	}
 
 	/**
-	 * Reads data from database file and parses it to a list
+	 * Answers the query through the cache and outputs result to console
 	 * 
-	 * @return string list
+	 * @param line query command
 	 */
-	private static List<String> loadFileLines() {
+	private static void cachedQueryAndOutput(String line) {
+		QueryCache.Entry entry;
 		try {
-			return Files.readAllLines(Paths.get("./database.txt"), StandardCharsets.UTF_8);
-		} catch (IOException | SecurityException ex) {
-			System.out.println("An error occured while reading the file");
-			System.exit(1);
+			entry = cache.query(line);
+		} catch (ParserException ex) {
+			System.out.println(ex.getMessage());
+			return;
 		}
-		return null;
+		if (entry.aggregate() != null) {
+			RecordFormatter.format(entry.parser().getAggregation(), entry.aggregate()).forEach(System.out::println);
+			return;
+		}
+		if (entry.parser().isDirectQuery())
+			System.out.println("Using index for record retrieval.");
+		RecordFormatter.format(entry.records()).forEach(System.out::println);
 	}
 
 	/**
-	 * Inputs list elements into the database
+	 * Outputs the plan of the query, followed by its aggregate functions or the
+	 * way its records are ordered
 	 * 
-	 * @param inputFileLines lines from the input file
+	 * @param parser to extract query from
 	 */
-	private static void loadDatabase(List<String> inputFileLines) {
+	private static void explainAndOutput(QueryParser parser) {
+		var plan = database.plan(parser.getExpression());
+		var ordering = parser.getOrdering();
+		if (ordering != null && database.readsInOrder(plan, ordering)) {
+			System.out.printf("Index walk in order of %s, stopping after %d records%n",
+					FieldValueGetters.nameOf(ordering.getField()), Math.min(ordering.wanted(), database.size()));
+			var filter = parser.getExpression().toString();
+			System.out.println(filter.isEmpty() ? "No filter" : "Filter: " + filter);
+			return;
+		}
+		plan.explain().forEach(System.out::println);
+		if (parser.getAggregation() != null)
+			System.out.println("Aggregate: " + parser.getAggregation());
+		if (ordering == null)
+			return;
+		if (!ordering.isOrdered())
+			System.out.println("Limit: " + ordering);
+		else if (ordering.wanted() == Ordering.NO_LIMIT)
+			System.out.println("Sort: " + ordering);
+		else
+			System.out.printf("Top %d kept in a bounded heap: %s%n", ordering.wanted(), ordering);
+	}
+
+	/** Outputs hits and misses of the query cache */
+	private static void printCacheStatistics() {
+		if (columnar) {
+			System.out.println("Queries are only cached for row storage");
+			return;
+		}
+		System.out.printf("Cached queries: %d, hits: %d, misses: %d%n", cache.size(), cache.getHits(),
+				cache.getMisses());
+	}
+
+	/**
+	 * Parses command line options. <code>--threads=N</code> sets the number of
+	 * threads scanning the table, where zero lets the database choose, and
+	 * <code>--columnar</code> stores the records in columns
+	 * 
+	 * @param args command line arguments
+	 */
+	private static void parseOptions(String[] args) {
+		for (var arg : args) {
+			if (COLUMNAR_OPTION.equals(arg)) {
+				columnar = true;
+			} else if (arg.startsWith(THREADS_OPTION)) {
+				try {
+					threads = Integer.parseInt(arg.substring(THREADS_OPTION.length()));
+				} catch (NumberFormatException ex) {
+					threads = -1;
+				}
+				if (threads < 0) {
+					System.out.println("Invalid number of threads " + arg.substring(THREADS_OPTION.length()));
+					System.exit(4);
+				}
+			} else {
+				System.out.println("Unknown option " + arg);
+				System.exit(4);
+			}
+		}
+	}
+
+	/**
+	 * Loads the database from the file, parsing records as it is read
+	 * 
+	 * @param file of the database
+	 */
+	private static void loadDatabase(Path file) {
 		try {
-			database = new StudentDatabase(inputFileLines);
+			if (columnar) {
+				columnarDatabase = ColumnarStudentDatabase.load(file);
+			} else {
+				database = loadSnapshot();
+				if (database == null)
+					database = StudentDatabase.load(file);
+				database.setParallelism(threads);
+				cache = new QueryCache(database);
+			}
+		} catch (IOException | SecurityException ex) {
+			System.out.println("An error occured while reading the file");
+			System.exit(1);
 		} catch (JmbagAlreadyExistsException ex) {
 			System.out.println(ex.getMessage() + " " + ex.jmbag);
 			System.exit(2);
 		} catch (FinalGradeException ex) {
 			System.out.println(ex.getMessage() + " " + ex.jmbag + " " + ex.finalGrade);
 			System.exit(3);
+		} catch (MalformedRecordException ex) {
+			System.out.println(ex.getMessage() + " at line " + ex.line);
+			System.exit(5);
+		}
+	}
+
+	/**
+	 * Loads the database from the snapshot, if there is one newer than the
+	 * database file. Invalid snapshots are ignored
+	 * 
+	 * @return loaded database, <code>null</code> if the snapshot can't be used
+	 */
+	private static StudentDatabase loadSnapshot() {
+		try {
+			if (!Files.isRegularFile(SNAPSHOT_FILE) || Files.getLastModifiedTime(SNAPSHOT_FILE)
+					.compareTo(Files.getLastModifiedTime(DATABASE_FILE)) < 0)
+				return null;
+			return StudentDatabaseSnapshot.load(SNAPSHOT_FILE);
+		} catch (IOException | InvalidSnapshotException ex) {
+			System.out.println("Ignoring snapshot: " + ex.getMessage());
+		}
+		return null;
+	}
+
+	/** Writes the snapshot of the database, which is then loaded on start */
+	private static void writeSnapshot() {
+		if (columnar) {
+			System.out.println("Snapshots are only available for row storage");
+			return;
+		}
+		try {
+			StudentDatabaseSnapshot.write(database, SNAPSHOT_FILE);
+			System.out.println("Snapshot written to " + SNAPSHOT_FILE);
+		} catch (IOException ex) {
+			System.out.println("An error occured while writing the snapshot");
 		}
 	}
 }
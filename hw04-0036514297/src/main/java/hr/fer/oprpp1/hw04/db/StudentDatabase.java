@@ -1,31 +1,103 @@
 package hr.fer.oprpp1.hw04.db;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
+/**
+ * Database of student records. Readers always work on one immutable version of
+ * the records and its indexes, so they never wait for writers. Writers are
+ * serialized, build the next version next to the current one and publish it at
+ * once, sharing all unchanged parts with it
+ */
 public class StudentDatabase {
 
 	private static final String SAME_JMBAG_MSG = "Student with same JMBAG already exists ";
+	private static final String NEGATIVE_PARALLELISM_MSG = "Parallelism can't be negative";
+	private static final String STALE_PLAN_MSG = "Plan was made for an older version of the database";
+	private static final String READ_ONLY_MSG = "Database is read-only";
+	private static final String FOREIGN_VERSION_MSG = "Version wasn't built on the current one";
 
-	/** List of all stored records */
-	private final List<StudentRecord> internalList;
-	/** Structure for fast record retrieving */
-	private final Map<String, StudentRecord> index;
+	/** Automatically chosen parallelism */
+	public static final int AUTOMATIC_PARALLELISM = 0;
+	/** Smallest table which is scanned in parallel when parallelism is automatic */
+	private static final int PARALLEL_THRESHOLD = 100_000;
+	/** Smallest part of the table scanned by one task */
+	private static final int MIN_CHUNK = 4_096;
+	/** Number of chunks per thread, so that threads finishing early can steal more */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/** Fields which get a secondary index */
+	static final List<IFieldValueGetter> INDEXED_FIELDS = List.of(FieldValueGetters.JMBAG,
+			FieldValueGetters.LAST_NAME, FieldValueGetters.FIRST_NAME);
+
+	/** Current version of records and indexes */
+	private volatile State state;
+	/** Threads scanning the table, replaced as a whole so scans see a consistent pair */
+	private volatile Parallelism parallelism = new Parallelism(AUTOMATIC_PARALLELISM, null);
+	/** Whether the records are changed only by the owner of the database */
+	private volatile boolean readOnly;
 
 	/** Initializes the database with given entry strings */
 	public StudentDatabase(List<String> databaseEntries) {
-		internalList = new ArrayList<>(databaseEntries.size());
-		index = new HashMap<>();
-		for (String line : databaseEntries) {
-			StudentRecord rec = StudentRecordParser.parseStudentRecord(line);
-			if (index.containsKey(rec.getJmbag()))
-				throw new JmbagAlreadyExistsException(SAME_JMBAG_MSG, rec.getJmbag());
-			internalList.add(rec);
-			index.put(rec.getJmbag(), rec);
+		this(parseAll(databaseEntries));
+	}
+
+	/**
+	 * Initializes the database with parsed records
+	 * 
+	 * @param records in database order
+	 * @throws JmbagAlreadyExistsException if two records have the same JMBAG
+	 */
+	private StudentDatabase(ArrayList<StudentRecord> records) {
+		this(records, new QueryPlanner(records, INDEXED_FIELDS));
+	}
+
+	/**
+	 * Initializes the database with parsed records and indexes already built over
+	 * them
+	 * 
+	 * @param records in database order
+	 * @param planner owning the indexes of <code>INDEXED_FIELDS</code>
+	 * @throws JmbagAlreadyExistsException if two records have the same JMBAG
+	 */
+	StudentDatabase(List<StudentRecord> records, QueryPlanner planner) {
+		state = State.of(records, planner);
+	}
+
+	/**
+	 * Loads the database from the file of tab separated records. Records are
+	 * parsed as the file is read, so its lines are never held in memory
+	 * 
+	 * @param file to load from
+	 * @return loaded database
+	 * @throws IOException                 if reading the file fails
+	 * @throws MalformedRecordException    if a line isn't a valid record
+	 * @throws JmbagAlreadyExistsException if two records have the same JMBAG
+	 */
+	public static StudentDatabase load(Path file) throws IOException {
+		var records = new ArrayList<StudentRecord>();
+		try (var reader = new StudentRecordReader(file)) {
+			for (var rec = reader.next(); rec != null; rec = reader.next())
+				records.add(rec);
 		}
+		return new StudentDatabase(records);
+	}
+
+	private static ArrayList<StudentRecord> parseAll(List<String> databaseEntries) {
+		var records = new ArrayList<StudentRecord>(databaseEntries.size());
+		for (String line : databaseEntries)
+			records.add(StudentRecordParser.parseStudentRecord(line));
+		return records;
 	}
 
 	/**
@@ -35,20 +107,782 @@ public class StudentDatabase {
 	 * @return record containing given jmbag
 	 */
 	public StudentRecord forJMBAG(String jmbag) {
-		return index.get(jmbag);
+		var current = state;
+		var position = current.positionOf.get(jmbag);
+		return position == null ? null : current.get(position);
+	}
+
+	/**
+	 * Adds the record
+	 * 
+	 * @param record to be added
+	 * @throws JmbagAlreadyExistsException   if a record with the same JMBAG exists
+	 * @throws UnsupportedOperationException if the database is read-only
+	 */
+	public void insert(StudentRecord record) {
+		apply(List.of(Mutation.insert(record)));
+	}
+
+	/**
+	 * Replaces the record with the same JMBAG
+	 * 
+	 * @param record replacing the stored one
+	 * @return replaced record, <code>null</code> if there was none and nothing
+	 *         changed
+	 * @throws UnsupportedOperationException if the database is read-only
+	 */
+	public synchronized StudentRecord update(StudentRecord record) {
+		checkWritable();
+		var builder = new StateBuilder(state);
+		var previous = builder.apply(Mutation.update(record));
+		publish(builder.build());
+		return previous;
+	}
+
+	/**
+	 * Removes the record with the JMBAG
+	 * 
+	 * @param jmbag of the removed record
+	 * @return removed record, <code>null</code> if there was none
+	 * @throws UnsupportedOperationException if the database is read-only
+	 */
+	public synchronized StudentRecord delete(String jmbag) {
+		checkWritable();
+		var builder = new StateBuilder(state);
+		var previous = builder.apply(Mutation.delete(jmbag));
+		publish(builder.build());
+		return previous;
+	}
+
+	/**
+	 * Applies the mutations in order as one change. Readers see either none or
+	 * all of them, and indexes are updated once for the whole batch. Updates and
+	 * deletes of missing records are skipped
+	 * 
+	 * @param mutations to be applied
+	 * @return number of applied mutations
+	 * @throws JmbagAlreadyExistsException   if an insert repeats a JMBAG, in
+	 *                                       which case no mutation is applied
+	 * @throws UnsupportedOperationException if the database is read-only
+	 */
+	public synchronized int apply(List<Mutation> mutations) {
+		checkWritable();
+		var change = prepare(state, mutations);
+		publish(change.state());
+		return change.applied();
+	}
+
+	/**
+	 * Makes the public mutating methods throw, so that the records change only
+	 * through <code>publish</code> by the owner of the database
+	 */
+	void makeReadOnly() {
+		readOnly = true;
+	}
+
+	private void checkWritable() {
+		if (readOnly)
+			throw new UnsupportedOperationException(READ_ONLY_MSG);
+	}
+
+	/**
+	 * Builds the version with the mutations applied to the given one, without
+	 * showing it to readers. Used by writers which have to log a change before
+	 * publishing it
+	 * 
+	 * @param base      version the mutations are applied to
+	 * @param mutations to be applied
+	 * @return built version and the number of applied mutations
+	 * @throws JmbagAlreadyExistsException if an insert repeats a JMBAG
+	 */
+	static Change prepare(State base, List<Mutation> mutations) {
+		var builder = new StateBuilder(base);
+		int applied = 0;
+		for (var mutation : mutations)
+			if (builder.apply(mutation) != null || mutation.type() == MutationType.INSERT)
+				applied++;
+		return new Change(builder.build(), applied);
+	}
+
+	/**
+	 * Shows the prepared version to readers, unless a newer one, which was built
+	 * on top of it, is shown already. Versions between the shown one and the
+	 * published one are marked as shown and unlinked, so that shown versions
+	 * don't keep their predecessors alive
+	 * 
+	 * @param next version made by <code>prepare</code>
+	 * @throws IllegalStateException if the version wasn't built on the shown one
+	 *                               or its successors
+	 */
+	synchronized void publish(State next) {
+		if (next.shown)
+			return;
+		var ancestor = next;
+		while (ancestor != null && ancestor != state)
+			ancestor = ancestor.base;
+		if (ancestor == null)
+			throw new IllegalStateException(FOREIGN_VERSION_MSG);
+		for (var covered = next; covered != state;) {
+			var base = covered.base;
+			covered.base = null;
+			covered.shown = true;
+			covered = base;
+		}
+		state = next;
 	}
 
 	/**
-	 * Returns all records that pass the filter
+	 * Returns all records that pass the filter, in database order. Depending on
+	 * the parallelism, the table is split into chunks scanned by a fork-join pool
 	 * 
 	 * @param filter to test records
 	 * @return list of records
 	 */
 	public List<StudentRecord> filter(IFilter filter) {
-		return internalList.stream().filter(filter::accepts).collect(Collectors.toList());
+		return scan(state, filter, toList());
+	}
+
+	/**
+	 * Scans the table, collecting records which pass the filter. Depending on the
+	 * parallelism, chunks of the table are collected by a fork-join pool and their
+	 * partial results are combined in database order
+	 * 
+	 * @param current   version of the records
+	 * @param filter    to test records
+	 * @param collector of accepted records
+	 * @return collected result
+	 */
+	private <A, R> R scan(State current, IFilter filter, Collector<StudentRecord, A, R> collector) {
+		while (true) {
+			var settings = parallelism;
+			int threads = settings.threads();
+			var executor = settings.pool();
+			if (threads == AUTOMATIC_PARALLELISM) {
+				if (current.size < PARALLEL_THRESHOLD)
+					threads = 1;
+				else {
+					executor = ForkJoinPool.commonPool();
+					threads = executor.getParallelism();
+				}
+			}
+			if (threads <= 1) {
+				var task = new ScanTask<>(current, filter, collector, 0, current.positions, current.positions);
+				return collector.finisher().apply(task.compute());
+			}
+			int chunk = Math.max(MIN_CHUNK, current.positions / (threads * CHUNKS_PER_THREAD));
+			try {
+				var task = new ScanTask<>(current, filter, collector, 0, current.positions, chunk);
+				return collector.finisher().apply(executor.invoke(task));
+			} catch (RejectedExecutionException ex) {
+				// pool was retired by setParallelism before the scan reached it, so retry
+				// with the current one
+				if (parallelism == settings)
+					throw ex;
+			}
+		}
+	}
+
+	/** Collector of records into a list */
+	private static Collector<StudentRecord, ?, ArrayList<StudentRecord>> toList() {
+		return Collectors.toCollection(ArrayList::new);
+	}
+
+	/**
+	 * Sets the number of threads scanning the table. With
+	 * <code>AUTOMATIC_PARALLELISM</code> small tables are scanned sequentially and
+	 * large ones by the common pool, while any other value gets its own pool
+	 * 
+	 * @param threads number of threads, one for sequential scans
+	 * @throws IllegalArgumentException if <code>threads</code> is negative
+	 */
+	public synchronized void setParallelism(int threads) {
+		if (threads < 0)
+			throw new IllegalArgumentException(NEGATIVE_PARALLELISM_MSG);
+		var retired = parallelism;
+		parallelism = new Parallelism(threads, threads > 1 ? new ForkJoinPool(threads) : null);
+		// scans already running in the old pool finish, new ones see the new pool
+		if (retired.pool() != null)
+			retired.pool().shutdown();
+	}
+
+	public int getParallelism() {
+		return parallelism.threads();
+	}
+
+	/**
+	 * Version of stored records, increased by every change. Results computed for
+	 * one version stay valid while the version doesn't change
+	 * 
+	 * @return current version
+	 */
+	public long getVersion() {
+		return state.version;
+	}
+
+	/**
+	 * Number of stored records
+	 * 
+	 * @return size of the database
+	 */
+	public int size() {
+		return state.size;
+	}
+
+	/**
+	 * Copies all stored records of the current version
+	 * 
+	 * @return list of records in database order
+	 */
+	public List<StudentRecord> records() {
+		return scan(state, (record) -> true, toList());
+	}
+
+	State getState() {
+		return state;
+	}
+
+	QueryPlanner getPlanner() {
+		return state.planner;
+	}
+
+	/**
+	 * Returns all records satisfying every expression, in database order.
+	 * Candidates are read from a secondary index whenever one of the expressions
+	 * can use it
+	 * 
+	 * @param expressions which have to be satisfied
+	 * @return list of records
+	 */
+	public List<StudentRecord> query(List<ConditionalExpression> expressions) {
+		var current = state;
+		return execute(current, current.planner.plan(expressions));
+	}
+
+	/**
+	 * Plans the query without executing it
+	 * 
+	 * @param expressions which have to be satisfied
+	 * @return plan of the query
+	 */
+	public QueryPlan plan(List<ConditionalExpression> expressions) {
+		return state.planner.plan(expressions);
+	}
+
+	/**
+	 * Returns all records satisfying the expression tree, in database order.
+	 * Operands of <code>or</code> which all use indexes read the union of their
+	 * candidates instead of scanning the whole table
+	 * 
+	 * @param expression which has to be satisfied
+	 * @return list of records
+	 */
+	public List<StudentRecord> query(IQueryExpression expression) {
+		var current = state;
+		return execute(current, current.planner.plan(expression));
+	}
+
+	/**
+	 * Returns the page of records satisfying the expression tree in the given
+	 * order. Depending on the plan, either the index of the ordering field is
+	 * walked until the page is filled, or candidates are read as usual and only
+	 * the wanted records are kept in a bounded heap
+	 * 
+	 * @param expression which has to be satisfied
+	 * @param ordering   of the records and the page of them to return
+	 * @return list of records
+	 */
+	public List<StudentRecord> query(IQueryExpression expression, Ordering ordering) {
+		var current = state;
+		var plan = current.planner.plan(expression);
+		if (current.planner.readsInOrder(plan, ordering))
+			return readInOrder(current, expression, ordering);
+		return collect(current, plan, ordering.collector());
+	}
+
+	/**
+	 * Checks whether the ordered query is answered by walking an index in order
+	 * 
+	 * @param plan     of the query
+	 * @param ordering of its records
+	 * @return true if it is
+	 */
+	public boolean readsInOrder(QueryPlan plan, Ordering ordering) {
+		return state.planner.readsInOrder(plan, ordering);
+	}
+
+	/**
+	 * Walks the index of the ordering field in order until the page is filled.
+	 * Records sharing a value are ordered by JMBAG, so each run of them goes
+	 * through a heap holding only as many records as are still missing
+	 * 
+	 * @param current    version of the records
+	 * @param expression which has to be satisfied
+	 * @param ordering   of the records, by an indexed field or the final grade
+	 * @return list of records
+	 */
+	private static List<StudentRecord> readInOrder(State current, IQueryExpression expression, Ordering ordering) {
+		var filter = QueryCompiler.compile(expression);
+		int wanted = ordering.wanted();
+		var selected = new ArrayList<StudentRecord>();
+		Comparator<StudentRecord> byJmbag = Comparator.comparing(StudentRecord::getJmbag);
+		if (ordering.getField() == FieldValueGetters.FINAL_GRADE) {
+			var gradeIndex = current.planner.getGradeIndex();
+			for (int i = 0; i <= GradeIndex.MAX_GRADE - GradeIndex.MIN_GRADE && selected.size() < wanted; i++) {
+				int grade = ordering.isDescending() ? GradeIndex.MAX_GRADE - i : GradeIndex.MIN_GRADE + i;
+				var run = gradeIndex.select(1 << grade);
+				var heap = new BoundedHeap<>(byJmbag, wanted - selected.size());
+				for (int position = run.nextSetBit(0); position >= 0; position = run.nextSetBit(position + 1)) {
+					var rec = current.get(position);
+					if (filter.accepts(rec))
+						heap.add(rec);
+				}
+				selected.addAll(heap.toSortedList());
+			}
+			return ordering.page(selected);
+		}
+
+		var index = current.planner.getIndex(ordering.getField());
+		int size = index.size();
+		for (int done = 0; done < size && selected.size() < wanted;) {
+			int from;
+			int to;
+			if (ordering.isDescending()) {
+				to = size - done;
+				from = to - 1;
+				while (from > 0 && index.keyAt(from - 1).equals(index.keyAt(to - 1)))
+					from--;
+			} else {
+				from = done;
+				to = from + 1;
+				while (to < size && index.keyAt(to).equals(index.keyAt(from)))
+					to++;
+			}
+			var heap = new BoundedHeap<>(byJmbag, wanted - selected.size());
+			for (int i = from; i < to; i++) {
+				var rec = current.get(index.positionAt(i));
+				if (filter.accepts(rec))
+					heap.add(rec);
+			}
+			selected.addAll(heap.toSortedList());
+			done += to - from;
+		}
+		return ordering.page(selected);
+	}
+
+	/**
+	 * Plans the query made of the expression tree without executing it
+	 * 
+	 * @param expression which has to be satisfied
+	 * @return plan of the query
+	 */
+	public QueryPlan plan(IQueryExpression expression) {
+		return state.planner.plan(expression);
+	}
+
+	/**
+	 * Executes the planned query
+	 * 
+	 * @param plan to execute
+	 * @return list of records
+	 * @throws IllegalStateException if the plan reads an index which has changed
+	 *                               since it was made
+	 */
+	public List<StudentRecord> execute(QueryPlan plan) {
+		return execute(state, plan);
+	}
+
+	private List<StudentRecord> execute(State current, QueryPlan plan) {
+		return collect(current, plan, toList());
+	}
+
+	/**
+	 * Collects records selected by the plan, in database order
+	 * 
+	 * @param current   version of the records
+	 * @param plan      selecting the records
+	 * @param collector of selected records
+	 * @return collected result
+	 * @throws IllegalStateException if the plan reads an index which has changed
+	 *                               since it was made
+	 */
+	private <A, R> R collect(State current, QueryPlan plan, Collector<StudentRecord, A, R> collector) {
+		if (plan.isContradiction())
+			return collector.finisher().apply(collector.supplier().get());
+		if (!plan.usesIndex() && !plan.usesGradeIndex() && !plan.isUnion())
+			return scan(current, plan.filter(), collector);
+		if (!isCurrent(current, plan))
+			throw new IllegalStateException(STALE_PLAN_MSG);
+		var result = collector.supplier().get();
+		var accumulator = collector.accumulator();
+		if (!plan.usesGradeIndex() && !plan.isUnion()) {
+			int[] candidates = plan.index().positions(plan.range());
+			Arrays.sort(candidates);
+			for (int position : candidates) {
+				var rec = current.get(position);
+				if (plan.filter().accepts(rec))
+					accumulator.accept(result, rec);
+			}
+			return collector.finisher().apply(result);
+		}
+
+		var candidates = candidates(current, plan);
+		for (int position = candidates.nextSetBit(0); position >= 0; position = candidates.nextSetBit(position + 1)) {
+			var rec = current.get(position);
+			if (plan.filter().accepts(rec))
+				accumulator.accept(result, rec);
+		}
+		return collector.finisher().apply(result);
+	}
+
+	/**
+	 * Aggregates records satisfying the expression tree in a single pass, without
+	 * collecting them. Ungrouped aggregates of queries on grades alone are
+	 * computed from counts of the bitmap index, and scans of the whole table are
+	 * split between threads like <code>filter</code>, merging partial results
+	 * 
+	 * @param expression  which has to be satisfied
+	 * @param aggregation computed over the records
+	 * @return result of the aggregation
+	 */
+	public Aggregation.Result aggregate(IQueryExpression expression, Aggregation aggregation) {
+		var current = state;
+		var plan = current.planner.plan(expression);
+		var result = fromStatistics(current, plan, aggregation);
+		return result != null ? result : collect(current, plan, aggregation.collector());
+	}
+
+	/**
+	 * Computes the aggregation from counts of the bitmap index of grades, which is
+	 * possible if it isn't grouped and the query only restricts grades
+	 * 
+	 * @param current     version of the records
+	 * @param plan        of the query
+	 * @param aggregation to be computed
+	 * @return result of the aggregation, <code>null</code> if records have to be
+	 *         read
+	 */
+	private static Aggregation.Result fromStatistics(State current, QueryPlan plan, Aggregation aggregation) {
+		if (aggregation.isGrouped() || plan.usesIndex() || plan.isUnion() || plan.expression() != null
+				|| !plan.predicates().isEmpty())
+			return null;
+		var result = aggregation.newResult();
+		if (plan.isContradiction())
+			return result;
+		var gradeIndex = current.planner.getGradeIndex();
+		for (int grade = GradeIndex.MIN_GRADE; grade <= GradeIndex.MAX_GRADE; grade++)
+			if ((plan.grades() & 1 << grade) != 0)
+				result.total().add(grade, gradeIndex.count(1 << grade));
+		return result;
+	}
+
+	/**
+	 * Checks whether the indexes read by the plan, and by its branches, are
+	 * those of the version
+	 */
+	private static boolean isCurrent(State current, QueryPlan plan) {
+		if (plan.usesIndex() && current.planner.getIndex(plan.index().getFieldGetter()) != plan.index()
+				|| plan.usesGradeIndex() && current.planner.getGradeIndex() != plan.gradeIndex())
+			return false;
+		for (var branch : plan.branches())
+			if (!isCurrent(current, branch))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Reads positions of candidates of the plan, which has to read from an index
+	 * 
+	 * @param current version of the records
+	 * @param plan    reading the candidates
+	 * @return bitmap of positions
+	 */
+	private static BitSet candidates(State current, QueryPlan plan) {
+		if (plan.isUnion()) {
+			var union = new BitSet(current.positions);
+			for (var branch : plan.branches())
+				union.or(candidates(current, branch));
+			return union;
+		}
+		BitSet inRange = null;
+		if (plan.usesIndex()) {
+			inRange = new BitSet(current.positions);
+			for (int position : plan.index().positions(plan.range()))
+				inRange.set(position);
+		}
+		if (!plan.usesGradeIndex())
+			return inRange;
+		var candidates = plan.gradeIndex().select(plan.grades());
+		if (inRange != null)
+			candidates.and(inRange);
+		return candidates;
+	}
+
+	/**
+	 * Version built by <code>prepare</code>
+	 * 
+	 * @param state   built version
+	 * @param applied number of applied mutations
+	 */
+	record Change(State state, int applied) {
+	}
+
+	/**
+	 * Number of threads scanning the table together with their pool
+	 * 
+	 * @param threads number of threads, or <code>AUTOMATIC_PARALLELISM</code>
+	 * @param pool    of the explicitly set parallelism, <code>null</code> otherwise
+	 */
+	private record Parallelism(int threads, ForkJoinPool pool) {
+	}
+
+	/**
+	 * Immutable version of records and their indexes. Records are kept in
+	 * segments of fixed size, so that a change copies only the segments it
+	 * touches. Every record keeps its position for good, removed ones leaving an
+	 * empty slot behind, so indexes of unchanged fields stay valid across
+	 * versions
+	 */
+	static final class State {
+		/** Base two logarithm of the number of positions in one segment */
+		private static final int SEGMENT_BITS = 10;
+		private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+		private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+		/** Records by position, <code>null</code> for removed ones */
+		private final StudentRecord[][] segments;
+		/** Number of used positions, including removed records */
+		final int positions;
+		/** Number of stored records */
+		final int size;
+		/** Positions of records by their JMBAG */
+		final JmbagPositions positionOf;
+		/** Planner owning indexes over this version */
+		final QueryPlanner planner;
+		final long version;
+		/** Version this one was built on, cleared once this one is shown */
+		private State base;
+		/** Whether readers were shown this version, guarded by the database */
+		private boolean shown;
+
+		private State(StudentRecord[][] segments, int positions, int size, JmbagPositions positionOf,
+				QueryPlanner planner, State base) {
+			this.segments = segments;
+			this.positions = positions;
+			this.size = size;
+			this.positionOf = positionOf;
+			this.planner = planner;
+			this.base = base;
+			version = base == null ? 0 : base.version + 1;
+			shown = base == null;
+		}
+
+		/**
+		 * Creates the first version holding the records
+		 * 
+		 * @param records in database order
+		 * @param planner owning indexes over the records
+		 * @return version of the records
+		 * @throws JmbagAlreadyExistsException if two records have the same JMBAG
+		 */
+		static State of(List<StudentRecord> records, QueryPlanner planner) {
+			var segments = new StudentRecord[(records.size() + SEGMENT_MASK) >>> SEGMENT_BITS][];
+			var positionOf = new JmbagPositions.Builder(JmbagPositions.withCapacity(records.size()));
+			for (int position = 0; position < records.size(); position++) {
+				var rec = records.get(position);
+				if (positionOf.put(rec.getJmbag(), position) != null)
+					throw new JmbagAlreadyExistsException(SAME_JMBAG_MSG, rec.getJmbag());
+				if ((position & SEGMENT_MASK) == 0)
+					segments[position >>> SEGMENT_BITS] = new StudentRecord[SEGMENT_SIZE];
+				segments[position >>> SEGMENT_BITS][position & SEGMENT_MASK] = rec;
+			}
+			return new State(segments, records.size(), records.size(), positionOf.build(), planner, null);
+		}
+
+		/**
+		 * Record at the position
+		 * 
+		 * @param position of the record
+		 * @return record, <code>null</code> if it was removed
+		 */
+		StudentRecord get(int position) {
+			return segments[position >>> SEGMENT_BITS][position & SEGMENT_MASK];
+		}
+	}
+
+	/**
+	 * Builds the next version from the current one. Segments of records and of
+	 * the JMBAG map are copied the first time they change, and indexes are
+	 * changed once, when the version is built
+	 */
+	private static class StateBuilder {
+		private final State base;
+		private StudentRecord[][] segments;
+		/** Segments which were copied, or created, by this builder */
+		private final BitSet ownSegments = new BitSet();
+		private int positions;
+		private int size;
+		private final JmbagPositions.Builder positionOf;
+		/** Positions whose records changed */
+		private final BitSet changed = new BitSet();
+
+		public StateBuilder(State base) {
+			this.base = base;
+			segments = base.segments.clone();
+			positions = base.positions;
+			size = base.size;
+			positionOf = new JmbagPositions.Builder(base.positionOf);
+		}
+
+		/**
+		 * Applies the mutation
+		 * 
+		 * @param mutation to be applied
+		 * @return replaced or removed record, <code>null</code> for inserts and
+		 *         skipped mutations
+		 * @throws JmbagAlreadyExistsException if an insert repeats a JMBAG
+		 */
+		public StudentRecord apply(Mutation mutation) {
+			var position = positionOf.get(mutation.jmbag());
+			if (mutation.type() == MutationType.INSERT) {
+				if (position != null)
+					throw new JmbagAlreadyExistsException(SAME_JMBAG_MSG, mutation.jmbag());
+				positionOf.put(mutation.jmbag(), positions);
+				set(positions++, mutation.record());
+				size++;
+				return null;
+			}
+			if (position == null)
+				return null;
+			var previous = get(position);
+			if (mutation.type() == MutationType.UPDATE) {
+				set(position, mutation.record());
+			} else {
+				positionOf.remove(mutation.jmbag());
+				set(position, null);
+				size--;
+			}
+			return previous;
+		}
+
+		/**
+		 * Builds the version with all applied mutations
+		 * 
+		 * @return next version, or the base one if nothing changed
+		 */
+		public State build() {
+			if (changed.isEmpty())
+				return base;
+			var indexes = new ArrayList<SortedIndex>(INDEXED_FIELDS.size());
+			boolean indexesChanged = false;
+			for (var getter : INDEXED_FIELDS) {
+				var index = base.planner.getIndex(getter);
+				var changedIndex = changeIndex(index, getter);
+				indexesChanged |= changedIndex != index;
+				indexes.add(changedIndex);
+			}
+			var gradeIndex = base.planner.getGradeIndex().withChanges(changed,
+					(position) -> position < base.positions ? base.get(position) : null, this::get);
+			indexesChanged |= gradeIndex != base.planner.getGradeIndex();
+			var planner = indexesChanged ? new QueryPlanner(size, indexes, gradeIndex) : base.planner;
+			return new State(segments, positions, size, positionOf.build(), planner, base);
+		}
+
+		/**
+		 * Changes the index by records whose field value changed
+		 * 
+		 * @return changed index, or the same one if no value changed
+		 */
+		private SortedIndex changeIndex(SortedIndex index, IFieldValueGetter getter) {
+			var removedPositions = new ArrayList<Integer>();
+			var removedRecords = new ArrayList<StudentRecord>();
+			var addedPositions = new ArrayList<Integer>();
+			var addedRecords = new ArrayList<StudentRecord>();
+			for (int position = changed.nextSetBit(0); position >= 0; position = changed.nextSetBit(position + 1)) {
+				var before = position < base.positions ? base.get(position) : null;
+				var after = get(position);
+				if (before != null && after != null && getter.get(before).equals(getter.get(after)))
+					continue;
+				if (before != null) {
+					removedPositions.add(position);
+					removedRecords.add(before);
+				}
+				if (after != null) {
+					addedPositions.add(position);
+					addedRecords.add(after);
+				}
+			}
+			if (removedPositions.isEmpty() && addedPositions.isEmpty())
+				return index;
+			return index.withChanges(removedPositions.stream().mapToInt(Integer::intValue).toArray(),
+					removedRecords.toArray(new StudentRecord[0]),
+					addedPositions.stream().mapToInt(Integer::intValue).toArray(),
+					addedRecords.toArray(new StudentRecord[0]));
+		}
+
+		private StudentRecord get(int position) {
+			return segments[position >>> State.SEGMENT_BITS][position & State.SEGMENT_MASK];
+		}
+
+		private void set(int position, StudentRecord record) {
+			int segment = position >>> State.SEGMENT_BITS;
+			if (segment == segments.length)
+				segments = Arrays.copyOf(segments, Math.max(1, segments.length * 2));
+			if (!ownSegments.get(segment)) {
+				segments[segment] = segments[segment] == null ? new StudentRecord[State.SEGMENT_SIZE]
+						: segments[segment].clone();
+				ownSegments.set(segment);
+			}
+			segments[segment][position & State.SEGMENT_MASK] = record;
+			changed.set(position);
+		}
+	}
+
+	/**
+	 * Task collecting records of a range of positions which pass the filter.
+	 * Ranges longer than the chunk are split in halves, and results of the halves
+	 * are combined in order
+	 */
+	private static class ScanTask<A> extends RecursiveTask<A> {
+		private static final long serialVersionUID = 1L;
+
+		private final State state;
+		private final IFilter filter;
+		private final Collector<StudentRecord, A, ?> collector;
+		private final int from;
+		private final int to;
+		private final int chunk;
+
+		public ScanTask(State state, IFilter filter, Collector<StudentRecord, A, ?> collector, int from, int to,
+				int chunk) {
+			this.state = state;
+			this.filter = filter;
+			this.collector = collector;
+			this.from = from;
+			this.to = to;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected A compute() {
+			if (to - from <= chunk) {
+				var accepted = collector.supplier().get();
+				var accumulator = collector.accumulator();
+				for (int i = from; i < to; i++) {
+					var rec = state.get(i);
+					if (rec != null && filter.accepts(rec))
+						accumulator.accept(accepted, rec);
+				}
+				return accepted;
+			}
+			int middle = (from + to) >>> 1;
+			var left = new ScanTask<>(state, filter, collector, from, middle, chunk);
+			left.fork();
+			var right = new ScanTask<>(state, filter, collector, middle, to, chunk).compute();
+			return collector.combiner().apply(left.join(), right);
+		}
 	}
 
-	private static class StudentRecordParser {
+	static class StudentRecordParser {
 		/** Constructs StudentRecords from given string entry */
 		public static StudentRecord parseStudentRecord(String input) {
 			String[] attributes = input.split("\t");
@@ -0,0 +1,210 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the database, holding its records together with the
+ * positions of its secondary indexes, so that loading neither parses text nor
+ * sorts. Slots of removed records are left out, so positions are renumbered.
+ * The snapshot is laid out as
+ * 
+ * <pre>
+ * int     MAGIC
+ * int     VERSION
+ * int     number of records
+ * record  jmbag, last name and first name as UTF-8 with unsigned short lengths, byte grade
+ * ...
+ * int     number of indexes
+ * index   byte position of the field in INDEXED_FIELDS, int positions of records
+ * ...
+ * int     CRC32 of all preceding bytes
+ * </pre>
+ */
+public class StudentDatabaseSnapshot {
+
+	/** Bytes "SDBS" marking the start of a snapshot */
+	private static final int MAGIC = 0x53444253;
+	/** Version of the layout, changed whenever the layout changes */
+	private static final int VERSION = 1;
+	/** Bytes of the header and the checksum */
+	private static final int MIN_SIZE = 5 * Integer.BYTES;
+	/** Largest encoded field, limited by its unsigned short length */
+	private static final int MAX_FIELD_BYTES = 0xFFFF;
+
+	private static final String NOT_SNAPSHOT_MSG = "File isn't a database snapshot";
+	private static final String VERSION_MSG = "Unsupported snapshot version ";
+	private static final String CHECKSUM_MSG = "Snapshot checksum doesn't match";
+	private static final String TRUNCATED_MSG = "Snapshot is truncated";
+	private static final String BAD_INDEX_MSG = "Snapshot contains an invalid index";
+	private static final String FIELD_TOO_LONG_MSG = "Field is too long for a snapshot ";
+
+	private StudentDatabaseSnapshot() {
+	}
+
+	/**
+	 * Writes the snapshot of the database. It is written next to the file first
+	 * and then moved over it, so a failed write never leaves a partial snapshot
+	 * 
+	 * @param database to be written
+	 * @param file     of the snapshot
+	 * @throws IOException if writing fails
+	 */
+	public static void write(StudentDatabase database, Path file) throws IOException {
+		write(database.getState(), file);
+	}
+
+	/**
+	 * Writes the snapshot of the version of the database. The temporary file is
+	 * forced to disk before it is moved over the snapshot, and the directory is
+	 * forced after the move, so once this returns the snapshot survives a crash
+	 * 
+	 * @param state version of the database to be written
+	 * @param file  of the snapshot
+	 * @throws IOException if writing fails
+	 */
+	static void write(StudentDatabase.State state, Path file) throws IOException {
+		var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		var checksum = new CRC32();
+		try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+				var out = new DataOutputStream(new BufferedOutputStream(
+						new CheckedOutputStream(Channels.newOutputStream(channel), checksum), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			var compacted = new int[state.positions];
+			out.writeInt(state.size);
+			for (int position = 0, next = 0; position < state.positions; position++) {
+				var rec = state.get(position);
+				if (rec == null)
+					continue;
+				compacted[position] = next++;
+				writeField(out, rec.getJmbag());
+				writeField(out, rec.getLastName());
+				writeField(out, rec.getFirstName());
+				out.writeByte(rec.getFinalGrade());
+			}
+
+			var fields = StudentDatabase.INDEXED_FIELDS;
+			out.writeInt(fields.size());
+			for (int field = 0; field < fields.size(); field++) {
+				var index = state.planner.getIndex(fields.get(field));
+				out.writeByte(field);
+				for (int position : index.positions(new SortedIndex.Range(0, index.size())))
+					out.writeInt(compacted[position]);
+			}
+			out.flush();
+			out.writeInt((int) checksum.getValue());
+			out.flush();
+			channel.force(true);
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		forceDirectory(file.toAbsolutePath().getParent());
+	}
+
+	/**
+	 * Forces the directory to disk, so that files moved into it or out of it stay
+	 * moved after a crash
+	 * 
+	 * @param directory to be forced
+	 * @throws IOException if forcing fails
+	 */
+	static void forceDirectory(Path directory) throws IOException {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(directory, StandardOpenOption.READ);
+		} catch (AccessDeniedException ex) {
+			// directories can't be opened on Windows, which doesn't need them forced
+			return;
+		}
+		try (channel) {
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Loads the database from the snapshot, which is memory-mapped and validated
+	 * against its checksum before anything is read
+	 * 
+	 * @param file of the snapshot
+	 * @return loaded database
+	 * @throws IOException              if reading fails
+	 * @throws InvalidSnapshotException if the file isn't a valid snapshot
+	 */
+	public static StudentDatabase load(Path file) throws IOException {
+		ByteBuffer buffer;
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.limit() < MIN_SIZE || buffer.getInt(0) != MAGIC)
+			throw new InvalidSnapshotException(NOT_SNAPSHOT_MSG);
+		if (buffer.getInt(Integer.BYTES) != VERSION)
+			throw new InvalidSnapshotException(VERSION_MSG + buffer.getInt(Integer.BYTES));
+		int checksumPosition = buffer.limit() - Integer.BYTES;
+		var checksum = new CRC32();
+		checksum.update(buffer.slice(0, checksumPosition));
+		if ((int) checksum.getValue() != buffer.getInt(checksumPosition))
+			throw new InvalidSnapshotException(CHECKSUM_MSG);
+
+		try {
+			buffer.position(2 * Integer.BYTES).limit(checksumPosition);
+			int count = buffer.getInt();
+			var records = new ArrayList<StudentRecord>(count);
+			var bytes = new byte[MAX_FIELD_BYTES];
+			for (int i = 0; i < count; i++) {
+				var jmbag = readField(buffer, bytes);
+				var lastName = readField(buffer, bytes);
+				var firstName = readField(buffer, bytes);
+				records.add(new StudentRecord(jmbag, firstName, lastName, buffer.get()));
+			}
+
+			var fields = StudentDatabase.INDEXED_FIELDS;
+			if (buffer.getInt() != fields.size())
+				throw new InvalidSnapshotException(BAD_INDEX_MSG);
+			var indexes = new ArrayList<SortedIndex>(fields.size());
+			for (int i = 0; i < fields.size(); i++) {
+				int field = buffer.get();
+				if (field < 0 || field >= fields.size())
+					throw new InvalidSnapshotException(BAD_INDEX_MSG);
+				var positions = new int[count];
+				buffer.asIntBuffer().get(positions);
+				buffer.position(buffer.position() + count * Integer.BYTES);
+				for (int position : positions)
+					if (position < 0 || position >= count)
+						throw new InvalidSnapshotException(BAD_INDEX_MSG);
+				indexes.add(new SortedIndex(records, fields.get(field), positions));
+			}
+			return new StudentDatabase(records, new QueryPlanner(count, indexes, new GradeIndex(records)));
+		} catch (BufferUnderflowException ex) {
+			throw new InvalidSnapshotException(TRUNCATED_MSG);
+		}
+	}
+
+	private static void writeField(DataOutputStream out, String value) throws IOException {
+		var bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_FIELD_BYTES)
+			throw new IllegalArgumentException(FIELD_TOO_LONG_MSG + value);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readField(ByteBuffer buffer, byte[] bytes) {
+		int length = Short.toUnsignedInt(buffer.getShort());
+		buffer.get(bytes, 0, length);
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,191 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads student records one by one from a channel of tab separated UTF-8 lines.
+ * Fields are decoded straight from the read buffer, so neither whole lines nor
+ * the whole file are ever held in memory
+ */
+public class StudentRecordReader implements Closeable {
+
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	private static final String MISSING_FIELD_MSG = "Record has less than 4 fields";
+	private static final String INVALID_GRADE_MSG = "Final grade isn't a number";
+
+	/** Channel records are read from */
+	private final ReadableByteChannel channel;
+	/** Buffer in read mode, whose position is the start of the unread line */
+	private ByteBuffer buffer;
+	/** Number of bytes from the position already known not to end a line */
+	private int scanned;
+	/** Whether the channel has no more bytes */
+	private boolean endOfInput;
+	/** Number of lines read so far */
+	private int line;
+
+	/**
+	 * Opens the reader on the file
+	 * 
+	 * @param file to read records from
+	 * @throws IOException if the file can't be opened
+	 */
+	public StudentRecordReader(Path file) throws IOException {
+		this(FileChannel.open(file, StandardOpenOption.READ), DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Constructs the reader on the channel with initial buffer size. Lines longer
+	 * than the buffer make it grow
+	 * 
+	 * @param channel    to read records from
+	 * @param bufferSize initial buffer size
+	 */
+	public StudentRecordReader(ReadableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(bufferSize).flip();
+	}
+
+	/**
+	 * Reads the next record, skipping blank lines
+	 * 
+	 * @return next record, <code>null</code> if there are no more
+	 * @throws IOException              if reading fails
+	 * @throws MalformedRecordException if the line isn't a valid record
+	 * @throws FinalGradeException      if the final grade is invalid
+	 */
+	public StudentRecord next() throws IOException {
+		while (true) {
+			int end = findLineEnd();
+			if (end < 0) {
+				if (!endOfInput) {
+					fill();
+					continue;
+				}
+				if (!buffer.hasRemaining())
+					return null;
+				end = buffer.limit();
+			}
+
+			int start = buffer.position();
+			buffer.position(Math.min(end + 1, buffer.limit()));
+			scanned = 0;
+			line++;
+			var bytes = buffer.array();
+			if (end > start && bytes[end - 1] == '\r')
+				end--;
+			if (end > start)
+				return parse(bytes, start, end);
+		}
+	}
+
+	/**
+	 * Number of lines read so far
+	 * 
+	 * @return line of the last read record
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Finds the end of the unread line in the buffer
+	 * 
+	 * @return index of the line feed, -1 if it isn't in the buffer yet
+	 */
+	private int findLineEnd() {
+		var bytes = buffer.array();
+		for (int i = buffer.position() + scanned; i < buffer.limit(); i++)
+			if (bytes[i] == '\n')
+				return i;
+		scanned = buffer.remaining();
+		return -1;
+	}
+
+	/**
+	 * Moves the unread line to the beginning of the buffer and reads more bytes
+	 * after it, growing the buffer if the line fills it
+	 * 
+	 * @throws IOException if reading fails
+	 */
+	private void fill() throws IOException {
+		buffer.compact();
+		if (!buffer.hasRemaining()) {
+			var larger = ByteBuffer.allocate(buffer.capacity() * 2);
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+		if (channel.read(buffer) < 0)
+			endOfInput = true;
+		buffer.flip();
+	}
+
+	/**
+	 * Parses the record from bytes of a line. Fields are the JMBAG, the last
+	 * name, the first name and the final grade, in that order
+	 * 
+	 * @param bytes of the buffer
+	 * @param start of the line
+	 * @param end   of the line, without the line terminator
+	 * @return parsed record
+	 */
+	private StudentRecord parse(byte[] bytes, int start, int end) {
+		int jmbagEnd = nextTab(bytes, start, end);
+		int lastNameEnd = nextTab(bytes, jmbagEnd + 1, end);
+		int firstNameEnd = nextTab(bytes, lastNameEnd + 1, end);
+		if (firstNameEnd == end)
+			throw new MalformedRecordException(MISSING_FIELD_MSG, line);
+		int gradeEnd = nextTab(bytes, firstNameEnd + 1, end);
+
+		var jmbag = new String(bytes, start, jmbagEnd - start, StandardCharsets.UTF_8);
+		var lastName = new String(bytes, jmbagEnd + 1, lastNameEnd - jmbagEnd - 1, StandardCharsets.UTF_8);
+		var firstName = new String(bytes, lastNameEnd + 1, firstNameEnd - lastNameEnd - 1, StandardCharsets.UTF_8);
+		return new StudentRecord(jmbag, firstName, lastName, parseGrade(bytes, firstNameEnd + 1, gradeEnd));
+	}
+
+	/**
+	 * Finds the next tab in the line
+	 * 
+	 * @return its index, or <code>end</code> if there is none
+	 */
+	private static int nextTab(byte[] bytes, int from, int end) {
+		for (int i = from; i < end; i++)
+			if (bytes[i] == '\t')
+				return i;
+		return end;
+	}
+
+	/**
+	 * Parses the decimal final grade, with an optional sign
+	 * 
+	 * @return parsed grade
+	 * @throws MalformedRecordException if the field isn't a number
+	 */
+	private int parseGrade(byte[] bytes, int from, int to) {
+		boolean negative = from < to && bytes[from] == '-';
+		if (from < to && (bytes[from] == '-' || bytes[from] == '+'))
+			from++;
+		if (from == to || to - from > 9)
+			throw new MalformedRecordException(INVALID_GRADE_MSG, line);
+		int grade = 0;
+		for (int i = from; i < to; i++) {
+			if (bytes[i] < '0' || bytes[i] > '9')
+				throw new MalformedRecordException(INVALID_GRADE_MSG, line);
+			grade = grade * 10 + bytes[i] - '0';
+		}
+		return negative ? -grade : grade;
+	}
+}
@@ -2,5 +2,5 @@ package hr.fer.oprpp1.hw04.db;
 
 /** Enumeration modeling possible types of tokens */
 public enum TokenType {
-	EOF, WORD, OPERATOR, QUOTED
+	EOF, WORD, OPERATOR, QUOTED, NUMBER, OPEN_PARENTHESIS, CLOSED_PARENTHESIS
 }
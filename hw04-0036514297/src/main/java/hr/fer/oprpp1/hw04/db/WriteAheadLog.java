@@ -0,0 +1,371 @@
+package hr.fer.oprpp1.hw04.db;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of mutation batches. Every batch is one frame made of its
+ * length, the CRC32 of its bytes and the bytes themselves, so a frame torn by a
+ * crash is recognized and dropped together with anything after it.
+ * <p>
+ * Appending only queues the frame. A flusher thread writes all queued frames
+ * at once and forces them to disk with a single <code>force</code>, so writers
+ * committing at the same time share one disk synchronization
+ */
+public class WriteAheadLog implements Closeable {
+
+	/** Bytes of the length and the checksum preceding every frame */
+	private static final int FRAME_HEADER = 2 * Integer.BYTES;
+	/** Largest encoded field, limited by its unsigned short length */
+	private static final int MAX_FIELD_BYTES = 0xFFFF;
+	/** Initial size of the queue of frames */
+	private static final int INITIAL_QUEUE = 1 << 16;
+
+	private static final String CLOSED_MSG = "Log is closed";
+	private static final String FIELD_TOO_LONG_MSG = "Field is too long for the log ";
+
+	/** Channel frames are appended to */
+	private final FileChannel channel;
+	/** Thread writing and forcing queued frames */
+	private final Thread flusher;
+	/** Frames not written yet */
+	private ByteBuffer queue = ByteBuffer.allocate(INITIAL_QUEUE);
+	/** Buffer swapped with the queue while it is being written */
+	private ByteBuffer spare = ByteBuffer.allocate(INITIAL_QUEUE);
+	/** Number of frames appended */
+	private long appended;
+	/** Number of frames forced to disk */
+	private long durable;
+	/** Length of the log once all queued frames are written */
+	private long size;
+	/** Failure of the flusher, after which nothing more can be committed */
+	private IOException failure;
+	private boolean closed;
+
+	/**
+	 * Opens the log, handing every valid batch to the consumer in order. The log
+	 * is cut after the last valid frame, and new frames are appended from there
+	 * 
+	 * @param file     of the log, created if missing
+	 * @param replayed consumer of logged batches
+	 * @throws IOException if reading or opening the file fails
+	 */
+	public WriteAheadLog(Path file, Consumer<List<Mutation>> replayed) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			size = replay(channel, replayed);
+			if (size < channel.size()) {
+				channel.truncate(size);
+				channel.force(true);
+			}
+			channel.position(size);
+		} catch (IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+		flusher = new Thread(this::flush, "wal-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Queues the batch without waiting for it to reach the disk
+	 * 
+	 * @param batch to be logged
+	 * @return sequence number of the batch, to be passed to
+	 *         <code>awaitDurable</code>
+	 * @throws IOException if the log is closed or failed before
+	 */
+	public long append(List<Mutation> batch) throws IOException {
+		return append(encode(batch));
+	}
+
+	/**
+	 * Queues the frame made by <code>encode</code>
+	 * 
+	 * @param frame to be logged
+	 * @return sequence number of the frame
+	 * @throws IOException if the log is closed or failed before
+	 */
+	synchronized long append(byte[] frame) throws IOException {
+		checkUsable();
+		if (queue.remaining() < frame.length)
+			queue = ByteBuffer.allocate(Math.max(queue.capacity() * 2, queue.position() + frame.length))
+					.put(queue.flip());
+		queue.put(frame);
+		size += frame.length;
+		notifyAll();
+		return ++appended;
+	}
+
+	/**
+	 * Waits until the batch with the sequence number, and all before it, are on
+	 * disk
+	 * 
+	 * @param sequence number returned by <code>append</code>
+	 * @throws IOException if writing fails or the thread is interrupted
+	 */
+	public synchronized void awaitDurable(long sequence) throws IOException {
+		while (durable < sequence) {
+			if (failure != null)
+				throw failure;
+			if (closed && !flusher.isAlive())
+				throw new IOException(CLOSED_MSG);
+			try {
+				wait();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+	}
+
+	/**
+	 * Logs the batch and waits until it is on disk
+	 * 
+	 * @param batch to be logged
+	 * @throws IOException if writing fails
+	 */
+	public void commit(List<Mutation> batch) throws IOException {
+		awaitDurable(append(batch));
+	}
+
+	/**
+	 * Waits until all appended batches are on disk
+	 * 
+	 * @throws IOException if writing fails
+	 */
+	public void sync() throws IOException {
+		long sequence;
+		synchronized (this) {
+			sequence = appended;
+		}
+		awaitDurable(sequence);
+	}
+
+	/**
+	 * Length of the log, including queued frames
+	 * 
+	 * @return number of bytes
+	 */
+	public synchronized long size() {
+		return size;
+	}
+
+	/**
+	 * Removes all batches from the log. The caller has to make sure none is
+	 * being appended meanwhile, which <code>sync</code> can't guarantee on its own
+	 * 
+	 * @throws IOException if truncating fails
+	 */
+	public synchronized void truncate() throws IOException {
+		sync();
+		checkUsable();
+		channel.truncate(0);
+		channel.force(true);
+		size = 0;
+	}
+
+	/** Writes the remaining batches and closes the log */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+			notifyAll();
+		}
+		try {
+			flusher.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+		synchronized (this) {
+			if (failure != null)
+				throw failure;
+		}
+	}
+
+	private void checkUsable() throws IOException {
+		if (failure != null)
+			throw failure;
+		if (closed)
+			throw new IOException(CLOSED_MSG);
+	}
+
+	/** Body of the flusher, writing and forcing queued frames in rounds */
+	private void flush() {
+		while (true) {
+			ByteBuffer frames;
+			long sequence;
+			synchronized (this) {
+				while (queue.position() == 0 && !closed) {
+					try {
+						wait();
+					} catch (InterruptedException ex) {
+						return;
+					}
+				}
+				if (queue.position() == 0)
+					return;
+				frames = queue.flip();
+				queue = spare.clear();
+				spare = frames;
+				sequence = appended;
+			}
+			try {
+				while (frames.hasRemaining())
+					channel.write(frames);
+				channel.force(false);
+			} catch (IOException ex) {
+				synchronized (this) {
+					failure = ex;
+					notifyAll();
+				}
+				return;
+			}
+			synchronized (this) {
+				frames.clear();
+				durable = sequence;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Hands every valid batch of the log to the consumer in order, without
+	 * opening the log for appending
+	 * 
+	 * @param file     of the log
+	 * @param replayed consumer of logged batches
+	 * @throws IOException if reading fails
+	 */
+	static void replay(Path file, Consumer<List<Mutation>> replayed) throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			replay(channel, replayed);
+		}
+	}
+
+	/**
+	 * Reads frames from the start of the channel until the first invalid one
+	 * 
+	 * @return length of the valid part of the log
+	 */
+	private static long replay(FileChannel channel, Consumer<List<Mutation>> replayed) throws IOException {
+		channel.position(0);
+		var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+		long valid = 0;
+		var checksum = new CRC32();
+		while (true) {
+			byte[] payload;
+			try {
+				int length = in.readInt();
+				int expected = in.readInt();
+				if (length < 0 || length > channel.size() - valid - FRAME_HEADER)
+					return valid;
+				payload = new byte[length];
+				in.readFully(payload);
+				checksum.reset();
+				checksum.update(payload);
+				if ((int) checksum.getValue() != expected)
+					return valid;
+			} catch (EOFException ex) {
+				return valid;
+			}
+			List<Mutation> batch;
+			try {
+				batch = decode(payload);
+			} catch (IOException | RuntimeException ex) {
+				return valid;
+			}
+			replayed.accept(batch);
+			valid += FRAME_HEADER + payload.length;
+		}
+	}
+
+	/**
+	 * Encodes the batch as a frame
+	 * 
+	 * @param batch to be encoded
+	 * @return bytes of the frame
+	 * @throws IllegalArgumentException if a field is too long
+	 */
+	static byte[] encode(List<Mutation> batch) {
+		var bytes = new ByteArrayOutputStream();
+		try (var out = new DataOutputStream(bytes)) {
+			out.writeInt(0);
+			out.writeInt(0);
+			out.writeInt(batch.size());
+			for (var mutation : batch) {
+				out.writeByte(mutation.type().ordinal());
+				writeField(out, mutation.jmbag());
+				if (mutation.type() != MutationType.DELETE) {
+					writeField(out, mutation.record().getLastName());
+					writeField(out, mutation.record().getFirstName());
+					out.writeByte(mutation.record().getFinalGrade());
+				}
+			}
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		var frame = ByteBuffer.wrap(bytes.toByteArray());
+		var checksum = new CRC32();
+		checksum.update(frame.array(), FRAME_HEADER, frame.limit() - FRAME_HEADER);
+		frame.putInt(0, frame.limit() - FRAME_HEADER);
+		frame.putInt(Integer.BYTES, (int) checksum.getValue());
+		return frame.array();
+	}
+
+	private static List<Mutation> decode(byte[] payload) throws IOException {
+		var in = new DataInputStream(new ByteArrayInputStream(payload));
+		int count = in.readInt();
+		var batch = new ArrayList<Mutation>(Math.min(count, payload.length));
+		for (int i = 0; i < count; i++) {
+			var type = MutationType.values()[in.readByte()];
+			var jmbag = readField(in);
+			if (type == MutationType.DELETE) {
+				batch.add(Mutation.delete(jmbag));
+				continue;
+			}
+			var lastName = readField(in);
+			var firstName = readField(in);
+			batch.add(new Mutation(type, jmbag, new StudentRecord(jmbag, firstName, lastName, in.readByte())));
+		}
+		if (in.available() > 0)
+			throw new IOException();
+		return batch;
+	}
+
+	private static void writeField(DataOutputStream out, String value) throws IOException {
+		var bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_FIELD_BYTES)
+			throw new IllegalArgumentException(FIELD_TOO_LONG_MSG + value);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readField(DataInputStream in) throws IOException {
+		var bytes = new byte[in.readUnsignedShort()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
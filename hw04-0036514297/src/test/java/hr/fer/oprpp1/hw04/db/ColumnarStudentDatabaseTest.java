@@ -0,0 +1,90 @@
+package hr.fer.oprpp1.hw04.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.Test;
+
+public class ColumnarStudentDatabaseTest {
+
+	private static final String[] OPERATORS = { "<", "<=", ">", ">=", "=", "!=", "LIKE" };
+
+	@Test
+	public void testRecordsAreRebuilt() {
+		var db = new ColumnarStudentDatabase(List.of("0000000001	Akšamović	Marin	2", "0000000002	Bakamović	Petra	3"));
+		assertEquals(2, db.size());
+		var rec = db.get(1);
+		assertEquals("0000000002", rec.getJmbag());
+		assertEquals("Bakamović", rec.getLastName());
+		assertEquals("Petra", rec.getFirstName());
+		assertEquals(3, rec.getFinalGrade());
+		assertEquals(rec, db.forJMBAG("0000000002"));
+		assertNull(db.forJMBAG("0000000003"));
+	}
+
+	@Test
+	public void testDuplicateJmbag() {
+		assertThrows(JmbagAlreadyExistsException.class,
+				() -> new ColumnarStudentDatabase(List.of("0000000001	A	B	2", "0000000001	C	D	3")));
+		assertThrows(JmbagAlreadyExistsException.class, () -> new ColumnarStudentDatabase(
+				List.of("0000000001	A	B	2", "0000000001	C	D	3", "J1	E	F	4")));
+		assertThrows(JmbagAlreadyExistsException.class,
+				() -> new ColumnarStudentDatabase(List.of("J1	A	B	2", "0000000001	C	D	3", "J1	E	F	4")));
+	}
+
+	@Test
+	public void testJmbagsSwitchToDictionary() {
+		var db = new ColumnarStudentDatabase(List.of("0000000002	A	B	2", "J1	C	D	3", "0000000001	E	F	4"));
+		assertEquals("0000000002", db.get(0).getJmbag());
+		assertEquals("J1", db.get(1).getJmbag());
+		assertEquals(db.get(2), db.forJMBAG("0000000001"));
+	}
+
+	@Test
+	public void testQueriesMatchRowStorage() {
+		var lines = generate((i) -> String.format("%010d", (i * 7919L) % 10_000_000_000L));
+		String[] literals = { "Ko", "Kovač", "Ko*", "Kov*ć", "*ić", "Iv*", "Z", "", "0000007919", "00000*",
+				"*19", "0000*9", "12*", "0000015838", "00000158380" };
+		checkAgainstRowStorage(lines, literals);
+	}
+
+	@Test
+	public void testNonNumericJmbags() {
+		var lines = generate((i) -> "J" + i);
+		checkAgainstRowStorage(lines, new String[] { "J1", "J1*", "*5", "J", "K" });
+	}
+
+	private static List<String> generate(IntFunction<String> jmbag) {
+		var lines = new ArrayList<String>();
+		String[] lastNames = { "Kovač", "Kovačić", "Ko", "Horvat", "Babić", "Knez", "Kos" };
+		String[] firstNames = { "Ana", "Ivan", "Marko", "Ivana", "Luka" };
+		for (int i = 0; i < 300; i++)
+			lines.add(jmbag.apply(i) + "\t" + lastNames[i % lastNames.length] + "\t" + firstNames[i % firstNames.length]
+					+ "\t" + (i % 5 + 1));
+		return lines;
+	}
+
+	private static void checkAgainstRowStorage(List<String> lines, String[] literals) {
+		var rows = new StudentDatabase(lines);
+		var columns = new ColumnarStudentDatabase(lines);
+		for (var attribute : List.of("jmbag", "lastName", "firstName"))
+			for (var operator : OPERATORS)
+				for (var literal : literals) {
+					var query = new QueryParser(
+							"query " + attribute + " " + operator + " \"" + literal + "\" and firstName != \"Luka\"")
+							.getQuery();
+					assertEquals(rows.query(query), columns.query(query), attribute + " " + operator + " " + literal);
+				}
+		for (var operator : OPERATORS)
+			for (int grade = 0; grade <= 6 && !"LIKE".equals(operator); grade++) {
+				var query = new QueryParser("query finalGrade " + operator + " " + grade + " and lastName > \"K\"")
+						.getQuery();
+				assertEquals(rows.query(query), columns.query(query), "finalGrade " + operator + " " + grade);
+			}
+	}
+}
@@ -48,4 +48,27 @@ public class ComparisonOperatorsTest {
 		assertTrue(ComparisonOperators.LIKE.satisfied("Ban", "B*"));
 		assertTrue(ComparisonOperators.LIKE.satisfied("0035", "0*5"));
 	}
+
+	@Test
+	public void testLikeWithoutWildcard() {
+		assertTrue(ComparisonOperators.LIKE.satisfied("Ban", "Ban"));
+		assertFalse(ComparisonOperators.LIKE.satisfied("Bana", "Ban"));
+	}
+
+	@Test
+	public void testLikeWildcardCharacters() {
+		assertTrue(ComparisonOperators.LIKE.satisfied("Kovačević", "Ko*ić"));
+		assertTrue(ComparisonOperators.LIKE.satisfied("Ko", "Ko*"));
+		assertTrue(ComparisonOperators.LIKE.satisfied("Đurđević", "*ević"));
+		assertFalse(ComparisonOperators.LIKE.satisfied("Ko-vač", "Ko*"));
+		assertFalse(ComparisonOperators.LIKE.satisfied("Ko vač", "Ko*"));
+		assertFalse(ComparisonOperators.LIKE.satisfied("Koé", "Ko*"));
+	}
+
+	@Test
+	public void testCompiledExpression() {
+		var expr = new ConditionalExpression(FieldValueGetters.LAST_NAME, "B*ć", ComparisonOperators.LIKE);
+		assertTrue(expr.accepts(new StudentRecord("0000000001", "Marin", "Bosnić", 2)));
+		assertFalse(expr.accepts(new StudentRecord("0000000001", "Marin", "Akšamović", 2)));
+	}
 }
@@ -0,0 +1,129 @@
+package hr.fer.oprpp1.hw04.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DurableStudentDatabaseTest {
+
+	private static Path initialRecords(Path dir) throws IOException {
+		var file = dir.resolve("database.txt");
+		Files.writeString(file, "0000000001\tAkšamović\tMarin\t2\r\n0000000002\tBakamović\tPetra\t3\r\n",
+				StandardCharsets.UTF_8);
+		return file;
+	}
+
+	@Test
+	public void testChangesSurviveReopening(@TempDir Path dir) throws IOException {
+		var text = initialRecords(dir);
+		var directory = dir.resolve("data");
+		try (var db = DurableStudentDatabase.open(directory, text)) {
+			assertTrue(db.update(new StudentRecord("0000000001", "Marin", "Akšamović", 5)));
+			db.insert(new StudentRecord("0000000003", "Andrea", "Bosnić", 4));
+			assertTrue(db.delete("0000000002"));
+			assertFalse(db.delete("0000000009"));
+			assertThrows(JmbagAlreadyExistsException.class,
+					() -> db.insert(new StudentRecord("0000000003", "Ivo", "Ivić", 1)));
+		}
+		try (var db = DurableStudentDatabase.open(directory, text)) {
+			var database = db.getDatabase();
+			assertEquals(2, database.size());
+			assertEquals(5, database.forJMBAG("0000000001").getFinalGrade());
+			assertEquals("Andrea", database.forJMBAG("0000000003").getFirstName());
+			assertNull(database.forJMBAG("0000000002"));
+		}
+	}
+
+	@Test
+	public void testCompactionClearsLog(@TempDir Path dir) throws IOException {
+		var directory = dir.resolve("data");
+		try (var db = DurableStudentDatabase.open(directory, initialRecords(dir), 1024)) {
+			for (int i = 0; i < 200; i++)
+				db.update(new StudentRecord("0000000001", "Marin", "Akšamović", i % 5 + 1));
+			db.awaitCompaction();
+			assertTrue(Files.exists(directory.resolve(DurableStudentDatabase.SNAPSHOT_FILE)));
+			assertTrue(db.getLogSize() < 1024);
+		}
+		try (var db = DurableStudentDatabase.open(directory, null)) {
+			assertEquals(5, db.getDatabase().forJMBAG("0000000001").getFinalGrade());
+			assertEquals(2, db.getDatabase().size());
+		}
+	}
+
+	@Test
+	public void testReplayOverCompactedSnapshot(@TempDir Path dir) throws IOException {
+		var directory = dir.resolve("data");
+		var log = directory.resolve(DurableStudentDatabase.LOG_FILE);
+		byte[] logged;
+		try (var db = DurableStudentDatabase.open(directory, initialRecords(dir))) {
+			db.apply(List.of(Mutation.insert(new StudentRecord("0000000003", "Andrea", "Bosnić", 4)),
+					Mutation.delete("0000000001")));
+			db.insert(new StudentRecord("0000000001", "Ivo", "Ivić", 1));
+			logged = Files.readAllBytes(log);
+			db.compact();
+			assertEquals(0, Files.size(log));
+			assertFalse(Files.exists(directory.resolve(DurableStudentDatabase.OLD_LOG_FILE)));
+		}
+		Files.write(log, logged);
+		try (var db = DurableStudentDatabase.open(directory, null)) {
+			var database = db.getDatabase();
+			assertEquals(3, database.size());
+			assertEquals("Ivić", database.forJMBAG("0000000001").getLastName());
+			assertEquals(4, database.forJMBAG("0000000003").getFinalGrade());
+		}
+	}
+
+	@Test
+	public void testReplayOfInterruptedCompaction(@TempDir Path dir) throws IOException {
+		var text = initialRecords(dir);
+		var directory = dir.resolve("data");
+		try (var db = DurableStudentDatabase.open(directory, text)) {
+			db.update(new StudentRecord("0000000001", "Marin", "Akšamović", 5));
+		}
+		Files.move(directory.resolve(DurableStudentDatabase.LOG_FILE),
+				directory.resolve(DurableStudentDatabase.OLD_LOG_FILE));
+		try (var db = DurableStudentDatabase.open(directory, text)) {
+			assertEquals(5, db.getDatabase().forJMBAG("0000000001").getFinalGrade());
+			db.delete("0000000002");
+			db.compact();
+			assertFalse(Files.exists(directory.resolve(DurableStudentDatabase.OLD_LOG_FILE)));
+		}
+		try (var db = DurableStudentDatabase.open(directory, null)) {
+			assertEquals(5, db.getDatabase().forJMBAG("0000000001").getFinalGrade());
+			assertEquals(1, db.getDatabase().size());
+		}
+	}
+
+	@Test
+	public void testFailedChangeIsNotShown(@TempDir Path dir) throws IOException {
+		var db = DurableStudentDatabase.open(dir.resolve("data"), initialRecords(dir));
+		db.close();
+		assertThrows(IOException.class, () -> db.update(new StudentRecord("0000000001", "Marin", "Akšamović", 5)));
+		assertEquals(2, db.getDatabase().forJMBAG("0000000001").getFinalGrade());
+	}
+
+	@Test
+	public void testDatabaseIsReadOnly(@TempDir Path dir) throws IOException {
+		try (var db = DurableStudentDatabase.open(dir.resolve("data"), initialRecords(dir))) {
+			var database = db.getDatabase();
+			var record = new StudentRecord("0000000001", "Marin", "Akšamović", 3);
+			assertThrows(UnsupportedOperationException.class, () -> database.update(record));
+			assertThrows(UnsupportedOperationException.class, () -> database.insert(record));
+			assertThrows(UnsupportedOperationException.class, () -> database.delete("0000000001"));
+			assertThrows(UnsupportedOperationException.class, () -> database.apply(List.of()));
+			assertTrue(db.update(new StudentRecord("0000000001", "Marin", "Akšamović", 5)));
+			assertEquals(5, database.forJMBAG("0000000001").getFinalGrade());
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package hr.fer.oprpp1.hw04.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class QueryCacheTest {
+
+	private static final StudentDatabase DATABASE = new StudentDatabase(List.of("0000000001	Akšamović	Marin	2",
+			"0000000002	Bakamović	Petra	3", "0000000003	Bosnić	Andrea	4", "0000000004	Božić	Marin	5"));
+
+	@Test
+	public void testNormalize() {
+		assertEquals("query lastName LIKE \"B  *\"", QueryCache.normalize("  query\tlastName   LIKE \"B  *\" \r\n"));
+		assertEquals("", QueryCache.normalize(" \t "));
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		var cache = new QueryCache(DATABASE);
+		var first = cache.query("query lastName LIKE \"B*\"");
+		var second = cache.query("  query  lastName LIKE  \"B*\"");
+		assertSame(first, second);
+		assertEquals(3, first.records().size());
+		assertEquals(DATABASE.query(first.parser().getQuery()), first.records());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		var direct = cache.query("query jmbag = \"0000000004\"");
+		assertEquals(List.of(DATABASE.forJMBAG("0000000004")), direct.records());
+		assertEquals(List.of(), cache.query("query jmbag = \"0000000009\"").records());
+		assertEquals(3, cache.size());
+		assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		var cache = new QueryCache(DATABASE, 2, 100);
+		var a = cache.query("query firstName = \"Marin\"");
+		cache.query("query firstName = \"Petra\"");
+		cache.query("query firstName = \"Marin\"");
+		cache.query("query firstName = \"Andrea\"");
+		assertEquals(2, cache.size());
+		assertSame(a, cache.query("query firstName = \"Marin\""));
+		assertEquals(1, cache.query("query firstName = \"Petra\"").records().size());
+		assertEquals(2, cache.getHits());
+		assertEquals(4, cache.getMisses());
+	}
+
+	@Test
+	public void testRecordBudget() {
+		var cache = new QueryCache(DATABASE, 10, 4);
+		cache.query("query lastName LIKE \"B*\"");
+		cache.query("query firstName = \"Marin\"");
+		assertEquals(1, cache.size());
+		cache.query("query firstName = \"Marin\"");
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testInvalidQueriesAreNotCached() {
+		var cache = new QueryCache(DATABASE);
+		assertThrows(ParserException.class, () -> cache.query("query age > \"3\""));
+		assertEquals(0, cache.size());
+		assertThrows(IllegalArgumentException.class, () -> new QueryCache(DATABASE, 0, 1));
+	}
+
+	@Test
+	public void testResultsAreUnmodifiable() {
+		var records = new QueryCache(DATABASE).query("query lastName > \"A\"").records();
+		assertThrows(UnsupportedOperationException.class, () -> records.clear());
+	}
+
+	@Test
+	public void testChangesInvalidateResults() {
+		var database = new StudentDatabase(List.of("0000000001	Akšamović	Marin	2", "0000000002	Bakamović	Petra	3"));
+		var cache = new QueryCache(database);
+		var before = cache.query("query firstName = \"Marin\"");
+		database.insert(new StudentRecord("0000000003", "Marin", "Bosnić", 4));
+		var after = cache.query("query firstName = \"Marin\"");
+		assertSame(before.parser(), after.parser());
+		assertEquals(2, after.records().size());
+		assertEquals(0, cache.getHits());
+		assertSame(after, cache.query("query firstName = \"Marin\""));
+	}
+}
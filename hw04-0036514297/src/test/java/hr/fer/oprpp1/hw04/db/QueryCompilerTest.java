@@ -0,0 +1,55 @@
+package hr.fer.oprpp1.hw04.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class QueryCompilerTest {
+
+	@Test
+	public void testEmptyAcceptsAll() {
+		var filter = QueryCompiler.compile(List.of());
+		assertTrue(filter.accepts(new StudentRecord("0000000001", "Marin", "Akšamović", 2)));
+	}
+
+	@Test
+	public void testGradePredicatesMerged() {
+		var filter = QueryCompiler.compile(new QueryParser("query finalGrade > 2 and finalGrade != 4").getQuery());
+		assertFalse(filter.accepts(new StudentRecord("0000000001", "Marin", "Akšamović", 2)));
+		assertTrue(filter.accepts(new StudentRecord("0000000002", "Petra", "Bakamović", 3)));
+		assertFalse(filter.accepts(new StudentRecord("0000000003", "Andrea", "Bosnić", 4)));
+		assertTrue(filter.accepts(new StudentRecord("0000000004", "Marin", "Božić", 5)));
+	}
+
+	@Test
+	public void testMatchesInterpretedFilter() {
+		var records = new ArrayList<StudentRecord>();
+		String[] lastNames = { "Kovač", "Kovačić", "Ko", "Horvat", "Babić", "Knez", "Kos" };
+		String[] firstNames = { "Ana", "Ivan", "Marko", "Ivana", "Luka" };
+		for (int i = 0; i < 200; i++)
+			records.add(new StudentRecord(String.format("%010d", (i * 37) % 1000), firstNames[i % firstNames.length],
+					lastNames[i % lastNames.length], i % 5 + 1));
+
+		String[] operators = { "<", "<=", ">", ">=", "=", "!=", "LIKE" };
+		String[] literals = { "Ko", "Kovač", "Ko*", "Kov*ć", "*ić", "Iv*", "Z", "0000000370", "00000005*", "" };
+		String[] rest = { "", " and jmbag >= \"0000000100\"",
+				" and finalGrade >= 3 and firstName != \"Ana\"",
+				" and lastName LIKE \"K*\" and finalGrade < 5 and jmbag < \"0000000900\" and firstName > \"B\"" };
+		for (var attribute : List.of("jmbag", "lastName", "firstName"))
+			for (var operator : operators)
+				for (var literal : literals)
+					for (var tail : rest) {
+						var text = attribute + " " + operator + " \"" + literal + "\"" + tail;
+						var query = new QueryParser("query " + text).getQuery();
+						var interpreted = new QueryFilter(query);
+						var compiled = QueryCompiler.compile(query);
+						for (var record : records)
+							assertEquals(interpreted.accepts(record), compiled.accepts(record), text);
+					}
+	}
+}
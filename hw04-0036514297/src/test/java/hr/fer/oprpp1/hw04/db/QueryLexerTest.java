@@ -44,6 +44,14 @@ public class QueryLexerTest {
 		checkQueryTokenStream(lexer, correctData);
 	}
 
+	@Test
+	public void testNumberQuery() {
+		var lexer = new Lexer("query finalGrade>=4");
+		Token[] correctData = { new Token(TokenType.WORD, "query"), new Token(TokenType.WORD, "finalGrade"),
+				new Token(TokenType.OPERATOR, ">="), new Token(TokenType.NUMBER, "4"), new Token(TokenType.EOF, null) };
+		checkQueryTokenStream(lexer, correctData);
+	}
+
 	@Test
 	public void testHugeQuery() {
 		var lexer = new Lexer(
@@ -101,6 +109,19 @@ public class QueryLexerTest {
 		checkQueryTokenStream(lexer, correctData);
 	}
 
+	@Test
+	public void testParentheses() {
+		var lexer = new Lexer("not(jmbag=\"1\")or (finalGrade<2)");
+		Token[] correctData = { new Token(TokenType.WORD, "not"), new Token(TokenType.OPEN_PARENTHESIS, "("),
+				new Token(TokenType.WORD, "jmbag"), new Token(TokenType.OPERATOR, "="),
+				new Token(TokenType.QUOTED, "\"1\""), new Token(TokenType.CLOSED_PARENTHESIS, ")"),
+				new Token(TokenType.WORD, "or"), new Token(TokenType.OPEN_PARENTHESIS, "("),
+				new Token(TokenType.WORD, "finalGrade"), new Token(TokenType.OPERATOR, "<"),
+				new Token(TokenType.NUMBER, "2"), new Token(TokenType.CLOSED_PARENTHESIS, ")"),
+				new Token(TokenType.EOF, null) };
+		checkQueryTokenStream(lexer, correctData);
+	}
+
 	// Helper method for checking if lexer generates the same stream of tokens
 	// as the given stream.	
 	private void checkQueryTokenStream(Lexer lexer, Token[] correctData) {
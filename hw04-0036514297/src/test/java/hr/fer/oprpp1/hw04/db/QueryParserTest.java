@@ -36,6 +36,27 @@ public class QueryParserTest {
 				parser.getQuery());
 	}
 
+	@Test
+	public void testFinalGradeQuery() {
+		var parser = new QueryParser("query finalGrade >= 4 and lastName LIKE \"A*\"");
+		var expr = parser.getQuery().get(0);
+		assertSame(FieldValueGetters.FINAL_GRADE, expr.getFieldGetter());
+		assertSame(ComparisonOperators.GREATER_OR_EQUALS, expr.getComparisonOperator());
+		assertTrue(expr.isNumeric());
+		assertEquals("finalGrade >= 4", expr.toString());
+		assertThrows(ParserException.class, () -> new QueryParser("query finalGrade LIKE 4"));
+		assertThrows(ParserException.class, () -> new QueryParser("query finalGrade = \"4\""));
+		assertThrows(ParserException.class, () -> new QueryParser("query finalGrade =< 4"));
+	}
+
+	@Test
+	public void testFinalGradeComparesNumbers() {
+		var expr = new QueryParser("query finalGrade < 10").getQuery().get(0);
+		assertTrue(expr.accepts(new StudentRecord("0000000001", "Marin", "Akšamović", 5)));
+		assertTrue(expr.matches("9"));
+		assertFalse(expr.matches("10"));
+	}
+
 	@Test
 	public void testMultipleQuery() {
 		var parser = new QueryParser("query firstName>\"A\" and lastName LIKE \"B*ć\"");
@@ -57,6 +78,123 @@ public class QueryParserTest {
 				parser.getQuery());
 	}
 
+	@Test
+	public void testOrBindsWeakerThanAnd() {
+		var parser = new QueryParser("query jmbag = \"0000000001\" or lastName = \"A\" firstName = \"B\"");
+		assertFalse(parser.isConjunctive());
+		assertFalse(parser.isDirectQuery());
+		assertThrows(IllegalStateException.class, parser::getQuery);
+		var or = assertInstanceOf(OrExpression.class, parser.getExpression());
+		assertEquals(2, or.operands().size());
+		assertInstanceOf(ConditionalExpression.class, or.operands().get(0));
+		assertEquals(2, assertInstanceOf(AndExpression.class, or.operands().get(1)).operands().size());
+		assertEquals("jmbag = \"0000000001\" or lastName = \"A\" and firstName = \"B\"",
+				parser.getExpression().toString());
+	}
+
+	@Test
+	public void testParenthesesGroup() {
+		var parser = new QueryParser("query (jmbag < \"2\" or jmbag > \"8\") and (finalGrade = 5 or finalGrade = 1)");
+		var and = assertInstanceOf(AndExpression.class, parser.getExpression());
+		assertEquals(2, and.operands().size());
+		assertEquals("(jmbag < \"2\" or jmbag > \"8\") and (finalGrade = 5 or finalGrade = 1)", and.toString());
+		assertEquals(parser.getExpression().toString(),
+				new QueryParser("QUERY ((jmbag < \"2\") OR jmbag > \"8\") AND (finalGrade = 5 Or finalGrade = 1)")
+						.getExpression().toString());
+	}
+
+	@Test
+	public void testNotIsPushedToConditions() {
+		var parser = new QueryParser("query not (lastName < \"B\" or firstName LIKE \"A*\")");
+		assertEquals("lastName >= \"B\" and not firstName LIKE \"A*\"", parser.getExpression().toString());
+		assertFalse(parser.isConjunctive());
+
+		var direct = new QueryParser("query not not not jmbag != \"0000000003\"");
+		assertTrue(direct.isDirectQuery());
+		assertEquals("0000000003", direct.getQueriedJMBAG());
+
+		var conjunction = new QueryParser("query not (finalGrade <= 2 or lastName != \"A\")");
+		assertTrue(conjunction.isConjunctive());
+		checkExpressions(
+				List.of(new ConditionalExpression(FieldValueGetters.FINAL_GRADE, "2", ComparisonOperators.GREATER),
+						new ConditionalExpression(FieldValueGetters.LAST_NAME, "A", ComparisonOperators.EQUALS)),
+				conjunction.getQuery());
+	}
+
+	@Test
+	public void testInvalidBooleanQueries() {
+		assertThrows(ParserException.class, () -> new QueryParser("query (jmbag = \"1\""));
+		assertThrows(ParserException.class, () -> new QueryParser("query jmbag = \"1\")"));
+		assertThrows(ParserException.class, () -> new QueryParser("query ()"));
+		assertThrows(ParserException.class, () -> new QueryParser("query jmbag = \"1\" or"));
+		assertThrows(ParserException.class, () -> new QueryParser("query jmbag = \"1\" and or jmbag = \"2\""));
+		assertThrows(ParserException.class, () -> new QueryParser("query not"));
+	}
+
+	@Test
+	public void testAggregation() {
+		var parser = new QueryParser("query lastName LIKE \"B*\" count avg finalGrade group by firstName");
+		assertFalse(parser.isDirectQuery());
+		checkExpressions(
+				List.of(new ConditionalExpression(FieldValueGetters.LAST_NAME, "B*", ComparisonOperators.LIKE)),
+				parser.getQuery());
+		var aggregation = parser.getAggregation();
+		assertEquals(List.of(AggregateFunction.COUNT, AggregateFunction.AVG), aggregation.getFunctions());
+		assertSame(FieldValueGetters.FIRST_NAME, aggregation.getGroupBy());
+		assertEquals("count, avg(finalGrade) by firstName", aggregation.toString());
+
+		var all = new QueryParser("query group by LASTNAME");
+		assertTrue(all.getQuery().isEmpty());
+		assertEquals(List.of(AggregateFunction.COUNT), all.getAggregation().getFunctions());
+		assertFalse(new QueryParser("query jmbag = \"0000000001\" count").isDirectQuery());
+		assertNull(new QueryParser("query jmbag = \"0000000001\"").getAggregation());
+	}
+
+	@Test
+	public void testInvalidAggregation() {
+		assertThrows(ParserException.class, () -> new QueryParser("query avg lastName"));
+		assertThrows(ParserException.class, () -> new QueryParser("query max"));
+		assertThrows(ParserException.class, () -> new QueryParser("query group lastName"));
+		assertThrows(ParserException.class, () -> new QueryParser("query group by age"));
+		assertThrows(ParserException.class, () -> new QueryParser("query group by jmbag group by lastName"));
+		assertThrows(ParserException.class, () -> new QueryParser("query count jmbag = \"1\""));
+	}
+
+	@Test
+	public void testOrdering() {
+		var parser = new QueryParser("query finalGrade >= 4 order by LASTNAME desc limit 10 offset 20");
+		assertFalse(parser.isDirectQuery());
+		assertEquals(1, parser.getQuery().size());
+		var ordering = parser.getOrdering();
+		assertSame(FieldValueGetters.LAST_NAME, ordering.getField());
+		assertTrue(ordering.isDescending());
+		assertEquals(10, ordering.getLimit());
+		assertEquals(20, ordering.getOffset());
+		assertEquals("lastName desc, limit 10, offset 20", ordering.toString());
+
+		var sorted = new QueryParser("query order by jmbag asc").getOrdering();
+		assertFalse(sorted.isDescending());
+		assertEquals(Ordering.NO_LIMIT, sorted.getLimit());
+		var limited = new QueryParser("query limit 3").getOrdering();
+		assertFalse(limited.isOrdered());
+		assertEquals(3, limited.getLimit());
+		assertFalse(new QueryParser("query jmbag = \"0000000001\" limit 1").isDirectQuery());
+		assertNull(new QueryParser("query jmbag = \"0000000001\"").getOrdering());
+	}
+
+	@Test
+	public void testInvalidOrdering() {
+		assertThrows(ParserException.class, () -> new QueryParser("query order lastName"));
+		assertThrows(ParserException.class, () -> new QueryParser("query order by age"));
+		assertThrows(ParserException.class, () -> new QueryParser("query order by lastName limit"));
+		assertThrows(ParserException.class, () -> new QueryParser("query limit \"3\""));
+		assertThrows(ParserException.class, () -> new QueryParser("query limit 99999999999"));
+		assertThrows(ParserException.class, () -> new QueryParser("query offset 3"));
+		assertThrows(ParserException.class, () -> new QueryParser("query limit 3 offset 2 offset 1"));
+		assertThrows(ParserException.class, () -> new QueryParser("query order by lastName desc asc"));
+		assertThrows(ParserException.class, () -> new QueryParser("query count order by lastName"));
+	}
+
 	private void checkExpressions(List<ConditionalExpression> expected, List<ConditionalExpression> actual) {
 		assertEquals(expected.size(), actual.size());
 		for (int i = 0, size = expected.size(); i < size; i++) {
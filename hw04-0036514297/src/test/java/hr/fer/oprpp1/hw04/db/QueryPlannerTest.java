@@ -0,0 +1,134 @@
+package hr.fer.oprpp1.hw04.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class QueryPlannerTest {
+
+	StudentDatabase db;
+
+	public QueryPlannerTest() {
+		db = new StudentDatabase(List.of("0000000001	Akšamović	Marin	2", "0000000002	Bakamović	Petra	3",
+				"0000000003	Bosnić	Andrea	4", "0000000004	Božić	Marin	5", "0000000005	Brezović	Jusufadis	2"));
+	}
+
+	@Test
+	public void testMostSelectiveIndexIsChosen() {
+		var plan = plan("query firstName = \"Marin\" and jmbag = \"0000000004\"");
+		assertTrue(plan.usesIndex());
+		assertSame(FieldValueGetters.JMBAG, plan.index().getFieldGetter());
+		assertEquals(1, plan.range().size());
+		assertEquals(1, plan.predicates().size());
+	}
+
+	@Test
+	public void testLikeIsTestedLast() {
+		var plan = plan("query lastName LIKE \"B*ć\" and firstName != \"Petra\" and jmbag > \"0000000001\"");
+		var predicates = plan.predicates();
+		assertSame(ComparisonOperators.LIKE, predicates.get(predicates.size() - 1).expression().getComparisonOperator());
+		assertEquals(List.of(db.forJMBAG("0000000003"), db.forJMBAG("0000000004"), db.forJMBAG("0000000005")),
+				db.execute(plan));
+	}
+
+	@Test
+	public void testContradictions() {
+		assertTrue(plan("query jmbag = \"0000000001\" and jmbag = \"0000000002\"").isContradiction());
+		assertTrue(plan("query lastName > \"M\" and lastName < \"A\"").isContradiction());
+		assertTrue(plan("query lastName >= \"B\" and lastName < \"B\"").isContradiction());
+		assertTrue(plan("query firstName = \"Marin\" and firstName != \"Marin\"").isContradiction());
+		assertTrue(plan("query lastName LIKE \"Bo*\" and lastName < \"Ba\"").isContradiction());
+		assertTrue(db.query(new QueryParser("query jmbag = \"0000000001\" and jmbag = \"0000000002\"").getQuery())
+				.isEmpty());
+	}
+
+	@Test
+	public void testNoFalseContradictions() {
+		assertFalse(plan("query lastName >= \"Bosnić\" and lastName <= \"Bosnić\"").isContradiction());
+		assertFalse(plan("query lastName LIKE \"Bo*\" and lastName < \"Bp\"").isContradiction());
+		assertFalse(plan("query firstName != \"Marin\" and firstName != \"Petra\"").isContradiction());
+	}
+
+	@Test
+	public void testExplain() {
+		var lines = plan("query lastName LIKE \"B*\" and firstName = \"Marin\"").explain();
+		assertEquals(List.of("Index range scan on firstName: 2 of 5 records", "Filter:",
+				"  1. lastName LIKE \"B*\" (selectivity 0.800, cost 2)"), lines);
+		assertEquals("Contradictory conditions, no records are read",
+				plan("query jmbag = \"1\" and jmbag = \"2\"").explain().get(0));
+	}
+
+	@Test
+	public void testGradeBitmap() {
+		var plan = plan("query finalGrade >= 4 and lastName LIKE \"B*\"");
+		assertTrue(plan.usesIndex());
+		assertTrue(plan.usesGradeIndex());
+		assertEquals(1, plan.predicates().size());
+		assertEquals(db.filter(new QueryParser("query finalGrade >= 4 and lastName LIKE \"B*\"").getQuery().get(0))
+				.stream().filter((rec) -> rec.getLastName().startsWith("B")).toList(), db.execute(plan));
+
+		var gradesOnly = plan("query finalGrade != 3 and finalGrade < 5");
+		assertFalse(gradesOnly.usesIndex());
+		assertTrue(gradesOnly.usesGradeIndex());
+		assertTrue(gradesOnly.predicates().isEmpty());
+		assertFalse(plan("query finalGrade >= 1").usesGradeIndex());
+	}
+
+	@Test
+	public void testGradeContradiction() {
+		assertTrue(plan("query finalGrade > 5").isContradiction());
+		assertTrue(plan("query finalGrade > 3 and finalGrade < 4").isContradiction());
+		assertFalse(plan("query finalGrade > 3 and finalGrade < 5").isContradiction());
+	}
+
+	@Test
+	public void testOrReadsIndexUnion() {
+		var plan = db.plan(new QueryParser("query jmbag = \"0000000001\" or lastName = \"Božić\"").getExpression());
+		assertTrue(plan.isUnion());
+		assertEquals(List.of("Union of 2 index scans: at most 2 of 5 records",
+				"  Index range scan on jmbag: 1 of 5 records", "  Index range scan on lastName: 1 of 5 records",
+				"Filter: jmbag = \"0000000001\" or lastName = \"Božić\""), plan.explain());
+		assertEquals(List.of(db.forJMBAG("0000000001"), db.forJMBAG("0000000004")), db.execute(plan));
+	}
+
+	@Test
+	public void testOrWithUnindexedOperandScans() {
+		var plan = db.plan(new QueryParser("query jmbag = \"0000000001\" or lastName LIKE \"*ć\"").getExpression());
+		assertFalse(plan.isUnion());
+		assertFalse(plan.usesIndex());
+		assertEquals("Full scan: 5 records", plan.explain().get(0));
+		assertEquals(5, db.execute(plan).size());
+	}
+
+	@Test
+	public void testAndReadsCheapestOperand() {
+		var plan = db.plan(new QueryParser(
+				"query firstName >= \"A\" and (jmbag = \"0000000002\" or jmbag = \"0000000003\")").getExpression());
+		assertTrue(plan.isUnion());
+		assertEquals(2, plan.candidates());
+		assertEquals(List.of(db.forJMBAG("0000000002"), db.forJMBAG("0000000003")), db.execute(plan));
+	}
+
+	@Test
+	public void testOperandsOrderedByCost() {
+		var expression = new QueryParser(
+				"query (lastName LIKE \"*ić\" or jmbag = \"0000000001\") and not firstName LIKE \"*a\"")
+				.getExpression();
+		var plan = db.plan(expression);
+		var and = assertInstanceOf(AndExpression.class, plan.expression());
+		assertInstanceOf(NotExpression.class, and.operands().get(0));
+		var or = assertInstanceOf(OrExpression.class, and.operands().get(1));
+		assertSame(FieldValueGetters.LAST_NAME, ((ConditionalExpression) or.operands().get(0)).getFieldGetter());
+		assertEquals(db.filter(expression), db.execute(plan));
+	}
+
+	private QueryPlan plan(String query) {
+		return db.plan(new QueryParser(query).getQuery());
+	}
+}
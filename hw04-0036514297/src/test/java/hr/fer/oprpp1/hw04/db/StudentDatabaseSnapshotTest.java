@@ -0,0 +1,109 @@
+package hr.fer.oprpp1.hw04.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StudentDatabaseSnapshotTest {
+
+	private static StudentDatabase sample() {
+		var lines = new ArrayList<String>();
+		for (int i = 0; i < 500; i++)
+			lines.add(String.format("%010d\tPrezime%03d Šćepanović\tIme%d\t%d", (i * 37) % 1000, i % 50, i % 7,
+					i % 5 + 1));
+		return new StudentDatabase(lines);
+	}
+
+	@Test
+	public void testRoundTrip(@TempDir Path dir) throws IOException {
+		var original = sample();
+		var file = dir.resolve("database.snapshot");
+		StudentDatabaseSnapshot.write(original, file);
+		var loaded = StudentDatabaseSnapshot.load(file);
+
+		assertEquals(original.size(), loaded.size());
+		var originalRecords = original.records();
+		var loadedRecords = loaded.records();
+		for (int i = 0; i < original.size(); i++) {
+			var expected = originalRecords.get(i);
+			var actual = loadedRecords.get(i);
+			assertEquals(expected.getJmbag(), actual.getJmbag());
+			assertEquals(expected.getLastName(), actual.getLastName());
+			assertEquals(expected.getFirstName(), actual.getFirstName());
+			assertEquals(expected.getFinalGrade(), actual.getFinalGrade());
+		}
+		assertEquals(originalRecords.get(3), loaded.forJMBAG(originalRecords.get(3).getJmbag()));
+
+		for (var query : new String[] { "query lastName LIKE \"Prezime01*\"", "query jmbag > \"0000000900\"",
+				"query firstName = \"Ime3\" and lastName < \"Prezime010\"" }) {
+			var expressions = new QueryParser(query).getQuery();
+			assertEquals(original.query(expressions), loaded.query(expressions));
+			assertEquals(original.plan(expressions).explain(), loaded.plan(expressions).explain());
+		}
+	}
+
+	@Test
+	public void testIndexesAreRestored(@TempDir Path dir) throws IOException {
+		var original = sample();
+		var file = dir.resolve("database.snapshot");
+		StudentDatabaseSnapshot.write(original, file);
+		var loaded = StudentDatabaseSnapshot.load(file);
+		for (var getter : StudentDatabase.INDEXED_FIELDS) {
+			var expected = original.getPlanner().getIndex(getter);
+			var actual = loaded.getPlanner().getIndex(getter);
+			var all = new SortedIndex.Range(0, expected.size());
+			assertTrue(Arrays.equals(expected.positions(all), actual.positions(all)));
+			assertEquals(expected.getStatistics(), actual.getStatistics());
+		}
+	}
+
+	@Test
+	public void testCorruptionIsDetected(@TempDir Path dir) throws IOException {
+		var file = dir.resolve("database.snapshot");
+		StudentDatabaseSnapshot.write(sample(), file);
+		var bytes = Files.readAllBytes(file);
+
+		bytes[bytes.length / 2] ^= 1;
+		Files.write(file, bytes);
+		assertThrows(InvalidSnapshotException.class, () -> StudentDatabaseSnapshot.load(file));
+
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+		assertThrows(InvalidSnapshotException.class, () -> StudentDatabaseSnapshot.load(file));
+
+		Files.writeString(file, "0000000001\tAkšamović\tMarin\t2\r\n");
+		assertThrows(InvalidSnapshotException.class, () -> StudentDatabaseSnapshot.load(file));
+	}
+
+	@Test
+	public void testEmptyDatabase(@TempDir Path dir) throws IOException {
+		var file = dir.resolve("database.snapshot");
+		StudentDatabaseSnapshot.write(new StudentDatabase(new ArrayList<>()), file);
+		assertEquals(0, StudentDatabaseSnapshot.load(file).size());
+	}
+
+	@Test
+	public void testRemovedRecordsAreLeftOut(@TempDir Path dir) throws IOException {
+		var original = sample();
+		for (int i = 0; i < 1000; i += 74)
+			original.delete(String.format("%010d", i));
+		original.insert(new StudentRecord("0000001000", "Ana", "Anić", 5));
+		var file = dir.resolve("database.snapshot");
+		StudentDatabaseSnapshot.write(original, file);
+		var loaded = StudentDatabaseSnapshot.load(file);
+
+		assertEquals(original.size(), loaded.size());
+		assertEquals(original.records(), loaded.records());
+		var expressions = new QueryParser("query lastName < \"Prezime020\" and firstName >= \"Ime2\"").getQuery();
+		assertEquals(original.query(expressions), loaded.query(expressions));
+		assertEquals("Anić", loaded.forJMBAG("0000001000").getLastName());
+	}
+}
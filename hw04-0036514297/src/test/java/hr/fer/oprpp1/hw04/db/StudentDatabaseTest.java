@@ -1,8 +1,15 @@
 package hr.fer.oprpp1.hw04.db;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.Test;
 
@@ -29,4 +36,382 @@ public class StudentDatabaseTest {
 	public void testForJmbag() {
 		assertEquals("Andrea", db.forJMBAG("0000000003").getFirstName());
 	}
+
+	@Test
+	public void testQueryUsesIndexForRange() {
+		var plan = db.plan(new QueryParser("query lastName > \"Bo\" and firstName = \"Marin\"").getQuery());
+		assertTrue(plan.usesIndex());
+		assertEquals(List.of(db.forJMBAG("0000000004")), db.execute(plan));
+	}
+
+	@Test
+	public void testQueryFullScanForNotEquals() {
+		var query = new QueryParser("query lastName != \"Bosnić\"").getQuery();
+		assertFalse(db.plan(query).usesIndex());
+		assertEquals(3, db.query(query).size());
+	}
+
+	@Test
+	public void testQueryMatchesFilter() {
+		var lines = new ArrayList<String>();
+		String[] lastNames = { "Kovač", "Kovačić", "Ko", "Horvat", "Babić", "Knez", "Kos" };
+		String[] firstNames = { "Ana", "Ivan", "Marko", "Ivana", "Luka" };
+		for (int i = 0; i < 200; i++)
+			lines.add(String.format("%010d\t%s\t%s\t%d", (i * 37) % 1000, lastNames[i % lastNames.length],
+					firstNames[i % firstNames.length], i % 5 + 1));
+		var database = new StudentDatabase(lines);
+
+		String[] operators = { "<", "<=", ">", ">=", "=", "!=", "LIKE" };
+		String[] literals = { "Ko", "Kovač", "Ko*", "Kov*ć", "*ić", "Iv*", "Z", "0000000370", "00000005*", "" };
+		for (var attribute : List.of("jmbag", "lastName", "firstName"))
+			for (var operator : operators)
+				for (var literal : literals) {
+					var query = new QueryParser(
+							"query " + attribute + " " + operator + " \"" + literal + "\" and jmbag >= \"0000000100\"")
+							.getQuery();
+					assertEquals(database.filter(new QueryFilter(query)), database.query(query),
+							attribute + " " + operator + " " + literal);
+				}
+	}
+
+	@Test
+	public void testBooleanQueryMatchesFilter() {
+		var lines = new ArrayList<String>();
+		String[] lastNames = { "Kovač", "Kovačić", "Ko", "Horvat", "Babić", "Knez", "Kos" };
+		String[] firstNames = { "Ana", "Ivan", "Marko", "Ivana", "Luka" };
+		for (int i = 0; i < 200; i++)
+			lines.add(String.format("%010d\t%s\t%s\t%d", (i * 37) % 1000, lastNames[i % lastNames.length],
+					firstNames[i % firstNames.length], i % 5 + 1));
+		var database = new StudentDatabase(lines);
+		var columnar = new ColumnarStudentDatabase(lines);
+
+		String[] queries = { "jmbag < \"0000000100\" or jmbag > \"0000000900\"",
+				"lastName = \"Kos\" or finalGrade = 5", "lastName LIKE \"Ko*\" or firstName LIKE \"*a\"",
+				"not (lastName = \"Kos\" or finalGrade = 5)", "not lastName LIKE \"K*\" and jmbag >= \"0000000500\"",
+				"(lastName = \"Knez\" or lastName = \"Babić\") and (finalGrade >= 4 or firstName = \"Ana\")",
+				"finalGrade = 1 or finalGrade = 2 and lastName > \"K\" or jmbag = \"0000000370\"",
+				"jmbag = \"0000000001\" or jmbag = \"0000000002\"", "finalGrade > 5 or lastName = \"Z\"",
+				"not (jmbag < \"0000000500\" and not (firstName = \"Ivan\" or finalGrade != 3))" };
+		for (var query : queries) {
+			var expression = new QueryParser("query " + query).getExpression();
+			var expected = database.filter(expression);
+			assertEquals(expected, database.query(expression), query);
+			assertEquals(expected, columnar.query(expression), query);
+		}
+	}
+
+	@Test
+	public void testParallelFilterKeepsOrder() {
+		var lines = new ArrayList<String>();
+		for (int i = 0; i < 150_000; i++)
+			lines.add(String.format("%010d\tPrezime%d\tIme%d\t%d", i, i % 1000, i % 7, i % 5 + 1));
+		var database = new StudentDatabase(lines);
+		IFilter filter = (record) -> record.getLastName().endsWith("7") || record.getFirstName().equals("Ime3");
+
+		var automatic = database.filter(filter);
+		database.setParallelism(1);
+		var sequential = database.filter(filter);
+		database.setParallelism(6);
+		var parallel = database.filter(filter);
+		database.setParallelism(StudentDatabase.AUTOMATIC_PARALLELISM);
+
+		assertEquals(sequential, automatic);
+		assertEquals(sequential, parallel);
+		for (int i = 1; i < sequential.size(); i++)
+			assertTrue(sequential.get(i - 1).getJmbag().compareTo(sequential.get(i).getJmbag()) < 0);
+	}
+
+	@Test
+	public void testParallelismChangesDuringScans() throws InterruptedException {
+		var lines = new ArrayList<String>();
+		for (int i = 0; i < 20_000; i++)
+			lines.add(String.format("%010d\tPrezime%d\tIme\t%d", i, i % 10, i % 5 + 1));
+		var database = new StudentDatabase(lines);
+		IFilter filter = (record) -> record.getFinalGrade() == 5;
+		var failure = new AtomicReference<String>();
+		var scanner = new Thread(() -> {
+			try {
+				while (!Thread.currentThread().isInterrupted() && failure.get() == null)
+					if (database.filter(filter).size() != 4000)
+						failure.set("Scan missed records");
+			} catch (RuntimeException ex) {
+				failure.set(ex.toString());
+			}
+		});
+		scanner.start();
+		for (int round = 0; round < 300 && failure.get() == null; round++)
+			database.setParallelism(round % 3 + 1);
+		scanner.interrupt();
+		scanner.join();
+		database.setParallelism(StudentDatabase.AUTOMATIC_PARALLELISM);
+		assertNull(failure.get());
+	}
+
+	@Test
+	public void testAggregateMatchesFilter() {
+		var lines = new ArrayList<String>();
+		for (int i = 0; i < 150_000; i++)
+			lines.add(String.format("%010d\tPrezime%d\tIme%d\t%d", i, i % 1000, i % 7, i * 7 % 5 + 1));
+		var database = new StudentDatabase(lines);
+		var columnar = new ColumnarStudentDatabase(lines);
+
+		String[] queries = { "query count avg finalGrade min finalGrade max finalGrade",
+				"query finalGrade >= 4 count avg finalGrade", "query finalGrade > 5 count max finalGrade",
+				"query lastName LIKE \"Prezime1*\" avg finalGrade group by firstName",
+				"query firstName = \"Ime3\" or finalGrade = 1 group by finalGrade min finalGrade",
+				"query jmbag < \"0000001000\" count", "query lastName = \"Nitko\" group by lastName" };
+		for (var text : queries) {
+			var parser = new QueryParser(text);
+			var aggregation = parser.getAggregation();
+			var expected = RecordFormatter.format(aggregation,
+					database.filter(parser.getExpression()).stream().collect(aggregation.collector()));
+			assertEquals(expected,
+					RecordFormatter.format(aggregation, database.aggregate(parser.getExpression(), aggregation)), text);
+			database.setParallelism(1);
+			assertEquals(expected,
+					RecordFormatter.format(aggregation, database.aggregate(parser.getExpression(), aggregation)), text);
+			database.setParallelism(StudentDatabase.AUTOMATIC_PARALLELISM);
+			assertEquals(expected,
+					RecordFormatter.format(aggregation, columnar.aggregate(parser.getExpression(), aggregation)), text);
+		}
+	}
+
+	@Test
+	public void testOrderingMatchesSort() {
+		var lines = new ArrayList<String>();
+		for (int i = 0; i < 20_000; i++)
+			lines.add(String.format("%010d\tPrezime%d\tIme%d\t%d", i * 7 % 20_000, i % 300, i % 7, i * 3 % 5 + 1));
+		var database = new StudentDatabase(lines);
+		var columnar = new ColumnarStudentDatabase(lines);
+
+		String[] queries = { "query order by lastName limit 10", "query order by finalGrade desc limit 5 offset 3",
+				"query order by jmbag desc", "query lastName < \"Prezime2\" order by firstName limit 7 offset 40",
+				"query finalGrade >= 4 order by lastName desc limit 25", "query limit 12 offset 5",
+				"query firstName = \"Ime3\" or finalGrade = 1 order by finalGrade limit 30",
+				"query jmbag > \"0000019990\" order by finalGrade desc limit 100 offset 2",
+				"query finalGrade > 5 order by lastName limit 3" };
+		for (var text : queries) {
+			var parser = new QueryParser(text);
+			var ordering = parser.getOrdering();
+			var expected = database.filter(parser.getExpression());
+			if (ordering.isOrdered())
+				expected.sort(ordering.comparator());
+			expected = ordering.page(expected);
+			assertEquals(expected, database.query(parser.getExpression(), ordering), text);
+			database.setParallelism(1);
+			assertEquals(expected, database.query(parser.getExpression(), ordering), text);
+			database.setParallelism(StudentDatabase.AUTOMATIC_PARALLELISM);
+			assertEquals(expected, columnar.query(parser.getExpression(), ordering), text);
+		}
+	}
+
+	@Test
+	public void testOrderingStrategy() {
+		var lines = new ArrayList<String>();
+		for (int i = 0; i < 10_000; i++)
+			lines.add(String.format("%010d\tPrezime%d\tIme%d\t%d", i, i % 100, i % 7, i % 5 + 1));
+		var database = new StudentDatabase(lines);
+
+		var top = new QueryParser("query order by lastName desc limit 10");
+		assertTrue(database.readsInOrder(database.plan(top.getExpression()), top.getOrdering()));
+		var selective = new QueryParser("query jmbag < \"0000000050\" order by lastName limit 10");
+		assertFalse(database.readsInOrder(database.plan(selective.getExpression()), selective.getOrdering()));
+		var filtered = new QueryParser("query finalGrade = 5 order by firstName limit 10");
+		assertTrue(database.readsInOrder(database.plan(filtered.getExpression()), filtered.getOrdering()));
+		var everything = new QueryParser("query jmbag < \"0000000050\" order by lastName");
+		assertFalse(database.readsInOrder(database.plan(everything.getExpression()), everything.getOrdering()));
+		var unordered = new QueryParser("query limit 10");
+		assertFalse(database.readsInOrder(database.plan(unordered.getExpression()), unordered.getOrdering()));
+	}
+
+	@Test
+	public void testAggregateOfNoRecords() {
+		var parser = new QueryParser("query finalGrade > 5 count avg finalGrade");
+		var result = db.aggregate(parser.getExpression(), parser.getAggregation());
+		assertEquals(0, result.total().getCount());
+		assertThrows(IllegalStateException.class, () -> result.total().getAverage());
+		assertEquals("| 0     | -               |", RecordFormatter.format(parser.getAggregation(), result).get(3));
+	}
+
+	@Test
+	public void testNegativeParallelism() {
+		assertThrows(IllegalArgumentException.class, () -> db.setParallelism(-1));
+	}
+
+	@Test
+	public void testMutationsKeepIndexesConsistent() {
+		var records = new ArrayList<StudentRecord>();
+		var database = new StudentDatabase(new ArrayList<>());
+		for (int i = 0; i < 3000; i++) {
+			var rec = new StudentRecord(String.format("%010d", i), "Ime" + i % 13, "Prezime" + i % 17, i % 5 + 1);
+			database.insert(rec);
+			records.add(rec);
+		}
+		for (int i = 0; i < 3000; i += 3)
+			assertEquals(records.get(i), database.delete(records.get(i).getJmbag()));
+		for (int i = 1; i < 3000; i += 3) {
+			var rec = records.get(i);
+			var updated = new StudentRecord(rec.getJmbag(), "Novo" + i % 7, rec.getLastName(), 1);
+			database.update(updated);
+			records.set(i, updated);
+		}
+		records.removeIf((rec) -> Integer.parseInt(rec.getJmbag()) % 3 == 0);
+		var fresh = new StudentDatabase(records.stream().map((rec) -> String.join("\t", rec.getJmbag(),
+				rec.getLastName(), rec.getFirstName(), Integer.toString(rec.getFinalGrade()))).toList());
+
+		assertEquals(2000, database.size());
+		assertNull(database.forJMBAG("0000000003"));
+		assertEquals("Novo0", database.forJMBAG("0000000007").getFirstName());
+		for (var query : new String[] { "query firstName LIKE \"Novo*\"", "query lastName = \"Prezime4\"",
+				"query jmbag < \"0000000100\" and firstName > \"Ime5\"", "query firstName = \"Ime3\"" }) {
+			var expressions = new QueryParser(query).getQuery();
+			assertEquals(fresh.query(expressions), database.query(expressions));
+			assertEquals(fresh.filter(new QueryFilter(expressions)), database.query(expressions));
+			assertEquals(fresh.plan(expressions).explain(), database.plan(expressions).explain());
+		}
+	}
+
+	@Test
+	public void testGradeBitmapFollowsUpdates() {
+		var query = new QueryParser("query finalGrade > 3 and firstName = \"Marin\"").getQuery();
+		assertEquals(List.of(db.forJMBAG("0000000004")), db.query(query));
+		db.update(new StudentRecord("0000000001", "Marin", "Akšamović", 4));
+		db.delete("0000000004");
+		db.insert(new StudentRecord("0000000005", "Marin", "Anić", 5));
+		assertEquals(List.of(db.forJMBAG("0000000001"), db.forJMBAG("0000000005")), db.query(query));
+		assertEquals(db.filter(new QueryFilter(query)), db.query(query));
+	}
+
+	@Test
+	public void testMissingRecordsAreSkipped() {
+		long version = db.getVersion();
+		assertNull(db.update(new StudentRecord("0000000009", "Ana", "Anić", 5)));
+		assertNull(db.delete("0000000009"));
+		assertEquals(version, db.getVersion());
+		assertEquals(1, db.apply(List.of(Mutation.delete("0000000009"), Mutation.delete("0000000001"))));
+		assertEquals(version + 1, db.getVersion());
+	}
+
+	@Test
+	public void testBatchIsAtomic() {
+		var batch = List.of(Mutation.delete("0000000001"),
+				Mutation.insert(new StudentRecord("0000000005", "Ana", "Anić", 5)),
+				Mutation.insert(new StudentRecord("0000000002", "Ivo", "Ivić", 1)));
+		assertThrows(JmbagAlreadyExistsException.class, () -> db.apply(batch));
+		assertEquals(4, db.size());
+		assertEquals("Marin", db.forJMBAG("0000000001").getFirstName());
+		assertNull(db.forJMBAG("0000000005"));
+		assertEquals(4, db.query(new QueryParser("query jmbag > \"\"").getQuery()).size());
+		assertEquals(0, db.getVersion());
+	}
+
+	@Test
+	public void testStalePlanIsRejected() {
+		var query = new QueryParser("query lastName LIKE \"Bo*\"").getQuery();
+		var plan = db.plan(query);
+		db.update(new StudentRecord("0000000004", "Marin", "Božić", 1));
+		assertEquals(2, db.execute(plan).size());
+		db.update(new StudentRecord("0000000004", "Marin", "Anić", 1));
+		assertThrows(IllegalStateException.class, () -> db.execute(plan));
+		assertEquals(List.of(db.forJMBAG("0000000003")), db.query(query));
+	}
+
+	@Test
+	public void testPublishFollowsVersionsBuiltOnEachOther() {
+		var first = StudentDatabase.prepare(db.getState(),
+				List.of(Mutation.update(new StudentRecord("0000000001", "Marin", "Akšamović", 3)))).state();
+		var second = StudentDatabase.prepare(first,
+				List.of(Mutation.update(new StudentRecord("0000000001", "Marin", "Akšamović", 5)))).state();
+		db.publish(second);
+		db.publish(first);
+		assertEquals(5, db.forJMBAG("0000000001").getFinalGrade());
+		assertEquals(2, db.getVersion());
+	}
+
+	@Test
+	public void testPublishRejectsOtherBranches() {
+		var base = db.getState();
+		db.update(new StudentRecord("0000000001", "Marin", "Akšamović", 3));
+		var other = StudentDatabase.prepare(base,
+				List.of(Mutation.update(new StudentRecord("0000000001", "Marin", "Akšamović", 5)))).state();
+		assertThrows(IllegalStateException.class, () -> db.publish(other));
+		assertEquals(3, db.forJMBAG("0000000001").getFinalGrade());
+	}
+
+	@Test
+	public void testIndexesFollowManyBatches() {
+		var lines = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++)
+			lines.add(String.format("%010d\tPrezime%d\tIme%d\t%d", i * 2, i % 700, i % 13, i % 5 + 1));
+		var database = new StudentDatabase(lines);
+		var random = new Random(42);
+		for (int batch = 0; batch < 300; batch++) {
+			var mutations = new ArrayList<Mutation>();
+			for (int i = 0; i < 1 + random.nextInt(40); i++) {
+				var jmbag = String.format("%010d", random.nextInt(12_000));
+				var record = new StudentRecord(jmbag, "Ime" + random.nextInt(20), "Prezime" + random.nextInt(900),
+						1 + random.nextInt(5));
+				switch (random.nextInt(3)) {
+				case 0:
+					boolean pending = mutations.stream().anyMatch((m) -> m.jmbag().equals(jmbag));
+					if (database.forJMBAG(jmbag) == null && !pending)
+						mutations.add(Mutation.insert(record));
+					break;
+				case 1:
+					mutations.add(Mutation.update(record));
+					break;
+				default:
+					mutations.add(Mutation.delete(jmbag));
+				}
+			}
+			database.apply(mutations);
+		}
+
+		var records = database.records();
+		for (var getter : StudentDatabase.INDEXED_FIELDS) {
+			var index = database.getPlanner().getIndex(getter);
+			var fresh = new SortedIndex(records, getter);
+			assertEquals(fresh.size(), index.size());
+			assertEquals(fresh.getStatistics(), index.getStatistics());
+			for (int i = 0; i < fresh.size(); i++) {
+				assertEquals(fresh.keyAt(i), index.keyAt(i));
+				assertEquals(records.get(fresh.positionAt(i)), database.getState().get(index.positionAt(i)));
+			}
+		}
+		for (var text : List.of("query lastName > \"Prezime5\"", "query firstName LIKE \"Ime1*\"",
+				"query jmbag >= \"0000005000\" and jmbag < \"0000007000\"", "query lastName = \"Prezime42\"")) {
+			var expression = new QueryParser(text).getExpression();
+			assertEquals(database.filter(expression), database.query(expression), text);
+		}
+	}
+
+	@Test
+	public void testReadersSeeWholeBatches() throws InterruptedException {
+		var lines = new ArrayList<String>();
+		for (int i = 0; i < 2000; i++)
+			lines.add(String.format("%010d\tPrezime%d\tIme\t%d", i, i % 10, i % 2 == 0 ? 1 : 5));
+		var database = new StudentDatabase(lines);
+		var failure = new AtomicReference<String>();
+		var reader = new Thread(() -> {
+			var query = new QueryParser("query lastName LIKE \"Prezime*\"").getQuery();
+			while (!Thread.currentThread().isInterrupted() && failure.get() == null) {
+				int sum = database.query(query).stream().mapToInt(StudentRecord::getFinalGrade).sum();
+				if (sum != 6000)
+					failure.set("Sum of grades was " + sum);
+			}
+		});
+		reader.start();
+		for (int round = 0; round < 200; round++) {
+			int i = 2 * (round % 1000);
+			var low = database.forJMBAG(String.format("%010d", i));
+			var high = database.forJMBAG(String.format("%010d", i + 1));
+			database.apply(List.of(
+					Mutation.update(new StudentRecord(low.getJmbag(), "Ime", low.getLastName(), high.getFinalGrade())),
+					Mutation.update(new StudentRecord(high.getJmbag(), "Ime", high.getLastName(), low.getFinalGrade()))));
+		}
+		reader.interrupt();
+		reader.join();
+		assertNull(failure.get());
+		assertEquals(200, database.getVersion());
+	}
 }
@@ -0,0 +1,90 @@
+package hr.fer.oprpp1.hw04.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StudentRecordReaderTest {
+
+	private static List<StudentRecord> readAll(String content, int bufferSize) throws IOException {
+		var channel = Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+		var records = new ArrayList<StudentRecord>();
+		try (var reader = new StudentRecordReader(channel, bufferSize)) {
+			for (var rec = reader.next(); rec != null; rec = reader.next())
+				records.add(rec);
+		}
+		return records;
+	}
+
+	@Test
+	public void testFieldsAndLineEndings() throws IOException {
+		var records = readAll("0000000001\tAkšamović\tMarin\t2\r\n\r\n0000000002\tBakamović\tPetra\t3", 4);
+		assertEquals(2, records.size());
+		var rec = records.get(0);
+		assertEquals("0000000001", rec.getJmbag());
+		assertEquals("Akšamović", rec.getLastName());
+		assertEquals("Marin", rec.getFirstName());
+		assertEquals(2, rec.getFinalGrade());
+		assertEquals("Bakamović", records.get(1).getLastName());
+		assertEquals(3, records.get(1).getFinalGrade());
+	}
+
+	@Test
+	public void testEmptyInput() throws IOException {
+		assertEquals(List.of(), readAll("", 16));
+		assertEquals(List.of(), readAll("\r\n\n", 16));
+	}
+
+	@Test
+	public void testBufferSizesGiveSameRecords() throws IOException {
+		var content = new StringBuilder();
+		for (int i = 0; i < 200; i++)
+			content.append(String.format("%010d\tĐurđević Šćepanović%d\tŽeljko\t%d\r\n", i, i, i % 5 + 1));
+		var expected = readAll(content.toString(), 1 << 16);
+		for (int size : new int[] { 1, 3, 17, 64 }) {
+			var records = readAll(content.toString(), size);
+			assertEquals(200, records.size());
+			for (int i = 0; i < records.size(); i++) {
+				assertEquals(expected.get(i).getLastName(), records.get(i).getLastName());
+				assertEquals(expected.get(i).getFinalGrade(), records.get(i).getFinalGrade());
+			}
+		}
+		assertEquals("Đurđević Šćepanović199", expected.get(199).getLastName());
+	}
+
+	@Test
+	public void testMalformedRecords() {
+		var missing = assertThrows(MalformedRecordException.class,
+				() -> readAll("0000000001\tA\tB\t2\n\n0000000002\tC\n", 8));
+		assertEquals(3, missing.line);
+		assertThrows(MalformedRecordException.class, () -> readAll("0000000001\tA\tB\tfive\n", 8));
+		assertThrows(MalformedRecordException.class, () -> readAll("0000000001\tA\tB\t\n", 8));
+		assertThrows(FinalGradeException.class, () -> readAll("0000000001\tA\tB\t7\n", 8));
+	}
+
+	@Test
+	public void testLoadMatchesLines(@TempDir Path dir) throws IOException {
+		var file = dir.resolve("database.txt");
+		Files.writeString(file, "0000000001\tAkšamović\tMarin\t2\r\n0000000002\tBakamović\tPetra\t3\r\n",
+				StandardCharsets.UTF_8);
+		var loaded = StudentDatabase.load(file);
+		var parsed = new StudentDatabase(Files.readAllLines(file, StandardCharsets.UTF_8));
+		var all = new QueryParser("query jmbag > \"\"").getQuery();
+		assertEquals(parsed.query(all), loaded.query(all));
+		assertEquals("Petra", loaded.forJMBAG("0000000002").getFirstName());
+		assertEquals("Akšamović", loaded.forJMBAG("0000000001").getLastName());
+		assertEquals(parsed.query(all), ColumnarStudentDatabase.load(file).query(all));
+	}
+}
@@ -0,0 +1,118 @@
+package hr.fer.oprpp1.hw04.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class WriteAheadLogTest {
+
+	private static final List<Mutation> FIRST = List.of(
+			Mutation.insert(new StudentRecord("0000000001", "Marin", "Akšamović", 2)),
+			Mutation.update(new StudentRecord("0000000001", "Marin", "Akšamović", 5)));
+	private static final List<Mutation> SECOND = List.of(Mutation.delete("0000000001"));
+
+	private static List<List<Mutation>> replay(Path file) throws IOException {
+		var batches = new ArrayList<List<Mutation>>();
+		new WriteAheadLog(file, batches::add).close();
+		return batches;
+	}
+
+	@Test
+	public void testBatchesAreReplayedInOrder(@TempDir Path dir) throws IOException {
+		var file = dir.resolve("log");
+		try (var log = new WriteAheadLog(file, (batch) -> {
+		})) {
+			log.commit(FIRST);
+			log.commit(SECOND);
+			assertEquals(Files.size(file), log.size());
+		}
+		var batches = replay(file);
+		assertEquals(2, batches.size());
+		assertEquals(FIRST, batches.get(0));
+		assertEquals(SECOND, batches.get(1));
+		assertEquals("Akšamović", batches.get(0).get(1).record().getLastName());
+		assertEquals(5, batches.get(0).get(1).record().getFinalGrade());
+	}
+
+	@Test
+	public void testTornTailIsDropped(@TempDir Path dir) throws IOException {
+		var file = dir.resolve("log");
+		try (var log = new WriteAheadLog(file, (batch) -> {
+		})) {
+			log.commit(FIRST);
+		}
+		long valid = Files.size(file);
+		var second = WriteAheadLog.encode(SECOND);
+		Files.write(file, Arrays.copyOf(second, second.length - 3), StandardOpenOption.APPEND);
+
+		assertEquals(List.of(FIRST), replay(file));
+		assertEquals(valid, Files.size(file));
+		try (var log = new WriteAheadLog(file, (batch) -> {
+		})) {
+			log.commit(SECOND);
+		}
+		assertEquals(List.of(FIRST, SECOND), replay(file));
+	}
+
+	@Test
+	public void testCorruptedFrameEndsReplay(@TempDir Path dir) throws IOException {
+		var file = dir.resolve("log");
+		try (var log = new WriteAheadLog(file, (batch) -> {
+		})) {
+			log.commit(FIRST);
+			log.commit(SECOND);
+			log.commit(FIRST);
+		}
+		var bytes = Files.readAllBytes(file);
+		int second = WriteAheadLog.encode(FIRST).length;
+		bytes[second + 10] ^= 1;
+		Files.write(file, bytes);
+		assertEquals(List.of(FIRST), replay(file));
+	}
+
+	@Test
+	public void testConcurrentCommitsAreAllDurable(@TempDir Path dir) throws Exception {
+		var file = dir.resolve("log");
+		try (var log = new WriteAheadLog(file, (batch) -> {
+		})) {
+			var threads = new ArrayList<Thread>();
+			for (int t = 0; t < 8; t++) {
+				int thread = t;
+				threads.add(new Thread(() -> {
+					for (int i = 0; i < 100; i++) {
+						var jmbag = String.format("%05d%05d", thread, i);
+						try {
+							log.commit(List.of(Mutation.insert(new StudentRecord(jmbag, "Ime", "Prezime", 3))));
+						} catch (IOException ex) {
+							throw new IllegalStateException(ex);
+						}
+					}
+				}));
+			}
+			threads.forEach(Thread::start);
+			for (var thread : threads)
+				thread.join();
+		}
+		var batches = replay(file);
+		assertEquals(800, batches.size());
+		assertEquals(800, batches.stream().map((batch) -> batch.get(0).jmbag()).distinct().count());
+	}
+
+	@Test
+	public void testClosedLogRejectsBatches(@TempDir Path dir) throws IOException {
+		var log = new WriteAheadLog(dir.resolve("log"), (batch) -> {
+		});
+		log.close();
+		assertThrows(IOException.class, () -> log.commit(FIRST));
+	}
+}